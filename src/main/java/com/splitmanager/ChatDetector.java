@@ -0,0 +1,283 @@
+package com.splitmanager;
+
+import com.splitmanager.models.PendingValue;
+import com.splitmanager.utils.AddCommandParser;
+import com.splitmanager.utils.AmountParser;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.ChatMessageType;
+
+/**
+ * Finds values to queue in clan and friends chat messages: PvM drops, PvP loot, player !add
+ * commands and whatever the user's own {@link DetectionRules} match.
+ * <p>
+ * A detector is built once from the config and replaced when the config changes, so nothing is
+ * compiled or looked up per message. Only the stages that are enabled are part of it, and each
+ * built-in stage has a literal that a message must contain before its regex is tried, so most
+ * chat messages are dismissed by a few substring checks. The user's rules come last, as a single
+ * regex over the messages no built-in stage recognized.
+ */
+@Slf4j
+public final class ChatDetector
+{
+	/**
+	 * Chat channel membership change announced by the game.
+	 */
+	public enum ChannelEvent
+	{
+		JOINED, LEFT
+	}
+
+	private static final Pattern PVM = Pattern.compile("^(.+?) received a drop: .*?\\((\\d[\\d,]*) coins\\)");
+	private static final Pattern PVP = Pattern.compile("^(.+?) has defeated (.+?) and received \\((\\d[\\d,]*) coins\\) worth of loot!");
+	private static final Pattern TAGS = Pattern.compile("<[^>]*>");
+	private static final Pattern CHANNEL_LEFT = Pattern.compile("(?i)^\\s*(?:you\\s+(?:have\\s+)?left\\s+(?:the\\s+)?(?:chat-)?channel\\.?|you\\s+(?:are|aren't|are\\s+not)\\s+currently\\s+in\\s+(?:a|the|your)\\s+(?:chat-)?channel\\.?|you\\s+have\\s+been\\s+kicked\\s+from\\s+the\\s+channel\\.?)\\s*$");
+	private static final Pattern CHANNEL_JOINED = Pattern.compile("(?i)^\\s*now\\s+talking\\s+in\\s+(?:the\\s+)?(?:chat-)?channel\\.?\\s*$");
+
+	/**
+	 * One detection step: the literal pre-filter, if any, and what to do with a message that contains it.
+	 */
+	private interface Stage
+	{
+		/**
+		 * @return true if the message was recognized, later stages are then skipped
+		 */
+		boolean detect(String source, String sender, String msg, List<PendingValue> out);
+	}
+
+	private static final class Filtered
+	{
+		private final String literal;
+		private final boolean ignoreCase;
+		private final Stage stage;
+
+		private Filtered(String literal, boolean ignoreCase, Stage stage)
+		{
+			this.literal = literal;
+			this.ignoreCase = ignoreCase;
+			this.stage = stage;
+		}
+	}
+
+	// Source label per chat type that is listened to, e.g. "Clan"
+	private final Map<ChatMessageType, String> sources = new EnumMap<>(ChatMessageType.class);
+	// Enabled stages, in the order they are tried
+	private final List<Filtered> stages = new ArrayList<>();
+	// Unit appended to !add values without one
+	private final String defaultUnit;
+	private final DetectionRules rules;
+
+	private ChatDetector(PluginConfig config)
+	{
+		this.defaultUnit = config.defaultValueMultiplier().getValue();
+		this.rules = DetectionRules.compile(config.detectionRules());
+		if (!config.enableChatDetection())
+		{
+			return;
+		}
+		for (ChatMessageType type : ChatMessageType.values())
+		{
+			String name = type.name();
+			if (name.contains("CLAN"))
+			{
+				if (config.detectInClanChat())
+				{
+					sources.put(type, "Clan");
+				}
+			}
+			else if (name.contains("FRIEND") && config.detectInFriendsChat())
+			{
+				sources.put(type, "Friends");
+			}
+		}
+		if (config.detectPvmValues())
+		{
+			stages.add(new Filtered(" received a drop: ", false, this::detectPvm));
+		}
+		if (config.detectPvpValues())
+		{
+			stages.add(new Filtered(" has defeated ", false, this::detectPvp));
+		}
+		if (config.detectPlayerValues())
+		{
+			stages.add(new Filtered("!add", true, this::detectAdd));
+		}
+		if (!rules.isEmpty())
+		{
+			stages.add(new Filtered(null, false, this::detectRules));
+		}
+	}
+
+	/**
+	 * Build the detector for the current config.
+	 */
+	public static ChatDetector fromConfig(PluginConfig config)
+	{
+		return new ChatDetector(config);
+	}
+
+	/**
+	 * Find the values in a chat message.
+	 *
+	 * @param type    chat type of the message
+	 * @param sender  name of the sender, may contain tags
+	 * @param message the message
+	 * @return values to queue, in the order found; empty for most messages
+	 */
+	public List<PendingValue> detect(ChatMessageType type, String sender, String message)
+	{
+		String source = type == null ? null : sources.get(type);
+		if (source == null || message == null)
+		{
+			return List.of();
+		}
+		List<PendingValue> out = null;
+		for (Filtered f : stages)
+		{
+			if (f.literal != null && !contains(message, f.literal, f.ignoreCase))
+			{
+				continue;
+			}
+			if (out == null)
+			{
+				out = new ArrayList<>(1);
+			}
+			if (f.stage.detect(source, sender, message, out))
+			{
+				break;
+			}
+		}
+		return out == null ? List.of() : out;
+	}
+
+	/**
+	 * Recognize the game's messages about joining or leaving a chat channel.
+	 *
+	 * @param plain message without tags
+	 * @return the event, or null if the message is not one of them
+	 */
+	public static ChannelEvent channelEvent(String plain)
+	{
+		if (plain == null || !contains(plain, "channel", true))
+		{
+			return null;
+		}
+		if (CHANNEL_LEFT.matcher(plain).find())
+		{
+			return ChannelEvent.LEFT;
+		}
+		if (CHANNEL_JOINED.matcher(plain).find())
+		{
+			return ChannelEvent.JOINED;
+		}
+		return null;
+	}
+
+	private boolean detectPvm(String source, String sender, String msg, List<PendingValue> out)
+	{
+		Matcher m = PVM.matcher(msg);
+		if (!m.find())
+		{
+			return false;
+		}
+		Long value = parse(msg, m.start(2), m.end(2));
+		if (value == null)
+		{
+			return false;
+		}
+		out.add(PendingValue.of(PendingValue.Type.PVM, source, msg, value, m.group(1)));
+		return true;
+	}
+
+	private boolean detectPvp(String source, String sender, String msg, List<PendingValue> out)
+	{
+		Matcher m = PVP.matcher(msg);
+		if (!m.find())
+		{
+			return false;
+		}
+		Long value = parse(msg, m.start(3), m.end(3));
+		if (value == null)
+		{
+			return false;
+		}
+		out.add(PendingValue.of(PendingValue.Type.PVP, source, msg, value, m.group(1)));
+		return true;
+	}
+
+	//TODO fix negative numbers
+	private boolean detectAdd(String source, String sender, String msg, List<PendingValue> out)
+	{
+		// Read by a linear scanner with caps, anyone in the chat can send these
+		List<String> values = AddCommandParser.parse(msg);
+		if (values.isEmpty())
+		{
+			return false;
+		}
+		String who = sender == null ? null : TAGS.matcher(sender).replaceAll("");
+		for (String valueText : values)
+		{
+			boolean hasUnit = Character.isLetter(valueText.charAt(valueText.length() - 1));
+			// Combine the number and unit for parsing
+			String fullValueText = hasUnit || defaultUnit == null ? valueText : valueText + defaultUnit;
+			Long value = parse(fullValueText, 0, fullValueText.length());
+			if (value != null)
+			{
+				out.add(PendingValue.of(PendingValue.Type.ADD, source, "!add " + fullValueText, value, who));
+			}
+		}
+		return true;
+	}
+
+	private boolean detectRules(String source, String sender, String msg, List<PendingValue> out)
+	{
+		// Chat lines are shorter than this; a rule that backtracks badly even on them runs out of steps
+		if (msg.length() > AddCommandParser.MAX_MESSAGE_LENGTH)
+		{
+			return false;
+		}
+		String who = sender == null ? null : TAGS.matcher(sender).replaceAll("");
+		return rules.detect(source, who, msg, AmountParser.multiplierOf(defaultUnit), out);
+	}
+
+	/**
+	 * @return the amount in text[start, end), in coins unless it has a unit; null if it is invalid
+	 */
+	private static Long parse(String text, int start, int end)
+	{
+		try
+		{
+			return AmountParser.parse(text, start, end, AmountParser.COINS);
+		}
+		catch (ParseException e)
+		{
+			// Skip invalid values
+			log.debug("Failed to parse value: {}", text.substring(start, end), e);
+			return null;
+		}
+	}
+
+	private static boolean contains(String s, String literal, boolean ignoreCase)
+	{
+		if (!ignoreCase)
+		{
+			return s.contains(literal);
+		}
+		char first = Character.toLowerCase(literal.charAt(0));
+		int last = s.length() - literal.length();
+		for (int i = 0; i <= last; i++)
+		{
+			if (Character.toLowerCase(s.charAt(i)) == first && s.regionMatches(true, i, literal, 0, literal.length()))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+}
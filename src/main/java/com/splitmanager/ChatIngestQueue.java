@@ -0,0 +1,243 @@
+package com.splitmanager;
+
+import com.splitmanager.models.PendingValue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.ChatMessageType;
+
+/**
+ * Bounded queue between the chat event handler and value detection.
+ * <p>
+ * The client thread only copies the fields of a chat message into the queue. Detection runs on
+ * the given executor, one drain at a time so messages keep their order, and the values found in
+ * up to {@link #BATCH_SIZE} messages are handed on together, so a burst of drops results in one
+ * update of the session and the panel instead of one per message. When the worker falls behind
+ * and the queue is full, new messages are dropped and counted rather than blocking the game.
+ */
+@Slf4j
+public class ChatIngestQueue
+{
+	/**
+	 * Messages that can wait for detection; more than a busy raid produces between two drains.
+	 */
+	public static final int CAPACITY = 512;
+	/**
+	 * Messages detected per batch of values handed on.
+	 */
+	public static final int BATCH_SIZE = 64;
+
+	/**
+	 * Fields of a chat message as received.
+	 */
+	private static final class RawMessage
+	{
+		private final ChatMessageType type;
+		private final String sender;
+		private final String message;
+
+		private RawMessage(ChatMessageType type, String sender, String message)
+		{
+			this.type = type;
+			this.sender = sender;
+			this.message = message;
+		}
+	}
+
+	private final Executor executor;
+	// Receives the values of one batch, never empty
+	private final Consumer<List<PendingValue>> sink;
+	private final BlockingQueue<RawMessage> queue = new ArrayBlockingQueue<>(CAPACITY);
+	// True while a drain is scheduled or running
+	private final AtomicBoolean draining = new AtomicBoolean();
+	private final AtomicLong offered = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong processed = new AtomicLong();
+	private final AtomicLong detected = new AtomicLong();
+	private final AtomicLong batches = new AtomicLong();
+	private final AtomicInteger maxDepth = new AtomicInteger();
+	private volatile ChatDetector detector;
+	private volatile boolean closed;
+
+	/**
+	 * @param executor executor detection runs on
+	 * @param detector detector for the current config
+	 * @param sink     called on the executor with the values found in a batch of messages
+	 */
+	public ChatIngestQueue(Executor executor, ChatDetector detector, Consumer<List<PendingValue>> sink)
+	{
+		this.executor = executor;
+		this.detector = detector;
+		this.sink = sink;
+	}
+
+	/**
+	 * Use another detector for messages that have not been detected yet, e.g. after a config change.
+	 */
+	public void setDetector(ChatDetector detector)
+	{
+		this.detector = detector;
+	}
+
+	/**
+	 * Queue a chat message for detection. Never blocks.
+	 *
+	 * @param type    chat type of the message
+	 * @param sender  name of the sender, may contain tags
+	 * @param message the message
+	 * @return false if the message was dropped because the queue is full or closed
+	 */
+	public boolean offer(ChatMessageType type, String sender, String message)
+	{
+		if (closed)
+		{
+			return false;
+		}
+		offered.incrementAndGet();
+		if (!queue.offer(new RawMessage(type, sender, message)))
+		{
+			if (dropped.incrementAndGet() == 1)
+			{
+				log.warn("Chat detection is falling behind, dropping messages: {}", this);
+			}
+			return false;
+		}
+		maxDepth.accumulateAndGet(queue.size(), Math::max);
+		scheduleDrain();
+		return true;
+	}
+
+	/**
+	 * Stop accepting messages and forget the ones that are still waiting.
+	 */
+	public void close()
+	{
+		closed = true;
+		queue.clear();
+	}
+
+	private void scheduleDrain()
+	{
+		if (draining.compareAndSet(false, true))
+		{
+			executor.execute(this::drain);
+		}
+	}
+
+	private void drain()
+	{
+		try
+		{
+			List<PendingValue> values = new ArrayList<>();
+			int n = 0;
+			RawMessage raw;
+			while (!closed && (raw = queue.poll()) != null)
+			{
+				values.addAll(detector.detect(raw.type, raw.sender, raw.message));
+				processed.incrementAndGet();
+				if (++n == BATCH_SIZE)
+				{
+					handOn(values);
+					values = new ArrayList<>();
+					n = 0;
+				}
+			}
+			handOn(values);
+		}
+		catch (RuntimeException e)
+		{
+			log.warn("Chat detection failed", e);
+		}
+		finally
+		{
+			draining.set(false);
+		}
+		// A message queued after the last poll but before the flag was cleared found a drain running
+		if (!closed && !queue.isEmpty())
+		{
+			scheduleDrain();
+		}
+	}
+
+	private void handOn(List<PendingValue> values)
+	{
+		if (values.isEmpty() || closed)
+		{
+			return;
+		}
+		detected.addAndGet(values.size());
+		batches.incrementAndGet();
+		sink.accept(values);
+	}
+
+	/**
+	 * @return number of messages waiting for detection
+	 */
+	public int getDepth()
+	{
+		return queue.size();
+	}
+
+	/**
+	 * @return highest number of messages that were waiting at once
+	 */
+	public int getMaxDepth()
+	{
+		return maxDepth.get();
+	}
+
+	/**
+	 * @return number of messages offered while open
+	 */
+	public long getOfferedCount()
+	{
+		return offered.get();
+	}
+
+	/**
+	 * @return number of messages dropped because the queue was full
+	 */
+	public long getDroppedCount()
+	{
+		return dropped.get();
+	}
+
+	/**
+	 * @return number of messages detection has run on
+	 */
+	public long getProcessedCount()
+	{
+		return processed.get();
+	}
+
+	/**
+	 * @return number of values found
+	 */
+	public long getDetectedCount()
+	{
+		return detected.get();
+	}
+
+	/**
+	 * @return number of batches of values handed on
+	 */
+	public long getBatchCount()
+	{
+		return batches.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("depth=%d, maxDepth=%d, offered=%d, dropped=%d, processed=%d, detected=%d, batches=%d",
+			getDepth(), getMaxDepth(), getOfferedCount(), getDroppedCount(), getProcessedCount(),
+			getDetectedCount(), getBatchCount());
+	}
+}
@@ -0,0 +1,464 @@
+package com.splitmanager;
+
+import com.splitmanager.models.PendingValue;
+import com.splitmanager.utils.AmountParser;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Detection rules defined by the user, e.g. for a clan bot's announcements or a clan's own split
+ * command, compiled together into a single regex.
+ * <p>
+ * Rules are written one per line as "TYPE: regex", where TYPE is PVM, PVP or ADD and the regex
+ * has a named group "value" holding the amount and optionally one named group "player". Without
+ * a player group the value goes to the sender. Values without a unit are taken as coins, except
+ * for ADD rules, which use the default value multiplier like "!add". Empty lines and lines
+ * starting with # are skipped.
+ * <p>
+ * Every rule becomes one alternative of the combined regex with its groups renamed after its
+ * position, so a message is searched once however many rules there are. The leftmost match whose
+ * value parses wins, and between rules matching at the same position the first rule; a match
+ * whose value does not parse is skipped and the search goes on after it. Rules that do not compile on
+ * their own, lack a value group, use other named groups or refer back to groups by number would
+ * break the combined regex, so they are left out and reported in {@link #getErrors()}.
+ * <p>
+ * A regex can take exponential time on a short message, e.g. "(.*a){12}b" on a line of a's, and anyone
+ * in the chat can send one. The search therefore reads the message through a counter and gives up
+ * after {@link #MAX_STEPS} characters read. The rules that run out of steps on their own on that
+ * message are then dropped for good and reported in {@link #getErrors()} as well.
+ */
+@Slf4j
+public final class DetectionRules
+{
+	/**
+	 * Rules after this many are ignored.
+	 */
+	public static final int MAX_RULES = 32;
+	/**
+	 * Characters the regex engine may read per message before the search is given up. Sane rules
+	 * need a few thousand on the longest message that is searched, catastrophic ones billions.
+	 */
+	public static final int MAX_STEPS = 1_000_000;
+
+	private static final DetectionRules NONE = new DetectionRules(new String[0], new int[0], new PendingValue.Type[0],
+		new boolean[0], List.of());
+	// The last rule text compiled and its rules, as config changes mostly leave the rules alone
+	private static String lastText;
+	private static DetectionRules lastRules = NONE;
+
+	/**
+	 * The rules still in use, searched together.
+	 */
+	private static final class Live
+	{
+		// All live rules as alternatives (?<rN>...), null if there are none
+		private final Pattern combined;
+		// Numbers N of the live rules, in order
+		private final int[] rules;
+
+		private Live(Pattern combined, int[] rules)
+		{
+			this.combined = combined;
+			this.rules = rules;
+		}
+	}
+
+	/**
+	 * Thrown by {@link StepLimitedInput} once the regex engine has read too much.
+	 */
+	private static final class StepLimitExceeded extends RuntimeException
+	{
+		private static final long serialVersionUID = 1L;
+
+		private StepLimitExceeded()
+		{
+			super(null, null, false, false);
+		}
+	}
+
+	/**
+	 * The message as the regex engine sees it, counting every character read.
+	 */
+	private static final class StepLimitedInput implements CharSequence
+	{
+		private final String s;
+		private int steps;
+
+		private StepLimitedInput(String s)
+		{
+			this.s = s;
+		}
+
+		@Override
+		public char charAt(int index)
+		{
+			if (++steps > MAX_STEPS)
+			{
+				throw new StepLimitExceeded();
+			}
+			return s.charAt(index);
+		}
+
+		@Override
+		public int length()
+		{
+			return s.length();
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end)
+		{
+			return s.subSequence(start, end);
+		}
+
+		@Override
+		public String toString()
+		{
+			return s;
+		}
+	}
+
+	// Every valid rule as its alternative (?<rN>(?:...)), by N
+	private final String[] alternatives;
+	// Line of every valid rule in the text, by N
+	private final int[] lines;
+	private final PendingValue.Type[] types;
+	private final boolean[] hasPlayer;
+	private final List<String> errors;
+	private volatile Live live;
+
+	private DetectionRules(String[] alternatives, int[] lines, PendingValue.Type[] types, boolean[] hasPlayer, List<String> errors)
+	{
+		this.alternatives = alternatives;
+		this.lines = lines;
+		this.types = types;
+		this.hasPlayer = hasPlayer;
+		this.errors = new CopyOnWriteArrayList<>(errors);
+		int[] all = new int[alternatives.length];
+		for (int i = 0; i < all.length; i++)
+		{
+			all[i] = i;
+		}
+		this.live = combine(all);
+	}
+
+	/**
+	 * Compile the rules in the given text. Invalid rules are logged and left out.
+	 *
+	 * @param text rules, one per line; may be null
+	 * @return the compiled rules, the same instance as last time if the text did not change
+	 */
+	public static synchronized DetectionRules compile(String text)
+	{
+		String t = text == null ? "" : text;
+		if (!t.equals(lastText))
+		{
+			lastRules = parse(t);
+			lastText = t;
+			for (String error : lastRules.errors)
+			{
+				log.warn("Detection rule ignored: {}", error);
+			}
+		}
+		return lastRules;
+	}
+
+	private static DetectionRules parse(String text)
+	{
+		List<String> errors = new ArrayList<>();
+		List<PendingValue.Type> types = new ArrayList<>();
+		List<Boolean> players = new ArrayList<>();
+		List<String> alternatives = new ArrayList<>();
+		List<Integer> lineNumbers = new ArrayList<>();
+		String[] lines = text.split("\\R");
+		for (int l = 0; l < lines.length; l++)
+		{
+			String line = lines[l].trim();
+			if (line.isEmpty() || line.startsWith("#"))
+			{
+				continue;
+			}
+			if (types.size() == MAX_RULES)
+			{
+				errors.add("line " + (l + 1) + ": more than " + MAX_RULES + " rules");
+				break;
+			}
+
+			int colon = line.indexOf(':');
+			PendingValue.Type type = colon < 0 ? null : typeOf(line.substring(0, colon).trim());
+			if (type == null)
+			{
+				errors.add("line " + (l + 1) + ": expected PVM, PVP or ADD followed by ':'");
+				continue;
+			}
+			String regex = line.substring(colon + 1).trim();
+			try
+			{
+				Pattern.compile(regex);
+			}
+			catch (PatternSyntaxException e)
+			{
+				errors.add("line " + (l + 1) + ": " + e.getDescription());
+				continue;
+			}
+
+			int n = types.size();
+			StringBuilder renamed = new StringBuilder(regex.length() + 8);
+			String problem = renameGroups(regex, n, renamed);
+			if (problem == null && renamed.indexOf("(?<v" + n + ">") < 0)
+			{
+				problem = "no (?<value>...) group";
+			}
+			if (problem != null)
+			{
+				errors.add("line " + (l + 1) + ": " + problem);
+				continue;
+			}
+
+			alternatives.add("(?<r" + n + ">(?:" + renamed + "))");
+			lineNumbers.add(l + 1);
+			types.add(type);
+			players.add(renamed.indexOf("(?<p" + n + ">") >= 0);
+		}
+
+		if (types.isEmpty() && errors.isEmpty())
+		{
+			return NONE;
+		}
+		boolean[] hasPlayer = new boolean[players.size()];
+		int[] ruleLines = new int[lineNumbers.size()];
+		for (int i = 0; i < hasPlayer.length; i++)
+		{
+			hasPlayer[i] = players.get(i);
+			ruleLines[i] = lineNumbers.get(i);
+		}
+		return new DetectionRules(alternatives.toArray(new String[0]), ruleLines, types.toArray(new PendingValue.Type[0]),
+			hasPlayer, errors);
+	}
+
+	/**
+	 * Join the given rules into one regex.
+	 */
+	private Live combine(int[] rules)
+	{
+		if (rules.length == 0)
+		{
+			return new Live(null, rules);
+		}
+		StringBuilder combined = new StringBuilder();
+		for (int rule : rules)
+		{
+			if (combined.length() > 0)
+			{
+				combined.append('|');
+			}
+			combined.append(alternatives[rule]);
+		}
+		return new Live(Pattern.compile(combined.toString()), rules);
+	}
+
+	/**
+	 * Copy a rule's regex with its player and value groups renamed to pN and vN.
+	 *
+	 * @return what keeps the rule out of the combined regex, or null if nothing
+	 */
+	private static String renameGroups(String regex, int n, StringBuilder out)
+	{
+		int len = regex.length();
+		for (int i = 0; i < len; i++)
+		{
+			char c = regex.charAt(i);
+			if (c == '\\' && i + 1 < len)
+			{
+				char next = regex.charAt(i + 1);
+				if ((next >= '1' && next <= '9') || next == 'k')
+				{
+					return "back references are not supported";
+				}
+				out.append(c).append(next);
+				i++;
+				continue;
+			}
+			if (c == '(' && regex.startsWith("?<", i + 1) && i + 3 < len && Character.isLetter(regex.charAt(i + 3)))
+			{
+				int close = regex.indexOf('>', i + 3);
+				if (close < 0)
+				{
+					return "unclosed group name";
+				}
+				String name = regex.substring(i + 3, close);
+				if ("player".equals(name))
+				{
+					out.append("(?<p").append(n).append('>');
+				}
+				else if ("value".equals(name))
+				{
+					out.append("(?<v").append(n).append('>');
+				}
+				else
+				{
+					return "only the groups player and value may be named";
+				}
+				i = close;
+				continue;
+			}
+			out.append(c);
+		}
+		return null;
+	}
+
+	private static PendingValue.Type typeOf(String name)
+	{
+		try
+		{
+			return PendingValue.Type.valueOf(name.toUpperCase(Locale.ROOT));
+		}
+		catch (IllegalArgumentException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * @return problems with the rule text, one per rule that was left out or dropped
+	 */
+	public List<String> getErrors()
+	{
+		return List.copyOf(errors);
+	}
+
+	/**
+	 * @return true if there is no valid rule
+	 */
+	public boolean isEmpty()
+	{
+		return live.combined == null;
+	}
+
+	/**
+	 * Apply the rules to a message.
+	 *
+	 * @param source           label of the chat the message came from
+	 * @param sender           sender without tags, the player of rules without player group; may be null
+	 * @param msg              the message
+	 * @param defaultMultiplier multiplier of ADD values without a unit
+	 * @param out              receives the value of the matching rule
+	 * @return true if a rule matched with a valid value
+	 */
+	public boolean detect(String source, String sender, String msg, long defaultMultiplier, List<PendingValue> out)
+	{
+		Live rules = live;
+		if (rules.combined == null)
+		{
+			return false;
+		}
+		try
+		{
+			return detect(rules, source, sender, msg, defaultMultiplier, out);
+		}
+		catch (StepLimitExceeded e)
+		{
+			Live rest = dropSlowRules(rules, msg);
+			if (rest == rules || rest.combined == null)
+			{
+				return false;
+			}
+		}
+		try
+		{
+			// Once more without the rules that were too slow
+			return detect(live, source, sender, msg, defaultMultiplier, out);
+		}
+		catch (StepLimitExceeded e)
+		{
+			return false;
+		}
+	}
+
+	private boolean detect(Live rules, String source, String sender, String msg, long defaultMultiplier, List<PendingValue> out)
+	{
+		Matcher m = rules.combined.matcher(new StepLimitedInput(msg));
+		int from = 0;
+		while (from <= msg.length() && m.find(from))
+		{
+			// Past this match, or one further for an empty match, so the search always moves on
+			from = m.end() > m.start() ? m.end() : m.start() + 1;
+			int rule = -1;
+			for (int r : rules.rules)
+			{
+				if (m.start("r" + r) >= 0)
+				{
+					rule = r;
+					break;
+				}
+			}
+			String valueGroup = "v" + rule;
+			if (m.start(valueGroup) < 0)
+			{
+				continue;
+			}
+			PendingValue.Type type = types[rule];
+			long multiplier = type == PendingValue.Type.ADD ? defaultMultiplier : AmountParser.COINS;
+			long value;
+			try
+			{
+				value = AmountParser.parse(msg, m.start(valueGroup), m.end(valueGroup), multiplier);
+			}
+			catch (ParseException e)
+			{
+				log.debug("Failed to parse value of detection rule {}: {}", rule + 1, m.group(valueGroup), e);
+				continue;
+			}
+			String player = hasPlayer[rule] ? m.group("p" + rule) : sender;
+			out.add(PendingValue.of(type, source, msg, value, player == null ? null : player.trim()));
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Try every rule on its own on a message the combined search gave up on, and stop using the
+	 * ones that run out of steps.
+	 *
+	 * @return the rules in use from now on, the given ones if none was dropped
+	 */
+	private synchronized Live dropSlowRules(Live rules, String msg)
+	{
+		if (live != rules)
+		{
+			// Another message got here first
+			return live;
+		}
+		int[] kept = new int[rules.rules.length];
+		int n = 0;
+		for (int rule : rules.rules)
+		{
+			try
+			{
+				Pattern.compile(alternatives[rule]).matcher(new StepLimitedInput(msg)).find();
+				kept[n++] = rule;
+			}
+			catch (StepLimitExceeded e)
+			{
+				String error = "line " + lines[rule] + ": too slow, took over " + MAX_STEPS + " steps on a message";
+				errors.add(error);
+				log.warn("Detection rule dropped: {}", error);
+			}
+		}
+		if (n == kept.length)
+		{
+			log.debug("Detection rules gave up on a message none of them is too slow for alone");
+			return rules;
+		}
+		live = combine(Arrays.copyOf(kept, n));
+		return live;
+	}
+}
@@ -0,0 +1,259 @@
+package com.splitmanager;
+
+import com.splitmanager.models.Kill;
+import com.splitmanager.models.Session;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+
+/**
+ * Compact, read-only form of a finished session thread, kept in memory instead of its sessions.
+ * <p>
+ * Every string (ids, player names, kill types) is stored once in a table and referenced by index.
+ * Segments and kills are kept as column arrays: timestamps as epoch milliseconds, amounts as longs
+ * and players as table indices, with per-segment offsets into the roster and kill columns. Next to
+ * that, the final state of the thread's {@link SplitEngine} is stored, so a thawed thread gets its
+ * engine back without visiting a single kill.
+ * <p>
+ * Timestamps have millisecond precision and every kill belongs to the segment it is listed in,
+ * like the stored form of a thread, so a thawed thread equals one read back from storage. Missing
+ * timestamps and amounts are marked in bit sets, as every long is a valid value.
+ * <p>
+ * This is a cache, not a view: the history panel works on thawed sessions, so opening a frozen
+ * thread builds all of its Session and Kill objects again. It only saves reading and decoding the
+ * thread from storage, and only for the few threads opened last; see {@code ManagerSession}.
+ */
+public final class FrozenThread
+{
+	@Getter
+	private final String motherId;
+	// Every distinct string of the thread
+	private final String[] strings;
+
+	// Per segment: id, mother id (-1 for the mother), start and end
+	private final int[] segmentIds;
+	private final int[] segmentMothers;
+	private final long[] segmentStarts;
+	private final long[] segmentEnds;
+	// Segments without start or end
+	private final BitSet noStart = new BitSet();
+	private final BitSet noEnd = new BitSet();
+	// Roster of segment i is rosters[rosterStart[i] .. rosterStart[i + 1])
+	private final int[] rosterStart;
+	private final int[] rosters;
+
+	// Kills of segment i are at killStart[i] .. killStart[i + 1]
+	private final int[] killStart;
+	private final long[] killAt;
+	private final long[] killAmounts;
+	// Kills without timestamp or amount
+	private final BitSet noKillAt = new BitSet();
+	private final BitSet noAmount = new BitSet();
+	// Player name, -1 for none
+	private final int[] killPlayers;
+	// Kill type, -1 for none
+	private final int[] killTypes;
+
+	/**
+	 * Final sums of the thread's split engine.
+	 */
+	final SplitEngine.Settlement settlement;
+
+	private FrozenThread(List<Session> thread, SplitEngine.Settlement settlement)
+	{
+		Map<String, Integer> table = new HashMap<>();
+		List<String> tableOrder = new ArrayList<>();
+		int segments = thread.size();
+		int rosterCount = 0;
+		int killCount = 0;
+		for (Session s : thread)
+		{
+			rosterCount += s.getPlayers().size();
+			killCount += s.getKills().size();
+		}
+
+		this.motherId = thread.get(0).getMotherId() == null ? thread.get(0).getId() : thread.get(0).getMotherId();
+		this.segmentIds = new int[segments];
+		this.segmentMothers = new int[segments];
+		this.segmentStarts = new long[segments];
+		this.segmentEnds = new long[segments];
+		this.rosterStart = new int[segments + 1];
+		this.rosters = new int[rosterCount];
+		this.killStart = new int[segments + 1];
+		this.killAt = new long[killCount];
+		this.killAmounts = new long[killCount];
+		this.killPlayers = new int[killCount];
+		this.killTypes = new int[killCount];
+
+		int r = 0;
+		int k = 0;
+		for (int i = 0; i < segments; i++)
+		{
+			Session s = thread.get(i);
+			segmentIds[i] = index(table, tableOrder, s.getId());
+			segmentMothers[i] = index(table, tableOrder, s.getMotherId());
+			segmentStarts[i] = millis(s.getStart(), noStart, i);
+			segmentEnds[i] = millis(s.getEnd(), noEnd, i);
+			rosterStart[i] = r;
+			for (String p : s.getPlayers())
+			{
+				rosters[r++] = index(table, tableOrder, p);
+			}
+			killStart[i] = k;
+			for (Kill kill : s.getKills())
+			{
+				killAt[k] = millis(kill.getAt(), noKillAt, k);
+				if (kill.getAmount() == null)
+				{
+					noAmount.set(k);
+				}
+				else
+				{
+					killAmounts[k] = kill.getAmount();
+				}
+				killPlayers[k] = index(table, tableOrder, kill.getPlayer());
+				killTypes[k] = index(table, tableOrder, kill.getType());
+				k++;
+			}
+		}
+		rosterStart[segments] = r;
+		killStart[segments] = k;
+		this.strings = tableOrder.toArray(new String[0]);
+		this.settlement = settlement;
+	}
+
+	/**
+	 * Freeze a finished thread together with the state of its split engine.
+	 *
+	 * @param thread sessions of the thread, mother first, in the order the engine was built with
+	 * @param engine the thread's engine, up to date with the sessions
+	 * @return the frozen thread, or null if the thread is empty
+	 */
+	public static FrozenThread freeze(List<Session> thread, SplitEngine engine)
+	{
+		return thread.isEmpty() ? null : new FrozenThread(thread, engine.settlement(thread));
+	}
+
+	/**
+	 * Create sessions equal to the frozen ones. Every call returns new objects, so the thawed
+	 * thread can be edited without changing this one.
+	 *
+	 * @return the thread's sessions, mother first
+	 */
+	public List<Session> thaw()
+	{
+		List<Session> out = new ArrayList<>(segmentIds.length);
+		for (int i = 0; i < segmentIds.length; i++)
+		{
+			String id = strings[segmentIds[i]];
+			Session s = new Session(id, instant(segmentStarts[i], noStart, i), string(segmentMothers[i]));
+			s.setEnd(instant(segmentEnds[i], noEnd, i));
+			List<String> roster = new ArrayList<>(rosterStart[i + 1] - rosterStart[i]);
+			for (int r = rosterStart[i]; r < rosterStart[i + 1]; r++)
+			{
+				roster.add(strings[rosters[r]]);
+			}
+			s.setPlayers(roster);
+			for (int k = killStart[i]; k < killStart[i + 1]; k++)
+			{
+				Kill kill = new Kill(id, string(killPlayers[k]), noAmount.get(k) ? null : killAmounts[k], instant(killAt[k], noKillAt, k));
+				kill.setType(string(killTypes[k]));
+				s.getKills().add(kill);
+			}
+			out.add(s);
+		}
+		return out;
+	}
+
+	/**
+	 * @return number of segments
+	 */
+	public int getSegmentCount()
+	{
+		return segmentIds.length;
+	}
+
+	/**
+	 * @return number of kills over all segments
+	 */
+	public int getKillCount()
+	{
+		return killAt.length;
+	}
+
+	/**
+	 * @return number of kills frozen for the given segment
+	 */
+	int killCount(int segment)
+	{
+		return killStart[segment + 1] - killStart[segment];
+	}
+
+	/**
+	 * @return player of the segment's n-th kill as frozen, or null
+	 */
+	String killPlayer(int segment, int n)
+	{
+		return string(killPlayers[killStart[segment] + n]);
+	}
+
+	/**
+	 * @return amount of the segment's n-th kill as frozen, 0 if it had none
+	 */
+	long killAmount(int segment, int n)
+	{
+		// Missing amounts are stored as 0
+		return killAmounts[killStart[segment] + n];
+	}
+
+	/**
+	 * @return type of the segment's n-th kill as frozen, or null
+	 */
+	String killType(int segment, int n)
+	{
+		return string(killTypes[killStart[segment] + n]);
+	}
+
+	private String string(int index)
+	{
+		return index < 0 ? null : strings[index];
+	}
+
+	private static int index(Map<String, Integer> table, List<String> order, String value)
+	{
+		if (value == null)
+		{
+			return -1;
+		}
+		Integer index = table.get(value);
+		if (index == null)
+		{
+			index = order.size();
+			table.put(value, index);
+			order.add(value);
+		}
+		return index;
+	}
+
+	/**
+	 * @return the timestamp in epoch milliseconds, or 0 with bit i of missing set if there is none
+	 */
+	private static long millis(Instant at, BitSet missing, int i)
+	{
+		if (at == null)
+		{
+			missing.set(i);
+			return 0L;
+		}
+		return at.toEpochMilli();
+	}
+
+	private static Instant instant(long millis, BitSet missing, int i)
+	{
+		return missing.get(i) ? null : Instant.ofEpochMilli(millis);
+	}
+}
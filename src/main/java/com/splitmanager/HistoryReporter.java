@@ -0,0 +1,242 @@
+package com.splitmanager;
+
+import com.splitmanager.models.HistoryReport;
+import com.splitmanager.models.PlayerMetrics;
+import com.splitmanager.models.PlayerRollup;
+import com.splitmanager.models.Session;
+import com.splitmanager.models.ThreadReport;
+import com.splitmanager.persistence.SessionStore;
+import com.splitmanager.persistence.ThreadEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Recomputes the metrics of many session threads for a {@link HistoryReport}.
+ * <p>
+ * Threads are independent of each other, so the list is split in halves on a fork-join pool
+ * until each task holds a couple of threads. Every task reads and computes its threads with a
+ * split engine of its own and the per-player numbers are merged on the way back up. Threads that
+ * are loaded or waiting for the writer are handed in as copies, the others are read from storage
+ * by the task that computes them, so nothing here touches the session state of the client thread.
+ * <p>
+ * Progress is reported from the pool's threads. The report can be cancelled at any time; tasks
+ * that have not started their next thread yet then stop without computing it.
+ */
+@Slf4j
+public class HistoryReporter
+{
+	// Threads per task; reading a thread from storage costs more than splitting the list further
+	private static final int LEAF_SIZE = 2;
+
+	private final SessionStore store;
+	// Threads to report on, in report order
+	private final List<ThreadEntry> entries;
+	// Copies of threads that must not be read from the store, by mother id
+	private final Map<String, List<Session>> captured;
+	// Called with (threads done, threads in total); may be null
+	private final BiConsumer<Integer, Integer> progress;
+	private final AtomicInteger done = new AtomicInteger();
+	private final CompletableFuture<HistoryReport> result = new CompletableFuture<>();
+
+	/**
+	 * @param entries  threads to report on, in report order
+	 * @param captured copies of threads whose stored value is outdated or missing, by mother id
+	 * @param progress called with the number of threads done and the total after every thread; may be null
+	 */
+	public HistoryReporter(SessionStore store, List<ThreadEntry> entries, Map<String, List<Session>> captured,
+						   BiConsumer<Integer, Integer> progress)
+	{
+		this.store = store;
+		this.entries = entries;
+		this.captured = captured;
+		this.progress = progress;
+	}
+
+	/**
+	 * Start the recomputation on the given pool.
+	 *
+	 * @return future completed with the report, or cancelled by {@link #cancel()}
+	 */
+	public CompletableFuture<HistoryReport> start(ForkJoinPool pool)
+	{
+		pool.execute(() ->
+		{
+			try
+			{
+				Part all = new Slice(0, entries.size()).invoke();
+				if (all != null)
+				{
+					result.complete(all.toReport());
+				}
+			}
+			catch (RuntimeException e)
+			{
+				log.warn("Unable to build the history report", e);
+				result.completeExceptionally(e);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Stop the recomputation. The future is cancelled right away; the threads that are being
+	 * computed at this moment are finished and then dropped.
+	 */
+	public void cancel()
+	{
+		result.cancel(false);
+	}
+
+	/**
+	 * @return future of the report, see {@link #start(ForkJoinPool)}
+	 */
+	public CompletableFuture<HistoryReport> getResult()
+	{
+		return result;
+	}
+
+	/**
+	 * @return number of threads computed so far
+	 */
+	public int getDone()
+	{
+		return done.get();
+	}
+
+	/**
+	 * @return number of threads to compute
+	 */
+	public int getTotal()
+	{
+		return entries.size();
+	}
+
+	private ThreadReport computeThread(ThreadEntry entry, Map<String, PlayerRollup> players)
+	{
+		List<Session> thread = captured.get(entry.getMotherId());
+		if (thread == null)
+		{
+			thread = store.readThread(entry.getMotherId());
+		}
+		if (thread.isEmpty())
+		{
+			return null;
+		}
+
+		Session mother = thread.get(0);
+		List<PlayerMetrics> metrics = new SplitEngine(thread).metrics(mother, true, List.of(), 0L);
+		mergeInto(players, LifetimeRollups.rollup(thread, metrics));
+		return new ThreadReport(entry.getMotherId(), mother.getStart(), mother.getEnd(), metrics);
+	}
+
+	private static void mergeInto(Map<String, PlayerRollup> into, Map<String, PlayerRollup> from)
+	{
+		for (Map.Entry<String, PlayerRollup> e : from.entrySet())
+		{
+			PlayerRollup existing = into.putIfAbsent(e.getKey(), e.getValue());
+			if (existing != null)
+			{
+				existing.add(e.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Numbers of a range of threads: the reports in their slots of the full list, and the merged
+	 * per-player rollups by player key.
+	 */
+	private final class Part
+	{
+		private final ThreadReport[] threads;
+		private final Map<String, PlayerRollup> players = new LinkedHashMap<>();
+
+		private Part(ThreadReport[] threads)
+		{
+			this.threads = threads;
+		}
+
+		private Part merge(Part other)
+		{
+			mergeInto(players, other.players);
+			return this;
+		}
+
+		private HistoryReport toReport()
+		{
+			List<ThreadReport> reports = new ArrayList<>(threads.length);
+			Arrays.stream(threads).filter(Objects::nonNull).forEach(reports::add);
+			List<PlayerRollup> rollups = new ArrayList<>(players.values());
+			rollups.sort(Comparator.comparingLong(PlayerRollup::getNet).reversed());
+			return new HistoryReport(reports, rollups);
+		}
+	}
+
+	/**
+	 * Computes the threads from lo (inclusive) to hi (exclusive); null once the report is cancelled.
+	 */
+	@SuppressWarnings("serial")
+	private final class Slice extends RecursiveTask<Part>
+	{
+		private final int lo;
+		private final int hi;
+		// Shared by all slices of one run, each slice writes only its own range
+		private final ThreadReport[] slots;
+
+		private Slice(int lo, int hi)
+		{
+			this(lo, hi, new ThreadReport[hi - lo]);
+		}
+
+		private Slice(int lo, int hi, ThreadReport[] slots)
+		{
+			this.lo = lo;
+			this.hi = hi;
+			this.slots = slots;
+		}
+
+		@Override
+		protected Part compute()
+		{
+			if (hi - lo <= LEAF_SIZE)
+			{
+				Part part = new Part(slots);
+				for (int i = lo; i < hi; i++)
+				{
+					if (result.isDone())
+					{
+						return null;
+					}
+					slots[i] = computeThread(entries.get(i), part.players);
+					int n = done.incrementAndGet();
+					if (progress != null)
+					{
+						progress.accept(n, entries.size());
+					}
+				}
+				return part;
+			}
+
+			int mid = (lo + hi) >>> 1;
+			Slice left = new Slice(lo, mid, slots);
+			left.fork();
+			Part right = new Slice(mid, hi, slots).compute();
+			Part leftPart = left.join();
+			if (leftPart == null || right == null)
+			{
+				return null;
+			}
+			return leftPart.merge(right);
+		}
+	}
+}
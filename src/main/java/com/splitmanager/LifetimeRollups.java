@@ -0,0 +1,221 @@
+package com.splitmanager;
+
+import com.splitmanager.models.PlayerMetrics;
+import com.splitmanager.models.PlayerRollup;
+import com.splitmanager.models.Session;
+import com.splitmanager.persistence.LifetimeSnapshot;
+import com.splitmanager.utils.PlayerKey;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lifetime per-player numbers over every finished session thread: total loot, net settlement and
+ * the number of threads attended.
+ * <p>
+ * A thread is folded in once, when it is stopped, so the lifetime view never has to visit old
+ * threads. The mother ids of the folded threads are kept with the numbers, which makes folding
+ * idempotent and lets a background catch-up fold in threads that are missing, e.g. when the stored
+ * rollups were lost. An edited thread has its old share replaced by its new one, see
+ * {@link #replaceThread}. Players are matched by {@link PlayerKey}.
+ * <p>
+ * The catch-up runs on the executor, so every method is synchronized.
+ */
+public class LifetimeRollups
+{
+	// Mother ids of the threads folded in
+	private final Set<String> threads = new LinkedHashSet<>();
+	// Rollups by player key
+	private final Map<String, PlayerRollup> players = new LinkedHashMap<>();
+	// Bumped by clear(), so a catch-up started before it cannot fold in outdated threads
+	private long generation;
+
+	/**
+	 * @return true if the thread has been folded in already
+	 */
+	public synchronized boolean contains(String motherId)
+	{
+		return threads.contains(motherId);
+	}
+
+	/**
+	 * Fold a finished thread into the rollups, unless it is folded in already.
+	 *
+	 * @param motherId id of the thread's mother session
+	 * @param thread   sessions of the thread, mother first
+	 * @return true if the rollups changed
+	 */
+	public boolean addThread(String motherId, List<Session> thread)
+	{
+		return addThread(motherId, thread, getGeneration());
+	}
+
+	/**
+	 * Fold a finished thread into the rollups, unless it is folded in already or the rollups
+	 * were cleared since the given generation was read.
+	 *
+	 * @return true if the rollups changed
+	 */
+	public boolean addThread(String motherId, List<Session> thread, long expectedGeneration)
+	{
+		if (thread.isEmpty() || contains(motherId))
+		{
+			return false;
+		}
+		// Computed outside the lock, the thread is not shared with other callers
+		Map<String, PlayerRollup> rolled = rollup(thread, new SplitEngine(thread).metrics(thread.get(0), true, List.of(), 0L));
+
+		synchronized (this)
+		{
+			if (generation != expectedGeneration || !threads.add(motherId))
+			{
+				return false;
+			}
+			for (Map.Entry<String, PlayerRollup> e : rolled.entrySet())
+			{
+				rollupOf(e.getKey(), e.getValue().getPlayer()).add(e.getValue());
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Replace the share of a thread that is folded in already, after it was edited.
+	 *
+	 * @param motherId id of the thread's mother session
+	 * @param before   the thread's share as it was folded in, see {@link #rollup}
+	 * @param after    the thread's share now
+	 * @return true if the rollups changed, false if the thread is not folded in
+	 */
+	public synchronized boolean replaceThread(String motherId, Map<String, PlayerRollup> before, Map<String, PlayerRollup> after)
+	{
+		if (!threads.contains(motherId))
+		{
+			return false;
+		}
+		for (Map.Entry<String, PlayerRollup> e : before.entrySet())
+		{
+			PlayerRollup r = players.get(e.getKey());
+			if (r != null)
+			{
+				r.subtract(e.getValue());
+				if (r.isEmpty())
+				{
+					players.remove(e.getKey());
+				}
+			}
+		}
+		for (Map.Entry<String, PlayerRollup> e : after.entrySet())
+		{
+			rollupOf(e.getKey(), e.getValue().getPlayer()).add(e.getValue());
+		}
+		return true;
+	}
+
+	/**
+	 * Numbers of one thread per player, as they are folded into the rollups.
+	 *
+	 * @param thread  sessions of the thread, mother first
+	 * @param metrics the thread's metrics with non-active players included
+	 * @return rollups of the thread by player key
+	 */
+	public static Map<String, PlayerRollup> rollup(List<Session> thread, List<PlayerMetrics> metrics)
+	{
+		Map<String, String> attended = new LinkedHashMap<>();
+		for (Session s : thread)
+		{
+			for (String p : s.getPlayers())
+			{
+				attended.putIfAbsent(PlayerKey.of(p), p);
+			}
+		}
+
+		Map<String, PlayerRollup> out = new LinkedHashMap<>();
+		for (PlayerMetrics pm : metrics)
+		{
+			String key = PlayerKey.of(pm.player);
+			out.computeIfAbsent(key, k -> new PlayerRollup(pm.player)).add(pm.total, pm.split, attended.remove(key) != null);
+		}
+		// On the roster without any loot or split still counts as attended
+		for (Map.Entry<String, String> e : attended.entrySet())
+		{
+			out.computeIfAbsent(e.getKey(), k -> new PlayerRollup(e.getValue())).add(0L, 0L, true);
+		}
+		return out;
+	}
+
+	/**
+	 * @return copies of the rollups, highest net first
+	 */
+	public synchronized List<PlayerRollup> getPlayers()
+	{
+		List<PlayerRollup> out = new ArrayList<>(players.size());
+		for (PlayerRollup r : players.values())
+		{
+			out.add(r.copy());
+		}
+		out.sort(Comparator.comparingLong(PlayerRollup::getNet).reversed());
+		return out;
+	}
+
+	/**
+	 * @return number of threads folded in
+	 */
+	public synchronized int getThreadCount()
+	{
+		return threads.size();
+	}
+
+	/**
+	 * @return current generation, see {@link #addThread(String, List, long)}
+	 */
+	public synchronized long getGeneration()
+	{
+		return generation;
+	}
+
+	/**
+	 * Forget everything, e.g. before a rebuild.
+	 */
+	public synchronized void clear()
+	{
+		generation++;
+		threads.clear();
+		players.clear();
+	}
+
+	/**
+	 * @return copy of the rollups for the background writer
+	 */
+	public synchronized LifetimeSnapshot snapshot()
+	{
+		List<PlayerRollup> copies = new ArrayList<>(players.size());
+		for (PlayerRollup r : players.values())
+		{
+			copies.add(r.copy());
+		}
+		return new LifetimeSnapshot(new ArrayList<>(threads), copies);
+	}
+
+	/**
+	 * Replace the rollups with stored ones.
+	 */
+	public synchronized void restore(LifetimeSnapshot snapshot)
+	{
+		clear();
+		threads.addAll(snapshot.getThreads());
+		for (PlayerRollup r : snapshot.getPlayers())
+		{
+			players.putIfAbsent(PlayerKey.of(r.getPlayer()), r.copy());
+		}
+	}
+
+	private PlayerRollup rollupOf(String key, String player)
+	{
+		return players.computeIfAbsent(key, k -> new PlayerRollup(player));
+	}
+}
@@ -34,6 +34,12 @@ public class ManagerKnownPlayers
 	private Set<String> knownPlayers = new LinkedHashSet<>();
 	@Getter
 	private Map<String, String> altMainMapping = new LinkedHashMap<>();
+	/**
+	 * Bumped whenever the known players or alt links are loaded or saved, so cached results
+	 * that list known players can tell they are outdated.
+	 */
+	@Getter
+	private long version;
 
 	@Inject
 	public ManagerKnownPlayers(PluginConfig config, Gson gson)
@@ -47,6 +53,7 @@ public class ManagerKnownPlayers
 
 	public void loadFromConfig()
 	{
+		version++;
 		knownPlayers.clear();
 		String csv = config.knownPlayersCsv();
 		if (csv != null && !csv.isEmpty())
@@ -84,6 +91,7 @@ public class ManagerKnownPlayers
 
 	public void saveToConfig()
 	{
+		version++;
 		config.knownPlayersCsv(String.join(",", knownPlayers));
 		try
 		{
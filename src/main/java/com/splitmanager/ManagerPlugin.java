@@ -7,9 +7,12 @@ import com.splitmanager.utils.ChatStatusOverlay;
 import com.splitmanager.utils.Formats;
 import com.splitmanager.views.PanelView;
 import java.awt.image.BufferedImage;
-import java.text.ParseException;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.inject.Inject;
+import javax.swing.SwingUtilities;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.ChatMessageType;
@@ -25,6 +28,8 @@ import net.runelite.api.events.MenuEntryAdded;
 import net.runelite.api.events.WorldChanged;
 import net.runelite.api.gameval.InterfaceID;
 import net.runelite.api.widgets.WidgetUtil;
+import net.runelite.client.chat.ChatMessageManager;
+import net.runelite.client.chat.QueuedMessage;
 import net.runelite.client.config.ConfigManager;
 import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.events.ConfigChanged;
@@ -54,6 +59,8 @@ public class ManagerPlugin extends Plugin
 	@Inject
 	private Client client;
 	@Inject
+	private ChatMessageManager chatMessageManager;
+	@Inject
 	private ClientToolbar clientToolbar;
 	@Getter
 	@Inject
@@ -69,6 +76,11 @@ public class ManagerPlugin extends Plugin
 	@Inject
 	private ManagerKnownPlayers playerManager;
 	private PanelView view;
+	// Runs value detection off the client thread; its detector is replaced when a detection key changes
+	@Getter
+	private ChatIngestQueue chatIngest;
+	// Detection's own thread, so chat bursts and the client executor's saves and exports never wait on each other
+	private ExecutorService chatExecutor;
 
 	@Override
 	/**
@@ -81,6 +93,14 @@ public class ManagerPlugin extends Plugin
 		config.directPayments(false);
 
 		Formats.setConfig(config);
+		chatExecutor = Executors.newSingleThreadExecutor(r ->
+		{
+			Thread t = new Thread(r, "split-manager-chat");
+			t.setDaemon(true);
+			return t;
+		});
+		chatIngest = new ChatIngestQueue(chatExecutor, ChatDetector.fromConfig(config),
+			values -> SwingUtilities.invokeLater(() -> queuePending(values)));
 		playerManager.init();
 		sessionManager.init();
 		panelManager.init();
@@ -111,9 +131,20 @@ public class ManagerPlugin extends Plugin
 			clientToolbar.removeNavigation(navButton);
 			navButton = null;
 		}
+		if (chatIngest != null)
+		{
+			chatIngest.close();
+			log.info("Chat ingestion stats: {}", chatIngest);
+			chatIngest = null;
+		}
+		if (chatExecutor != null)
+		{
+			chatExecutor.shutdownNow();
+			chatExecutor = null;
+		}
 		if (sessionManager != null)
 		{
-			sessionManager.saveToConfig();
+			sessionManager.shutdown();
 		}
 
 		if (chatOverlay != null)
@@ -165,9 +196,25 @@ public class ManagerPlugin extends Plugin
 		{
 			return;
 		}
-
 		switch (e.getKey())
 		{
+			case "enableChatDetection":
+			case "detectInClanChat":
+			case "detectInFriendsChat":
+			case "detectPvmValues":
+			case "detectPvpValues":
+			case "detectPlayerValues":
+			case "defaultValueMultiplier":
+			case "detectionRules":
+				if (chatIngest != null)
+				{
+					chatIngest.setDetector(ChatDetector.fromConfig(config));
+				}
+				if ("detectionRules".equals(e.getKey()))
+				{
+					reportRuleErrors();
+				}
+				break;
 			case "directPayments":
 				log.info("Direct payments changed, refreshing panel");
 				restartViewFix();
@@ -177,8 +224,33 @@ public class ManagerPlugin extends Plugin
 				break;
 			case "enablePopout":
 			case "enableTour":
+			case "showRates":
 				restartViewFix();
 				break;
+			case "retentionMaxThreads":
+			case "retentionMaxAgeDays":
+				// The snapshot moves threads past the new limits to the archive; sessions belong to the EDT
+				SwingUtilities.invokeLater(() ->
+				{
+					sessionManager.saveToConfig();
+					panelManager.refreshAllView();
+				});
+				break;
+		}
+	}
+
+	/**
+	 * Tell the user in chat which detection rules are ignored and why, as they are not checked
+	 * while typing them.
+	 */
+	private void reportRuleErrors()
+	{
+		for (String error : DetectionRules.compile(config.detectionRules()).getErrors())
+		{
+			chatMessageManager.queue(QueuedMessage.builder()
+				.type(ChatMessageType.CONSOLE)
+				.value("Split Manager: detection rule ignored, " + error)
+				.build());
 		}
 	}
 
@@ -200,157 +272,56 @@ public class ManagerPlugin extends Plugin
 	}
 
 	/**
-	 * Parse chat messages to detect values and enqueue PendingValue suggestions.
+	 * Hand chat messages to value detection, which enqueues PendingValue suggestions in batches.
 	 *
 	 * @param event chat message event
-	 * @throws ParseException when number parsing fails
 	 */
 	@Subscribe
-	public void onChatMessage(ChatMessage event) throws ParseException
+	public void onChatMessage(ChatMessage event)
 	{
-
-		// Disabled for now, this should be covered by other checks
-		if (CheckChatJoinLeave(event))
-		{
-			return;
-		}
-
-		if (!config.enableChatDetection())
-		{
-			return;
-		}
-
-		Formats.OsrsAmountFormatter f = new Formats.OsrsAmountFormatter();
-		ChatMessageType type = event.getType();
-		String tname = type.name();
-
-		boolean isClan = tname.contains("CLAN");
-		boolean isFriends = tname.contains("FRIEND");
-
-		if (isClan && !config.detectInClanChat())
-		{
-			return;
-		}
-		if (isFriends && !config.detectInFriendsChat())
-		{
-			return;
-		}
-		if (!isClan && !isFriends)
-		{
-			return;
-		}
-
-		String msg = event.getMessage();
-
-		// Try parse PvM drop
-		if (config.detectPvmValues())
-		{
-			java.util.regex.Matcher m = java.util.regex.Pattern.compile("^(.+?) received a drop: .*?\\((\\d[\\d,]*) coins\\)").matcher(msg);
-			if (m.find())
-			{
-				String player = m.group(1);
-				Long value = (Long) f.stringToValue(m.group(2) + " coins");
-				queuePending(PendingValue.Type.PVM, isClan ? "Clan" : "Friends", msg, value, player);
-				return;
-			}
-		}
-
-		// Try parse PvP loot
-		if (config.detectPvpValues())
+		ChatDetector.ChannelEvent channel = ChatDetector.channelEvent(systemMessage(event));
+		if (channel != null)
 		{
-			java.util.regex.Matcher m = java.util.regex.Pattern.compile("^(.+?) has defeated (.+?) and received \\((\\d[\\d,]*) coins\\) worth of loot!").matcher(msg);
-			if (m.find())
+			updateChatWarningStatus();
+			if (channel == ChatDetector.ChannelEvent.LEFT)
 			{
-				String player = m.group(1);
-				Long value = (Long) f.stringToValue(m.group(3) + " coins");
-				queuePending(PendingValue.Type.PVP, isClan ? "Clan" : "Friends", msg, value, player);
 				return;
 			}
 		}
 
-		// Try parse player !add value
-		//TODO fix negative numbers
-		if (config.detectPlayerValues())
+		// Detected off the client thread; the values come back in batches through queuePending()
+		if (chatIngest != null)
 		{
-			// Pattern to match a single value with k, m, or b unit only
-			String valuePattern = "([0-9][0-9,]*(?:\\.[0-9]+)?)\\s*([kmb])?";
-
-			// Pattern to match one or more values separated by spaces or commas
-			java.util.regex.Pattern multiValuePattern = java.util.regex.Pattern
-				.compile("(?i)!add\\s+(" + valuePattern + "(\\s*,?\\s*" + valuePattern + ")*)");
-
-			java.util.regex.Matcher multiMatcher = multiValuePattern.matcher(msg);
-
-			if (multiMatcher.find())
-			{
-				String sender = event.getName();
-				String who = sender.replaceAll("<[^>]*>", "");
-				String valuesText = multiMatcher.group(1);
-				String[] valueStrings = valuesText.split("\\s*,\\s*|\\s+");
-
-				for (String valueString : valueStrings)
-				{
-					java.util.regex.Matcher singleValueMatcher = java.util.regex.Pattern
-						.compile("(?i)(" + valuePattern + ")")
-						.matcher(valueString);
-
-					if (singleValueMatcher.find())
-					{
-						String numberTxt = singleValueMatcher.group(2);
-						String unitTxt = singleValueMatcher.group(3);
-						if (unitTxt == null)
-						{
-							unitTxt = config.defaultValueMultiplier().getValue();
-						}
-
-						// Combine the number and unit for parsing
-						String fullValueText = numberTxt + (unitTxt != null ? unitTxt : "");
-
-						try
-						{
-							Long value = (Long) f.stringToValue(fullValueText);
-							queuePending(PendingValue.Type.ADD, isClan ? "Clan" : "Friends",
-								"!add " + fullValueText, value, who);
-						}
-						catch (ParseException e)
-						{
-							// Skip invalid values
-							log.debug("Failed to parse value: " + fullValueText, e);
-						}
-					}
-				}
-			}
+			chatIngest.offer(event.getType(), event.getName(), event.getMessage());
 		}
 	}
 
 
 	/**
-	 * Enqueue a pending value suggestion for user approval.
+	 * Enqueue pending value suggestions for user approval. Runs on the EDT with the values
+	 * detected in a batch of chat messages, so the panel is refreshed once per batch.
 	 *
-	 * @param type            source type (PvM, PvP, player add)
-	 * @param source          chat source label
-	 * @param msg             original chat message
-	 * @param value           numeric value (coins or K)
-	 * @param suggestedPlayer prefilled player name when available
+	 * @param values detected values, each with its source, message and suggested player
 	 */
-	private void queuePending(PendingValue.Type type, String source, String msg, Long value, String suggestedPlayer)
+	private void queuePending(List<PendingValue> values)
 	{
 		if (sessionManager == null)
 		{
 			return;
 		}
-		PendingValue pv = PendingValue.of(type, source, msg, value, suggestedPlayer);
-		sessionManager.addPendingValue(pv);
+		for (PendingValue pv : values)
+		{
+			sessionManager.addPendingValue(pv);
+		}
 
 		panelManager.refreshAllView();
 	}
 
-	private boolean CheckChatJoinLeave(ChatMessage event)
+	/**
+	 * @return the message without tags if it can announce a chat channel change, null otherwise
+	 */
+	private static String systemMessage(ChatMessage event)
 	{
-
-		String plain = Text.removeTags(event.getMessage()).trim();
-		String lower = plain.toLowerCase();
-
 		ChatMessageType t = event.getType();
 		boolean isSystemish = t == ChatMessageType.GAMEMESSAGE
 			|| t == ChatMessageType.CLAN_MESSAGE
@@ -360,33 +331,23 @@ public class ManagerPlugin extends Plugin
 
 		if (!isSystemish)
 		{
-			return false;
-		}
-
-		//LEAVE/KICK Chat
-		if (java.util.regex.Pattern
-			.compile("(?i)^\\s*(?:you\\s+(?:have\\s+)?left\\s+(?:the\\s+)?(?:chat-)?channel\\.?|you\\s+(?:are|aren't|are\\s+not)\\s+currently\\s+in\\s+(?:a|the|your)\\s+(?:chat-)?channel\\.?|you\\s+have\\s+been\\s+kicked\\s+from\\s+the\\s+channel\\.?)\\s*$")
-			.matcher(plain)
-			.find())
-		{
-			updateChatWarningStatus();
-			return true;
+			return null;
 		}
+		return Text.removeTags(event.getMessage()).trim();
+	}
 
 
-		//JOIN Chat
-		if (java.util.regex.Pattern
-			.compile("(?i)^\\s*now\\s+talking\\s+in\\s+(?:the\\s+)?(?:chat-)?channel\\.?\\s*$")
-			.matcher(plain)
-			.find())
+	/**
+	 * Called from the background executor once the lifetime rollups have been caught up.
+	 */
+	public void lifetimeUpdated()
+	{
+		if (panelManager != null)
 		{
-			updateChatWarningStatus();
-			return false;
+			SwingUtilities.invokeLater(panelManager::refreshAllView);
 		}
-		return false;
 	}
 
-
 	/**
 	 * Recompute overlay purely from member lists (no timers, no message heuristics).
 	 */
@@ -4,13 +4,37 @@ import com.google.gson.Gson;
 import com.splitmanager.models.Kill;
 import com.splitmanager.models.PendingValue;
 import com.splitmanager.models.PlayerMetrics;
+import com.splitmanager.models.PlayerRollup;
+import com.splitmanager.models.SegmentMetrics;
 import com.splitmanager.models.Session;
+import com.splitmanager.models.SessionHeader;
+import com.splitmanager.models.Transfer;
+import com.splitmanager.persistence.ArchiveInfo;
+import com.splitmanager.persistence.JournalEntry;
+import com.splitmanager.persistence.LifetimeSnapshot;
+import com.splitmanager.persistence.PersistenceWriter;
+import com.splitmanager.persistence.SessionExporter;
+import com.splitmanager.persistence.SessionJournal;
+import com.splitmanager.persistence.SessionStore;
+import com.splitmanager.persistence.ThreadEntry;
+import com.splitmanager.persistence.ThreadSnapshot;
 import com.splitmanager.utils.InstantTypeAdapter;
 import com.splitmanager.views.PanelView;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -19,140 +43,1026 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.swing.JOptionPane;
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.config.ConfigManager;
 
 /**
  * Manages sessions, persistence, and all the logic for roster changes,
  * child sessions, and live split calculations.
  */
+@Slf4j
 @Singleton
 public class ManagerSession
 {
+	// Cache of the last finished threads opened from history, frozen; least recently opened are
+	// dropped first and none survive a restart. Opening one still thaws it into full sessions and
+	// kills and only skips storage, so it pays off only for the few threads flipped between
+	private static final int FROZEN_THREADS = 4;
+
 	private final Gson gson;
 	private final Map<String, Session> sessions = new LinkedHashMap<>();
+	// Loaded sessions by mother id: the mother first, then its children in the order they were started
+	private final Map<String, List<Session>> threadIndex = new LinkedHashMap<>();
 	private final List<PendingValue> pendingValues = new ArrayList<>();
 	private final ManagerKnownPlayers playerManager;
 	private final PluginConfig config;
+	// Append-only log of mutations since the last snapshot, replayed on load
+	private final SessionJournal journal;
+	// Coalesces persistence requests and writes them off the client thread
+	private final PersistenceWriter writer;
+	// Per-thread storage of sessions plus the manifest of stored threads
+	private final SessionStore store;
+	// Client executor, shared with the writer; also runs file exports
+	private final ScheduledExecutorService executor;
+	// Manifest of every stored thread by mother id; only active threads are loaded into sessions
+	private final Map<String, ThreadEntry> threads = new LinkedHashMap<>();
+	// Threads moved out of the manifest by the retention policy, by mother id; null until first needed
+	private Map<String, ThreadEntry> archivedThreads;
+	// The archive index changed since the last snapshot
+	private boolean archiveIndexDirty;
+	// Threads changed since the last snapshot
+	private final Set<String> dirtyThreads = new LinkedHashSet<>();
+	// Thread copies taken by saveToConfig() that still have to be serialized by the writer, guarded by itself
+	private final Map<String, Session[]> pendingThreads = new LinkedHashMap<>();
+	private ThreadEntry[] pendingManifest;
+	private ThreadEntry[] pendingArchiveIndex;
+	// Journal sequence number contained in the pending snapshot
+	private long pendingSeq;
+	private boolean pendingLegacyClear;
+	// Archive blocks written by the writer whose metadata still has to be copied into the manifest
+	private final Map<String, ArchiveInfo> archivedBlocks = new ConcurrentHashMap<>();
 	// Cache of all kills grouped by mother session id to avoid recomputing on every UI refresh
 	private final Map<String, List<Kill>> motherKillsCache = new LinkedHashMap<>();
+	// Running split state per mother session id, built on first read and then updated per mutation
+	private final Map<String, SplitEngine> splitEngines = new LinkedHashMap<>();
+	// Finished threads in compact form by mother id, so opening them from history skips storage
+	private final Map<String, FrozenThread> frozenThreads = new LinkedHashMap<>(16, 0.75f, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, FrozenThread> eldest)
+		{
+			return size() > FROZEN_THREADS;
+		}
+	};
+	// Lifetime per-player numbers of every finished thread
+	private final LifetimeRollups lifetime = new LifetimeRollups();
+	// Share in the rollups of every loaded thread that is folded in, by mother id, so an edit only re-folds that thread
+	private final Map<String, Map<String, PlayerRollup>> lifetimeShares = new HashMap<>();
+	// The rollups changed since the last snapshot
+	private boolean lifetimeDirty;
+	// Rollups copy that still has to be written, guarded by pendingThreads
+	private LifetimeSnapshot pendingLifetime;
+	/**
+	 * True while the lifetime rollups are being caught up in the background.
+	 */
+	@Getter
+	private volatile boolean lifetimeUpdating;
+	// Runs history reports; created on the first report, one worker is left for the client
+	private ForkJoinPool reportPool;
 	private String currentSessionId;
 	private ManagerPlugin pluginManager;
-	// TODO implement in newer versions
 	@Getter
 	private boolean historyLoaded;
+	// Session opened by loadHistory(); its thread is dropped from memory again on unloadHistory()
+	private String historySessionId;
+
+	/**
+	 * Construct a new ManagerSession bound to the given PluginConfig.
+	 * This instance owns all in-memory session state and persists it via the config.
+	 *
+	 * @param config        backing configuration/store used to load and save state
+	 * @param configManager  used to store each session thread under its own key
+	 * @param executor       client executor used for background persistence
+	 */
+	@Inject
+	public ManagerSession(PluginConfig config, ManagerKnownPlayers playerManager, ManagerPlugin pluginManager, Gson gson,
+						  ConfigManager configManager, ScheduledExecutorService executor)
+	{
+		this.config = config;
+		this.playerManager = playerManager;
+		// Use injected client's Gson, customize via newBuilder per guidelines
+		this.gson = gson.newBuilder()
+			.registerTypeAdapter(Instant.class, new InstantTypeAdapter())
+			.create();
+		this.journal = new SessionJournal(config, this.gson);
+		this.store = new SessionStore(config, configManager, this.gson);
+		this.writer = new PersistenceWriter(executor, this::writePending);
+		this.executor = executor;
+		this.pluginManager = pluginManager;
+	}
+
+	/**
+	 * Utility: convert null to empty string for config storage.
+	 */
+	private static String nullToEmpty(String s)
+	{
+		return s == null ? "" : s;
+	}
+
+	/**
+	 * Utility: convert empty string to null when reading config values.
+	 */
+	private static String emptyToNull(String s)
+	{
+		return s == null || s.isEmpty() ? null : s;
+	}
+
+	/**
+	 * Loads configuration data into the application's runtime structures.
+	 * <p>
+	 * This method performs the following operations:
+	 * <p>
+	 * 1. Clears the list of known players and repopulates it from a CSV string
+	 * retrieved from the configuration. Each player is trimmed of extraneous
+	 * whitespace before being added to the collection.
+	 * <p>
+	 * 2. Clears the mapping of alternate accounts to main accounts and repopulates
+	 * it from a JSON structure retrieved from the configuration. The JSON is
+	 * parsed into a Map using GSON. If the parsing fails or the structure is
+	 * invalid, the operation is gracefully ignored.
+	 * <p>
+	 * 3. Clears the session map and reads the thread manifest. Only threads that are still
+	 * active are loaded; stopped threads stay in storage until they are opened as history.
+	 * A history written by older versions as a single JSON array is split into threads once.
+	 * Damaged snapshots are detected by their checksum and replaced by the previous good one.
+	 * <p>
+	 * 4. Replays the valid part of the session journal on top of the loaded threads so that
+	 * mutations made since the last snapshot are restored. Entries a snapshot already contains
+	 * are skipped, so recovery only costs as much as the journal tail.
+	 * <p>
+	 * 5. Updates the current session ID and sets whether the history has been
+	 * loaded from the configuration.
+	 */
+	public void loadFromConfig()
+	{
+		long startNanos = System.nanoTime();
+		long startAllocated = allocatedBytes();
+		long startHeap = startHeapPeak();
+		sessions.clear();
+		threadIndex.clear();
+		threads.clear();
+		archivedThreads = null;
+		archiveIndexDirty = false;
+		dirtyThreads.clear();
+
+		boolean legacy = !store.hasManifest();
+		boolean migrate = legacy;
+		boolean legacyReadable = true;
+		// Journal position each loaded thread snapshot was taken at
+		Map<String, Long> snapshotSeqs = new LinkedHashMap<>();
+		if (legacy)
+		{
+			List<Session> stored = store.readLegacy();
+			legacyReadable = stored != null;
+			if (stored != null)
+			{
+				for (Session s : stored)
+				{
+					putSession(s);
+				}
+			}
+		}
+		else
+		{
+			for (ThreadEntry entry : store.readManifest())
+			{
+				threads.put(entry.getMotherId(), entry);
+				if (entry.isActive())
+				{
+					migrate |= loadThread(entry.getMotherId(), snapshotSeqs);
+				}
+				else if (entry.getSessions() == null)
+				{
+					// Manifest from before headers were stored, fill them in once
+					entry.setSessions(store.readThreadHeaders(entry.getMotherId()));
+					migrate = true;
+				}
+			}
+		}
+		journal.replay(sessions, snapshotSeqs, store.getManifestSeq());
+		// Replay adds sessions started after the snapshot straight to the map
+		rebuildThreadIndex();
+
+		// Threads started after the last snapshot only exist in the journal so far
+		for (Map.Entry<String, List<Session>> e : threadIndex.entrySet())
+		{
+			if (entryOf(e.getKey()) == null)
+			{
+				threads.put(e.getKey(), newThreadEntry(e.getKey(), e.getValue()));
+				dirtyThreads.add(e.getKey());
+			}
+		}
+
+		// Invalidate any cached mother->kills when loading fresh data
+		motherKillsCache.clear();
+		splitEngines.clear();
+		frozenThreads.clear();
+		lifetimeShares.clear();
+
+		LifetimeSnapshot rollups = store.readLifetime();
+		if (rollups != null)
+		{
+			lifetime.restore(rollups);
+		}
+		else
+		{
+			lifetime.clear();
+		}
+		lifetimeDirty = false;
+
+		currentSessionId = emptyToNull(config.currentSessionId());
+
+		historyLoaded = false;
+		historySessionId = null;
+
+		if (migrate)
+		{
+			if (legacy)
+			{
+				log.info("Moving {} sessions in {} threads to per-thread storage", sessions.size(), threads.size());
+				pendingLegacyClear = legacyReadable;
+			}
+			// The snapshot replaces the journal, so it must include everything replayed above
+			dirtyThreads.addAll(threadIndex.keySet());
+			saveToConfig();
+			// The snapshot holds everything now, keep only what is still running in memory
+			for (String motherId : new ArrayList<>(threadIndex.keySet()))
+			{
+				if (!entryOf(motherId).isActive())
+				{
+					removeThread(motherId);
+				}
+			}
+		}
+
+		// Without stored rollups every finished thread is folded in again, archived ones included
+		catchUpLifetime(rollups == null);
+
+		long allocated = allocatedBytes() - startAllocated;
+		long peakHeap = heapPeak();
+		// Allocated counts every byte the load created, garbage included; the peak is what the heap held at once
+		log.info("Loaded {} sessions of {} threads in {} ms, allocated {} KB, heap {} KB before and {} KB at peak",
+			sessions.size(), threads.size(), (System.nanoTime() - startNanos) / 1_000_000,
+			startAllocated < 0 ? "n/a" : allocated / 1024, startHeap / 1024, peakHeap < 0 ? "n/a" : peakHeap / 1024);
+	}
+
+	/**
+	 * Reset the peak usage of the heap pools so {@link #heapPeak()} covers what follows.
+	 *
+	 * @return heap in use now, in bytes
+	 */
+	private static long startHeapPeak()
+	{
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+		{
+			if (pool.getType() == MemoryType.HEAP && pool.isValid())
+			{
+				pool.resetPeakUsage();
+			}
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	/**
+	 * @return highest heap use since {@link #startHeapPeak()}, summed over the heap pools, or -1 if
+	 * the JVM does not track it; pools peak at different moments, so this is an upper bound
+	 */
+	private static long heapPeak()
+	{
+		long peak = 0L;
+		boolean any = false;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+		{
+			MemoryUsage usage = pool.getType() == MemoryType.HEAP && pool.isValid() ? pool.getPeakUsage() : null;
+			if (usage != null)
+			{
+				peak += usage.getUsed();
+				any = true;
+			}
+		}
+		return any ? peak : -1L;
+	}
+
+	/**
+	 * @return bytes allocated so far by the calling thread, or -1 if the JVM cannot tell
+	 */
+	private static long allocatedBytes()
+	{
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean)
+		{
+			com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) bean;
+			if (sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled())
+			{
+				return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1L;
+	}
+
+	/**
+	 * Read a stored thread into the session map, unless it is already loaded.
+	 * Threads still stored as JSON are marked dirty so the next snapshot re-encodes them.
+	 *
+	 * @param motherId     id of the thread's mother session
+	 * @param snapshotSeqs receives the journal position the thread's snapshot was taken at
+	 * @return true if the thread was stored in an older format and a snapshot should be taken
+	 */
+	private boolean loadThread(String motherId, Map<String, Long> snapshotSeqs)
+	{
+		if (threadIndex.containsKey(motherId))
+		{
+			return false;
+		}
+		boolean upgrade = store.needsUpgrade(motherId);
+		ThreadSnapshot snapshot = store.readThreadSnapshot(motherId);
+		snapshotSeqs.put(motherId, snapshot.getSeq());
+		for (Session s : snapshot.getSessions())
+		{
+			putSession(s);
+		}
+		if (upgrade)
+		{
+			dirtyThreads.add(motherId);
+		}
+		return upgrade;
+	}
+
+	/**
+	 * Add a session to the map and the thread index, unless a session with its id is loaded already.
+	 */
+	private void putSession(Session s)
+	{
+		if (sessions.putIfAbsent(s.getId(), s) == null)
+		{
+			indexSession(s);
+		}
+	}
+
+	private void indexSession(Session s)
+	{
+		List<Session> thread = threadIndex.computeIfAbsent(motherIdOf(s), k -> new ArrayList<>());
+		if (s.getMotherId() == null)
+		{
+			thread.add(0, s);
+		}
+		else
+		{
+			thread.add(s);
+		}
+	}
+
+	private void rebuildThreadIndex()
+	{
+		threadIndex.clear();
+		for (Session s : sessions.values())
+		{
+			indexSession(s);
+		}
+	}
+
+	/**
+	 * Drop a loaded thread from memory together with everything cached for it.
+	 */
+	private void removeThread(String motherId)
+	{
+		List<Session> thread = threadIndex.remove(motherId);
+		if (thread != null)
+		{
+			for (Session s : thread)
+			{
+				sessions.remove(s.getId());
+			}
+		}
+		motherKillsCache.remove(motherId);
+		splitEngines.remove(motherId);
+		lifetimeShares.remove(motherId);
+	}
+
+	/**
+	 * @return loaded sessions of a thread, mother first; empty if the thread is not loaded
+	 */
+	private List<Session> threadOf(String motherId)
+	{
+		return threadIndex.getOrDefault(motherId, List.of());
+	}
+
+	private static ThreadEntry newThreadEntry(String motherId, List<Session> thread)
+	{
+		Session mother = thread.stream().filter(s -> motherId.equals(s.getId())).findFirst().orElse(thread.get(0));
+		return new ThreadEntry(motherId, mother.getStart(), mother.getEnd(), headersOf(thread));
+	}
+
+	private static List<SessionHeader> headersOf(List<Session> thread)
+	{
+		List<SessionHeader> headers = new ArrayList<>(thread.size());
+		for (Session s : thread)
+		{
+			headers.add(s.getMotherId() == null ? SessionHeader.ofThread(s, thread) : SessionHeader.of(s));
+		}
+		return headers;
+	}
+
+	private static String motherIdOf(Session s)
+	{
+		return s.getMotherId() == null ? s.getId() : s.getMotherId();
+	}
+
+	/**
+	 * Take a snapshot of every thread changed since the last one, plus the manifest, and clear
+	 * the journal, since the snapshot now contains every recorded mutation. Unchanged threads are
+	 * not rewritten. Only the copies are made here; serializing and storing them happens on the
+	 * background writer. Regular mutations go through {@link #persist} instead.
+	 */
+	public void saveToConfig()
+	{
+		for (String motherId : new ArrayList<>(archivedBlocks.keySet()))
+		{
+			ThreadEntry entry = entryOf(motherId);
+			ArchiveInfo info = archivedBlocks.remove(motherId);
+			if (entry != null && !dirtyThreads.contains(motherId))
+			{
+				entry.setArchive(info);
+				archiveIndexDirty |= !threads.containsKey(motherId);
+			}
+		}
+
+		Map<String, List<Session>> byThread = threadIndex;
+		for (String motherId : dirtyThreads)
+		{
+			ThreadEntry entry = entryOf(motherId);
+			List<Session> thread = byThread.get(motherId);
+			if (entry != null && thread != null)
+			{
+				entry.setSessions(headersOf(thread));
+				// Rewritten below; finished threads get a fresh archive block from the writer
+				entry.setArchive(null);
+				archiveIndexDirty |= !threads.containsKey(motherId);
+			}
+		}
+		applyRetention();
+		ThreadEntry[] manifest = copyEntries(threads.values());
+		ThreadEntry[] archiveIndex = archiveIndexDirty ? copyEntries(archivedThreads().values()) : null;
+		archiveIndexDirty = false;
+
+		synchronized (pendingThreads)
+		{
+			for (String motherId : dirtyThreads)
+			{
+				List<Session> thread = byThread.get(motherId);
+				if (thread == null)
+				{
+					continue;
+				}
+				Session[] arr = new Session[thread.size()];
+				for (int j = 0; j < arr.length; j++)
+				{
+					arr[j] = thread.get(j).copy();
+				}
+				pendingThreads.put(motherId, arr);
+			}
+			pendingManifest = manifest;
+			if (archiveIndex != null)
+			{
+				pendingArchiveIndex = archiveIndex;
+			}
+			// While a catch-up runs the rollups are incomplete; it writes them itself when done
+			if (lifetimeDirty && !lifetimeUpdating)
+			{
+				pendingLifetime = lifetime.snapshot();
+				lifetimeDirty = false;
+			}
+			pendingSeq = journal.lastSeq();
+		}
+		dirtyThreads.clear();
+		journal.clear();
+		config.currentSessionId(nullToEmpty(currentSessionId));
+		writer.markDirty();
+	}
+
+	private static ThreadEntry[] copyEntries(Collection<ThreadEntry> entries)
+	{
+		ThreadEntry[] copies = new ThreadEntry[entries.size()];
+		int i = 0;
+		for (ThreadEntry entry : entries)
+		{
+			copies[i++] = entry.copy();
+		}
+		return copies;
+	}
+
+	/**
+	 * Move finished threads past the retention limits from the manifest to the archive index,
+	 * oldest first. Their stored values are left for the writer, which compacts them into shared
+	 * blocks; they can still be opened as history and exported, but startup, the history list and
+	 * every snapshot only deal with recent threads.
+	 */
+	private void applyRetention()
+	{
+		int maxThreads = config.retentionMaxThreads();
+		int maxAgeDays = config.retentionMaxAgeDays();
+		Instant cutoff = maxAgeDays > 0 ? Instant.now().minus(Duration.ofDays(maxAgeDays)) : null;
+		int excess = maxThreads > 0 ? threads.size() - maxThreads : 0;
+		if (excess <= 0 && cutoff == null)
+		{
+			return;
+		}
+
+		List<ThreadEntry> finished = new ArrayList<>();
+		for (ThreadEntry entry : threads.values())
+		{
+			if (!entry.isActive())
+			{
+				finished.add(entry);
+			}
+		}
+		finished.sort(Comparator.comparing(ThreadEntry::getStart, Comparator.nullsFirst(Comparator.naturalOrder())));
+		for (ThreadEntry entry : finished)
+		{
+			boolean tooOld = cutoff != null && entry.getEnd().isBefore(cutoff);
+			if (excess <= 0 && !tooOld)
+			{
+				continue;
+			}
+			threads.remove(entry.getMotherId());
+			archivedThreads().put(entry.getMotherId(), entry);
+			archiveIndexDirty = true;
+			excess--;
+		}
+	}
+
+	/**
+	 * @return threads moved out of the manifest by the retention policy, read on first use
+	 */
+	private Map<String, ThreadEntry> archivedThreads()
+	{
+		if (archivedThreads == null)
+		{
+			archivedThreads = new LinkedHashMap<>();
+			for (ThreadEntry entry : store.readArchiveIndex())
+			{
+				archivedThreads.put(entry.getMotherId(), entry);
+			}
+		}
+		return archivedThreads;
+	}
+
+	/**
+	 * @return entry of a stored thread, looked up in the archive index if it is not a recent thread;
+	 * null if the thread is unknown
+	 */
+	private ThreadEntry entryOf(String motherId)
+	{
+		ThreadEntry entry = threads.get(motherId);
+		return entry != null ? entry : archivedThreads().get(motherId);
+	}
+
+	/**
+	 * Write everything that is pending: first the changed threads and the manifest (if a snapshot
+	 * was taken), then the journal entries recorded after it. Threads that are finished according
+	 * to the manifest go to the compressed cold archive. Runs on the background writer, or on
+	 * the caller during flush.
+	 */
+	private void writePending()
+	{
+		Map<String, Session[]> shards;
+		ThreadEntry[] manifest;
+		ThreadEntry[] archiveIndex;
+		LifetimeSnapshot rollups;
+		long seq;
+		boolean clearLegacy;
+		synchronized (pendingThreads)
+		{
+			shards = new LinkedHashMap<>(pendingThreads);
+			pendingThreads.clear();
+			manifest = pendingManifest;
+			pendingManifest = null;
+			archiveIndex = pendingArchiveIndex;
+			pendingArchiveIndex = null;
+			rollups = pendingLifetime;
+			pendingLifetime = null;
+			seq = pendingSeq;
+			clearLegacy = pendingLegacyClear;
+			pendingLegacyClear = false;
+		}
+
+		Map<String, ThreadEntry> entries = new LinkedHashMap<>();
+		for (ThreadEntry[] index : new ThreadEntry[][]{archiveIndex, manifest})
+		{
+			if (index == null)
+			{
+				continue;
+			}
+			for (ThreadEntry entry : index)
+			{
+				entries.put(entry.getMotherId(), entry);
+			}
+		}
+		for (Map.Entry<String, Session[]> e : shards.entrySet())
+		{
+			ThreadEntry entry = entries.get(e.getKey());
+			if (entry != null && !entry.isActive())
+			{
+				ArchiveInfo info = store.archiveThread(e.getKey(), e.getValue(), seq);
+				entry.setArchive(info);
+				archivedBlocks.put(e.getKey(), info);
+				log.debug("Archived thread {}: {} bytes stored as {} chars", e.getKey(), info.getRawSize(), info.getStoredSize());
+			}
+			else
+			{
+				store.writeThread(e.getKey(), e.getValue(), seq);
+			}
+		}
+		List<String> compacted = List.of();
+		if (archiveIndex != null)
+		{
+			compacted = store.compactArchive(archiveIndex, shards.keySet(), seq);
+			// Written before the manifest, so a thread is never missing from both
+			store.writeArchiveIndex(archiveIndex, seq);
+		}
+		if (manifest != null)
+		{
+			store.writeManifest(manifest, seq);
+		}
+		if (rollups != null)
+		{
+			// After the manifest, so a thread is never counted before it is stored as finished
+			store.writeLifetime(rollups, seq);
+		}
+		if (clearLegacy)
+		{
+			store.clearLegacy();
+		}
+		// Only once the archive index points at their block
+		store.dropThreadKeys(compacted);
+		journal.write();
+	}
+
+	/**
+	 * Take a final snapshot and write it out synchronously. Called when the plugin shuts down.
+	 */
+	public void shutdown()
+	{
+		saveToConfig();
+		writer.flush();
+		writer.close();
+		log.info("Session writer stats: {}", writer);
+		if (reportPool != null)
+		{
+			reportPool.shutdownNow();
+			reportPool = null;
+		}
+	}
+
+	/**
+	 * Record mutations of the live thread in the journal. Only the entries themselves are
+	 * written, so the cost does not depend on the size of the history. A snapshot is taken
+	 * once the journal grows past its compaction threshold.
+	 *
+	 * @param entries mutations to append, in the order they happened
+	 */
+	private void persist(JournalEntry... entries)
+	{
+		boolean stoppedThread = false;
+		Set<String> countedThreads = null;
+		for (JournalEntry entry : entries)
+		{
+			journal.append(entry);
+			Session s = sessions.get(entry.getSessionId());
+			if (s != null)
+			{
+				String motherId = motherIdOf(s);
+				dirtyThreads.add(motherId);
+				// The loaded copy is the one that counts now; it is frozen again when it is unloaded
+				frozenThreads.remove(motherId);
+				ThreadEntry thread = entryOf(motherId);
+				stoppedThread |= thread != null && !thread.isActive();
+				if (lifetime.contains(motherId))
+				{
+					countedThreads = countedThreads == null ? new LinkedHashSet<>() : countedThreads;
+					countedThreads.add(motherId);
+				}
+			}
+		}
+		if (countedThreads != null)
+		{
+			refoldLifetime(countedThreads);
+		}
+		config.currentSessionId(nullToEmpty(currentSessionId));
+		// Stopped threads are not loaded on startup, so edits to them cannot wait in the journal
+		if (stoppedThread || journal.needsCompaction())
+		{
+			saveToConfig();
+		}
+		else
+		{
+			writer.markDirty();
+		}
+	}
+
+	/**
+	 * Replace the lifetime share of edited threads that are folded in already with their new share.
+	 * Only the edited threads are looked at, through their up-to-date split engines.
+	 */
+	private void refoldLifetime(Set<String> motherIds)
+	{
+		boolean rebuild = false;
+		for (String motherId : motherIds)
+		{
+			Map<String, PlayerRollup> before = lifetimeShares.get(motherId);
+			Map<String, PlayerRollup> after = lifetimeShare(motherId);
+			if (before == null || after == null)
+			{
+				// Not remembered when it was loaded; should not happen, but never count a thread twice
+				rebuild = true;
+				continue;
+			}
+			lifetimeDirty |= lifetime.replaceThread(motherId, before, after);
+			lifetimeShares.put(motherId, after);
+		}
+		if (rebuild)
+		{
+			lifetime.clear();
+			catchUpLifetime(true);
+		}
+	}
+
+	/**
+	 * Remember the lifetime share of a loaded thread that is folded in, before it can be edited.
+	 */
+	private void rememberLifetimeShare(String motherId)
+	{
+		if (lifetime.contains(motherId))
+		{
+			Map<String, PlayerRollup> share = lifetimeShare(motherId);
+			if (share != null)
+			{
+				lifetimeShares.put(motherId, share);
+			}
+		}
+	}
+
+	/**
+	 * @return the loaded thread's numbers per player as they are folded into the rollups, or null if it is not loaded
+	 */
+	private Map<String, PlayerRollup> lifetimeShare(String motherId)
+	{
+		List<Session> thread = threadOf(motherId);
+		if (thread.isEmpty())
+		{
+			return null;
+		}
+		// The panel's memoized metrics; known players outside the thread only add empty rows
+		Map<String, PlayerRollup> share = LifetimeRollups.rollup(thread, computeMetricsFor(thread.get(0), true));
+		share.values().removeIf(PlayerRollup::isEmpty);
+		return share;
+	}
+
+	/**
+	 * @return lifetime numbers per player over every finished thread, highest net first
+	 */
+	public List<PlayerRollup> getLifetimeRollups()
+	{
+		return lifetime.getPlayers();
+	}
+
+	/**
+	 * Fold finished threads that are missing from the lifetime rollups in on the background executor.
+	 * Threads that are loaded or waiting for the writer are copied first, the others are read from
+	 * storage one at a time. The rollups are written and the panel is refreshed once all are folded in.
+	 *
+	 * @param includeArchived also look at the threads in the archive index, which is otherwise not read
+	 */
+	private void catchUpLifetime(boolean includeArchived)
+	{
+		List<String> missing = new ArrayList<>();
+		List<Collection<ThreadEntry>> indexes = includeArchived
+			? List.of(archivedThreads().values(), threads.values())
+			: List.of(threads.values());
+		for (Collection<ThreadEntry> index : indexes)
+		{
+			for (ThreadEntry entry : index)
+			{
+				if (!entry.isActive() && !lifetime.contains(entry.getMotherId()))
+				{
+					missing.add(entry.getMotherId());
+				}
+			}
+		}
+		if (missing.isEmpty())
+		{
+			return;
+		}
+
+		Map<String, List<Session>> captured = captureThreads(missing);
+		long generation = lifetime.getGeneration();
+		lifetimeUpdating = true;
+		executor.execute(() ->
+		{
+			try
+			{
+				for (String motherId : missing)
+				{
+					if (lifetime.getGeneration() != generation)
+					{
+						// Cleared again meanwhile, the catch-up started then takes over
+						return;
+					}
+					List<Session> thread = captured.get(motherId);
+					lifetime.addThread(motherId, thread != null ? thread : store.readThread(motherId), generation);
+				}
+				synchronized (pendingThreads)
+				{
+					pendingLifetime = lifetime.snapshot();
+				}
+				writer.markDirty();
+				log.debug("Folded {} threads into the lifetime rollups", missing.size());
+			}
+			catch (RuntimeException e)
+			{
+				log.warn("Unable to update the lifetime rollups", e);
+			}
+			lifetimeUpdating = false;
+			pluginManager.lifetimeUpdated();
+		});
+	}
+
+	/**
+	 * Recompute the metrics of every stored thread started in the given range, loaded or not, on a
+	 * fork-join pool, e.g. for a monthly summary or an audit of every split. Threads that are loaded
+	 * or waiting for the writer are copied first, so the sessions can keep changing meanwhile.
+	 *
+	 * @param from     earliest thread start to include, or null for no lower bound
+	 * @param to       thread start to stop before, or null for no upper bound
+	 * @param progress called from the pool with the number of threads done and the total; may be null
+	 * @return the running report; its future completes off the client thread
+	 */
+	public HistoryReporter startHistoryReport(Instant from, Instant to, BiConsumer<Integer, Integer> progress)
+	{
+		List<ThreadEntry> entries = new ArrayList<>();
+		for (Collection<ThreadEntry> index : List.of(archivedThreads().values(), threads.values()))
+		{
+			for (ThreadEntry entry : index)
+			{
+				Instant start = entry.getStart();
+				if ((from == null || (start != null && !start.isBefore(from))) && (to == null || (start != null && start.isBefore(to))))
+				{
+					entries.add(entry);
+				}
+			}
+		}
+		entries.sort(Comparator.comparing(ThreadEntry::getStart, Comparator.nullsFirst(Comparator.naturalOrder())));
+
+		List<String> motherIds = entries.stream().map(ThreadEntry::getMotherId).collect(Collectors.toList());
+		HistoryReporter reporter = new HistoryReporter(store, entries, captureThreads(motherIds), progress);
+		if (reportPool == null)
+		{
+			reportPool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+		}
+		reporter.start(reportPool);
+		return reporter;
+	}
 
 	/**
-	 * Construct a new ManagerSession bound to the given PluginConfig.
-	 * This instance owns all in-memory session state and persists it via the config.
-	 *
-	 * @param config backing configuration/store used to load and save state
+	 * @return background writer, exposing how many writes were requested, performed and coalesced
 	 */
-	@Inject
-	public ManagerSession(PluginConfig config, ManagerKnownPlayers playerManager, ManagerPlugin pluginManager, Gson gson)
+	public PersistenceWriter getWriter()
 	{
-		this.config = config;
-		this.playerManager = playerManager;
-		// Use injected client's Gson, customize via newBuilder per guidelines
-		this.gson = gson.newBuilder()
-			.registerTypeAdapter(Instant.class, new InstantTypeAdapter())
-			.create();
-		this.pluginManager = pluginManager;
+		return writer;
 	}
 
 	/**
-	 * Utility: convert null to empty string for config storage.
+	 * Stream every stored session, loaded or not, as a JSON array to the given writer.
+	 * Threads are written one at a time; threads that are not loaded are read from storage
+	 * only when it is their turn. The writer is not closed.
+	 *
+	 * @param out destination of the JSON array
+	 * @return number of sessions written
 	 */
-	private static String nullToEmpty(String s)
+	public int exportAllSessionsJson(Writer out) throws IOException
 	{
-		return s == null ? "" : s;
+		// Make sure threads that are not loaded are read with their latest snapshot
+		writer.flush();
+		return prepareExport(null, true).writeTo(out);
 	}
 
 	/**
-	 * Utility: convert empty string to null when reading config values.
+	 * Stream a single session, or the whole thread it belongs to, as a JSON array to the given writer.
+	 *
+	 * @param sessionId   id of a mother or child session
+	 * @param wholeThread true to write the mother session together with all its children
+	 * @param out         destination of the JSON array
+	 * @return number of sessions written; 0 if the session is unknown
 	 */
-	private static String emptyToNull(String s)
+	public int exportSessionJson(String sessionId, boolean wholeThread, Writer out) throws IOException
 	{
-		return s == null || s.isEmpty() ? null : s;
+		// Make sure threads that are not loaded are read with their latest snapshot
+		writer.flush();
+		return prepareExport(sessionId, wholeThread).writeTo(out);
 	}
 
-	// TODO add export all/ or specific session to json
-
 	/**
-	 * Loads configuration data into the application's runtime structures.
-	 * <p>
-	 * This method performs the following operations:
-	 * <p>
-	 * 1. Clears the list of known players and repopulates it from a CSV string
-	 * retrieved from the configuration. Each player is trimmed of extraneous
-	 * whitespace before being added to the collection.
-	 * <p>
-	 * 2. Clears the mapping of alternate accounts to main accounts and repopulates
-	 * it from a JSON structure retrieved from the configuration. The JSON is
-	 * parsed into a Map using GSON. If the parsing fails or the structure is
-	 * invalid, the operation is gracefully ignored.
-	 * <p>
-	 * 3. Clears the session map and populates it with sessions retrieved from a
-	 * JSON array in the configuration. Each session is parsed and added to
-	 * the map by its ID.
-	 * <p>
-	 * 4. Updates the current session ID and sets whether the history has been
-	 * loaded from the configuration.
+	 * Export to a file on the background executor. The sessions that are in memory are copied
+	 * right away, so the session state can keep changing while the file is written.
+	 *
+	 * @param sessionId   id of the session to export, or null to export every stored session
+	 * @param wholeThread with a session id: true to write its whole thread instead of the session alone
+	 * @param file        file to write
+	 * @return future completed with the number of sessions written
 	 */
-	public void loadFromConfig()
+	public CompletableFuture<Integer> exportToFile(String sessionId, boolean wholeThread, Path file)
 	{
-		sessions.clear();
-		String json = config.sessionsJson();
-		if (json != null && !json.isEmpty())
+		SessionExporter exporter = prepareExport(sessionId, wholeThread);
+		CompletableFuture<Integer> result = new CompletableFuture<>();
+		executor.execute(() ->
 		{
-			Session[] arr = gson.fromJson(json, Session[].class);
-			if (arr != null)
+			try
 			{
-				for (Session s : arr)
-				{
-					sessions.put(s.getId(), s);
-				}
+				result.complete(exporter.writeTo(file));
 			}
-		}
-
-		// Invalidate any cached mother->kills when loading fresh data
-		motherKillsCache.clear();
-
-		currentSessionId = emptyToNull(config.currentSessionId());
+			catch (IOException | RuntimeException e)
+			{
+				log.warn("Unable to export sessions to {}", file, e);
+				result.completeExceptionally(e);
+			}
+		});
+		return result;
 	}
 
 	/**
-	 * Persist sessions, current state, known players, and alt mappings to PluginConfig.
+	 * Copy the threads to export that are loaded, or whose latest snapshot is still waiting for the
+	 * writer; all other threads are left in storage for the exporter to read one by one.
+	 *
+	 * @param sessionId   session to export, or null for everything
+	 * @param wholeThread with a session id: export its whole thread
 	 */
-	public void saveToConfig()
+	private SessionExporter prepareExport(String sessionId, boolean wholeThread)
 	{
-		Session[] arr = sessions.values().toArray(new Session[0]);
-		config.sessionsJson(gson.toJson(arr));
-		config.currentSessionId(nullToEmpty(currentSessionId));
-	}
+		List<String> motherIds = new ArrayList<>();
+		if (sessionId == null)
+		{
+			motherIds.addAll(archivedThreads().keySet());
+			motherIds.addAll(threads.keySet());
+		}
+		else
+		{
+			Session s = sessions.get(sessionId);
+			String motherId = s != null ? motherIdOf(s) : findStoredThread(sessionId);
+			if (motherId != null)
+			{
+				motherIds.add(motherId);
+			}
+		}
 
-	/**
-	 * Placeholder for exporting all sessions as JSON (for sharing/backups).
-	 * Returns a JSON string. Implementation can reuse the existing gson and sessions map.
-	 */
-	public String exportAllSessionsJson()
-	{
-		// TODO Implement: return gson.toJson(sessions.values());
-		return "";
+		return new SessionExporter(store, gson, motherIds, captureThreads(motherIds), wholeThread ? null : sessionId);
 	}
 
 	/**
-	 * Placeholder for exporting a single session by id as JSON.
-	 * Returns a JSON string for the specified session or empty string if not found.
+	 * Copy the given threads if they are loaded, or take their latest snapshot if it is still waiting
+	 * for the writer, so they can be read off the client thread. Threads that are neither are left out
+	 * and have to be read from the store.
+	 *
+	 * @return copies by mother id
 	 */
-	public String exportSessionJson(String sessionId)
+	private Map<String, List<Session>> captureThreads(List<String> motherIds)
 	{
-		// TODO Implement: Session s = sessions.get(sessionId); return s != null ? gson.toJson(s) : "";
-		return "";
+		Map<String, List<Session>> loaded = threadIndex;
+		Map<String, List<Session>> captured = new LinkedHashMap<>();
+		synchronized (pendingThreads)
+		{
+			for (String motherId : motherIds)
+			{
+				List<Session> thread = loaded.get(motherId);
+				Session[] pending = pendingThreads.get(motherId);
+				if (thread != null)
+				{
+					List<Session> copy = new ArrayList<>(thread.size());
+					for (Session s : thread)
+					{
+						copy.add(s.copy());
+					}
+					captured.put(motherId, copy);
+				}
+				else if (pending != null)
+				{
+					// Snapshot copies are never changed after they are taken
+					captured.put(motherId, Arrays.asList(pending));
+				}
+			}
+		}
+		return captured;
 	}
 
 	/**
@@ -179,7 +1089,7 @@ public class ManagerSession
 		}
 
 		return mains.stream()
-			.filter(p -> !curr.getPlayers().contains(p))
+			.filter(p -> !curr.hasPlayer(p))
 			.collect(Collectors.toCollection(LinkedHashSet::new));
 	}
 
@@ -192,7 +1102,19 @@ public class ManagerSession
 	}
 
 	/**
-	 * @return all sessions (mother and children) sorted by start time descending (newest first).
+	 * Look up a loaded session by id without scanning or sorting the loaded sessions.
+	 *
+	 * @param sessionId id of a mother or child session
+	 * @return the session, or empty if it is not loaded
+	 */
+	public Optional<Session> getSession(String sessionId)
+	{
+		return sessionId == null ? Optional.empty() : Optional.ofNullable(sessions.get(sessionId));
+	}
+
+	/**
+	 * @return all loaded sessions (mother and children) sorted by start time descending (newest first).
+	 * Stopped threads are only included once they have been opened with {@link #loadHistory}.
 	 */
 	public List<Session> getAllSessionsNewestFirst()
 	{
@@ -202,18 +1124,102 @@ public class ManagerSession
 	}
 
 	/**
-	 * Exit read-only history mode and return to live mode.
-	 * Persists the flag immediately.
+	 * @return manifest entries of every recent thread, loaded or not, in the order they were started.
+	 * Threads moved to the archive by the retention policy are not included.
+	 */
+	public List<ThreadEntry> getStoredThreads()
+	{
+		return new ArrayList<>(threads.values());
+	}
+
+	/**
+	 * Header index of every recent session (mother and children), newest first.
+	 * Loaded threads are summarized from memory, all others come from the manifest,
+	 * so listing the history never reads or keeps kill records.
+	 *
+	 * @param includeArchived also list threads moved to the archive by the retention policy;
+	 *                        the archive index is read the first time this is requested
+	 * @return session headers sorted by start time descending
+	 */
+	public List<SessionHeader> getSessionHeadersNewestFirst(boolean includeArchived)
+	{
+		Map<String, List<Session>> loaded = threadIndex;
+		List<ThreadEntry> entries = new ArrayList<>(threads.values());
+		if (includeArchived)
+		{
+			entries.addAll(archivedThreads().values());
+		}
+		else
+		{
+			// An archived thread that is open as history stays listed
+			for (String motherId : loaded.keySet())
+			{
+				ThreadEntry entry = threads.containsKey(motherId) ? null : entryOf(motherId);
+				if (entry != null)
+				{
+					entries.add(entry);
+				}
+			}
+		}
+		List<SessionHeader> out = new ArrayList<>();
+		for (ThreadEntry entry : entries)
+		{
+			List<Session> thread = loaded.get(entry.getMotherId());
+			if (thread != null)
+			{
+				out.addAll(headersOf(thread));
+			}
+			else if (entry.getSessions() != null)
+			{
+				out.addAll(entry.getSessions());
+			}
+		}
+		out.sort(Comparator.comparing(SessionHeader::getStart, Comparator.nullsLast(Comparator.naturalOrder())).reversed());
+		return out;
+	}
+
+	/**
+	 * @return the session opened with {@link #loadHistory}, if history mode is on
+	 */
+	public Optional<Session> getHistorySession()
+	{
+		return historyLoaded ? Optional.ofNullable(historySessionId).map(sessions::get) : Optional.empty();
+	}
+
+	/**
+	 * Exit read-only history mode and return to live mode. The kills of the viewed thread
+	 * are dropped from memory again unless it is the running thread.
 	 */
 	public void unloadHistory()
 	{
+		Session viewed = historySessionId == null ? null : sessions.get(historySessionId);
 		historyLoaded = false;
-		saveToConfig();
+		historySessionId = null;
+		if (viewed == null)
+		{
+			return;
+		}
+
+		String motherId = motherIdOf(viewed);
+		ThreadEntry thread = entryOf(motherId);
+		Session curr = getCurrentSession().orElse(null);
+		if (thread == null || thread.isActive() || (curr != null && motherId.equals(motherIdOf(curr))))
+		{
+			return;
+		}
+		// Any edit made while viewing was already snapshotted by persist(), so nothing is lost here
+		if (!frozenThreads.containsKey(motherId))
+		{
+			freezeThread(motherId);
+		}
+		removeThread(motherId);
 	}
 
 	/**
 	 * Enter read-only history mode by selecting a session to view.
-	 * Requires that no active session is running. Persists the flag immediately.
+	 * Requires that no active session is running.
+	 *
+	 * Stopped threads are read from storage on first access, located through the header index.
 	 *
 	 * @param sessionId id of the session (mother or child) to load
 	 * @return the loaded session if found and preconditions met; empty otherwise
@@ -224,16 +1230,93 @@ public class ManagerSession
 		{
 			return Optional.empty(); // must stop active first
 		}
+		if (historyLoaded && !Objects.equals(historySessionId, sessionId))
+		{
+			unloadHistory();
+		}
+		if (!sessions.containsKey(sessionId))
+		{
+			String motherId = findStoredThread(sessionId);
+			FrozenThread frozen = motherId == null ? null : frozenThreads.get(motherId);
+			if (frozen != null)
+			{
+				thawThread(frozen);
+			}
+			else if (motherId != null && loadThread(motherId, new LinkedHashMap<>()))
+			{
+				saveToConfig();
+			}
+			if (motherId != null)
+			{
+				rememberLifetimeShare(motherId);
+			}
+		}
 		Session s = sessions.get(sessionId);
 		if (s == null)
 		{
 			return Optional.empty();
 		}
 		historyLoaded = true;
-		saveToConfig();
+		historySessionId = s.getId();
 		return Optional.of(s);
 	}
 
+	/**
+	 * Keep a loaded, finished thread in compact form together with its final split sums, so it
+	 * can be opened again without reading it from storage.
+	 */
+	private void freezeThread(String motherId)
+	{
+		List<Session> thread = threadOf(motherId);
+		if (!thread.isEmpty())
+		{
+			frozenThreads.put(motherId, FrozenThread.freeze(thread, splitEngine(thread.get(0))));
+		}
+	}
+
+	/**
+	 * Load a frozen thread back into the session map. Its split engine is restored from the frozen
+	 * sums, so neither storage nor the kills are read.
+	 */
+	private void thawThread(FrozenThread frozen)
+	{
+		List<Session> thread = frozen.thaw();
+		for (Session s : thread)
+		{
+			putSession(s);
+		}
+		splitEngines.put(frozen.getMotherId(), new SplitEngine(threadOf(frozen.getMotherId()), frozen));
+	}
+
+	/**
+	 * @return mother id of the stored thread containing the given session, or null if unknown
+	 */
+	private String findStoredThread(String sessionId)
+	{
+		if (entryOf(sessionId) != null)
+		{
+			return sessionId;
+		}
+		for (Map<String, ThreadEntry> index : List.of(threads, archivedThreads()))
+		{
+			for (ThreadEntry entry : index.values())
+			{
+				if (entry.getSessions() == null)
+				{
+					continue;
+				}
+				for (SessionHeader h : entry.getSessions())
+				{
+					if (sessionId.equals(h.getId()))
+					{
+						return entry.getMotherId();
+					}
+				}
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * @return true if there is a current child session and its end time is null (active).
 	 */
@@ -261,15 +1344,16 @@ public class ManagerSession
 
 		// Create mother and an initial child immediately (to mirror sheet)
 		Session mother = new Session(newId(), Instant.now(), null);
-		sessions.put(mother.getId(), mother);
+		putSession(mother);
+		threads.put(mother.getId(), new ThreadEntry(mother.getId(), mother.getStart(), null, new ArrayList<>()));
 		// initialize empty cache list for this mother thread
 		motherKillsCache.put(mother.getId(), new ArrayList<>());
 
 		Session child = new Session(newId(), Instant.now(), mother.getId());
-		sessions.put(child.getId(), child);
+		putSession(child);
 
 		currentSessionId = child.getId();
-		saveToConfig();
+		persist(JournalEntry.sessionStarted(mother), JournalEntry.sessionStarted(child));
 		pluginManager.updateChatWarningStatus();
 		return Optional.of(child);
 	}
@@ -313,9 +1397,23 @@ public class ManagerSession
 				mother.setEnd(Instant.now());
 			}
 		}
+		String motherId = motherIdOf(curr);
+		Session mother = sessions.get(motherId);
+		ThreadEntry thread = threads.get(motherId);
+		if (thread != null)
+		{
+			thread.setEnd(mother != null ? mother.getEnd() : curr.getEnd());
+		}
+		dirtyThreads.add(motherId);
+		// Fold the finished thread into the lifetime rollups while it is still loaded
+		lifetimeDirty |= lifetime.addThread(motherId, threadOf(motherId));
 
+		// The thread is closed now, a good moment to fold the journal into a snapshot
 		currentSessionId = null;
 		saveToConfig();
+		// The snapshot archives the finished thread; it is opened from its frozen form while that is kept
+		freezeThread(motherId);
+		removeThread(motherId);
 		pluginManager.updateChatWarningStatus();
 		return true;
 	}
@@ -347,7 +1445,7 @@ public class ManagerSession
 			return false;
 		}
 		final String fMain = mainPlayer;
-		if (curr.getPlayers().stream().anyMatch(p -> p.equalsIgnoreCase(fMain)))
+		if (curr.hasPlayer(fMain))
 		{
 			// Player (main) already in session
 			return false;
@@ -359,9 +1457,9 @@ public class ManagerSession
 			String motherId = curr.getMotherId() == null ? curr.getId() : curr.getMotherId();
 			Session newChild = new Session(newId(), Instant.now(), motherId);
 			// copy players
-			newChild.getPlayers().addAll(curr.getPlayers());
+			newChild.setPlayers(curr.getPlayers());
 			// add the new player (main)
-			newChild.getPlayers().add(player);
+			newChild.addPlayer(fMain);
 
 			// End current child (but keep kills)
 			curr.setEnd(Instant.now());
@@ -375,12 +1473,15 @@ public class ManagerSession
 			motherKillsCache.computeIfAbsent(motherId, k -> new ArrayList<>()).add(joinEvent);
 
 			// Activate new child
-			sessions.put(newChild.getId(), newChild);
+			putSession(newChild);
 			currentSessionId = newChild.getId();
+			withSplitEngine(motherId, e -> e.addSession(newChild));
+
+			persist(JournalEntry.segmentEnded(curr), JournalEntry.sessionStarted(newChild), JournalEntry.killAdded(joinEvent));
 		}
 		else
 		{
-			curr.getPlayers().add(player);
+			curr.addPlayer(fMain);
 			// Record a JOINED event kill in the current child (no kills yet)
 			Kill joinEvent = new Kill(curr.getId(), fMain, 0L, Instant.now());
 			joinEvent.setType("JOINED");
@@ -389,8 +1490,10 @@ public class ManagerSession
 			// Update mother cache incrementally
 			String motherId = curr.getMotherId() == null ? curr.getId() : curr.getMotherId();
 			motherKillsCache.computeIfAbsent(motherId, k -> new ArrayList<>()).add(joinEvent);
+			withSplitEngine(motherId, e -> e.rosterChanged(curr));
+
+			persist(JournalEntry.rosterChanged(curr), JournalEntry.killAdded(joinEvent));
 		}
-		saveToConfig();
 		return true;
 	}
 
@@ -414,8 +1517,9 @@ public class ManagerSession
 			return false;
 		}
 
-		player = player.trim();
-		if (!curr.getPlayers().contains(player))
+		// Events carry the name as it is on the roster
+		player = curr.findPlayer(player.trim());
+		if (player == null)
 		{
 			return false;
 		}
@@ -426,9 +1530,8 @@ public class ManagerSession
 			String motherId = curr.getMotherId() == null ? curr.getId() : curr.getMotherId();
 			Session newChild = new Session(newId(), Instant.now(), motherId);
 			String finalPlayer = player;
-			newChild.getPlayers().addAll(
-				curr.getPlayers().stream().filter(p -> !p.equalsIgnoreCase(finalPlayer)).collect(Collectors.toList())
-			);
+			newChild.setPlayers(curr.getPlayers());
+			newChild.removePlayer(finalPlayer);
 
 			// End the current child
 			curr.setEnd(Instant.now());
@@ -441,12 +1544,15 @@ public class ManagerSession
 			// Update mother cache incrementally
 			motherKillsCache.computeIfAbsent(motherId, k -> new ArrayList<>()).add(leaveEvent);
 
-			sessions.put(newChild.getId(), newChild);
+			putSession(newChild);
 			currentSessionId = newChild.getId();
+			withSplitEngine(motherId, e -> e.addSession(newChild));
+
+			persist(JournalEntry.segmentEnded(curr), JournalEntry.sessionStarted(newChild), JournalEntry.killAdded(leaveEvent));
 		}
 		else
 		{
-			curr.getPlayers().remove(player);
+			curr.removePlayer(player);
 			// Record a LEFT event kill in the current child (no kills yet)
 			Kill leaveEvent = new Kill(curr.getId(), player, 0L, Instant.now());
 			leaveEvent.setType("LEFT");
@@ -455,8 +1561,10 @@ public class ManagerSession
 			// Update mother cache incrementally
 			String motherId = curr.getMotherId() == null ? curr.getId() : curr.getMotherId();
 			motherKillsCache.computeIfAbsent(motherId, k -> new ArrayList<>()).add(leaveEvent);
+			withSplitEngine(motherId, e -> e.rosterChanged(curr));
+
+			persist(JournalEntry.rosterChanged(curr), JournalEntry.killAdded(leaveEvent));
 		}
-		saveToConfig();
 		return true;
 	}
 
@@ -486,22 +1594,53 @@ public class ManagerSession
 		{
 			return false;
 		}
-		if (currentSession.getPlayers().stream().noneMatch(p -> p.equalsIgnoreCase(mainPlayer)))
+		// Kills carry the name as it is on the roster so the split engine counts them for that member
+		String rosterName = currentSession.findPlayer(mainPlayer);
+		if (rosterName == null)
 		{
 			return false;
 		}
 
-		Kill newKill = new Kill(currentSession.getId(), mainPlayer, amount, Instant.now());
+		Kill newKill = new Kill(currentSession.getId(), rosterName, amount, Instant.now());
 		currentSession.getKills().add(newKill);
 
 		// Update mother cache incrementally
 		String motherId = currentSession.getMotherId() == null ? currentSession.getId() : currentSession.getMotherId();
 		motherKillsCache.computeIfAbsent(motherId, k -> new ArrayList<>()).add(newKill);
+		withSplitEngine(motherId, e -> e.addKill(newKill));
 
-		saveToConfig();
+		persist(JournalEntry.killAdded(newKill));
 		return true;
 	}
 
+	/**
+	 * Record an in-place edit of a kill's player or amount (e.g. from the Recent Splits table).
+	 * The kill object has already been mutated; this only journals the new values and applies the
+	 * change to the thread's split engine as a delta for the kill's own segment.
+	 *
+	 * @param kill the edited kill
+	 */
+	public void recordKillEdit(Kill kill)
+	{
+		if (kill == null)
+		{
+			return;
+		}
+		Session owner = sessions.get(kill.getSessionId());
+		if (owner == null)
+		{
+			return;
+		}
+		// Edits are nearly always of recent kills, so search from the end
+		int idx = owner.getKills().lastIndexOf(kill);
+		if (idx < 0)
+		{
+			return;
+		}
+		withSplitEngine(motherIdOf(owner), e -> e.killChanged(kill));
+		persist(JournalEntry.killEdited(kill, idx));
+	}
+
 	/**
 	 * Read-only view of the queued pending values detected from chat.
 	 */
@@ -528,14 +1667,14 @@ public class ManagerSession
 		if (!playerManager.getKnownPlayers().contains(resolvedPlayer))
 		{
 			playerManager.getKnownPlayers().add(resolvedPlayer);
-			saveToConfig();
+			playerManager.saveToConfig();
 		}
 
 		// Auto-apply if configured and player already in session
 		if (config.autoApplyWhenInSession() && hasActiveSession())
 		{
 			Session currentSession = getCurrentSession().orElse(null);
-			if (currentSession != null && currentSession.getPlayers().stream().anyMatch(p -> p.equalsIgnoreCase(resolvedPlayer)))
+			if (currentSession != null && currentSession.hasPlayer(resolvedPlayer))
 			{
 				addKill(resolvedPlayer, pendingValue.getValue());
 				return; // do not queue
@@ -596,28 +1735,24 @@ public class ManagerSession
 
 	/**
 	 * Returns true if the given player (main or alt) is present in the roster of the provided session.
-	 * Alts are resolved to their main before the check.
+	 * Alts are resolved to their main before the check, which is a lookup in the session's roster index
+	 * so it is cheap enough for per-menu-entry callers.
 	 */
 	public boolean sessionHasPlayer(@Nonnull String player, Session session)
 	{
-		if (playerManager.isAlt(player))
+		if (session == null)
 		{
-			player = playerManager.getMainName(player);
+			return false;
 		}
-
-		String finalPlayer = player;
-
-		return session.getPlayers().stream().anyMatch(e ->
-			e.equals(Objects.requireNonNull(finalPlayer)));
+		return session.hasPlayer(playerManager.getMainName(player));
 	}
 
 	public void init()
 	{
+		writer.open();
 		loadFromConfig();
 	}
 
-	//TODO make this not recalc everything if it does
-
 	/**
 	 * Compute metrics for the given session's thread (mother + children) including only currently active players.
 	 *
@@ -634,6 +1769,10 @@ public class ManagerSession
 	 * When includeNonActivePlayers is true, any player appearing in the thread or known list may be included.
 	 * Otherwise, only players on the provided session's current roster are considered for output.
 	 * Players with zero total and zero split are omitted.
+	 * <p>
+	 * The thread's {@link SplitEngine} is built on the first call and kept up to date by every
+	 * mutation afterwards, so this does not depend on the number of kills. The returned list is
+	 * memoized and shared until the thread or the known players change, so it must not be modified.
 	 *
 	 * @param s                       a session within the thread to compute against
 	 * @param includeNonActivePlayers whether to include players outside the current roster
@@ -645,143 +1784,77 @@ public class ManagerSession
 		{
 			return List.of();
 		}
+		return splitEngine(s).metrics(s, includeNonActivePlayers, playerManager.getKnownPlayers(), playerManager.getVersion());
+	}
 
-		// Determine the mother (root) id for the session thread
-		String rootId = (s.getMotherId() == null) ? s.getId() : s.getMotherId();
-
-		// Collect all sessions in the thread: mother + all children
-		List<Session> thread = new ArrayList<>();
-		Session mother = sessions.get(rootId);
-		if (mother != null)
-		{
-			thread.add(mother);
-		}
-		for (Session candidate : sessions.values())
-		{
-			if (rootId.equals(candidate.getMotherId()))
-			{
-				thread.add(candidate);
-			}
-		}
-
-		// Build included players:
-		// - includeNonActivePlayers: union of knownPlayers and everyone who appeared in the thread
-		// - otherwise: only the current session's active roster
-		LinkedHashSet<String> includedPlayers = new LinkedHashSet<>();
-		if (includeNonActivePlayers)
-		{
-			includedPlayers.addAll(playerManager.getKnownPlayers());
-			for (Session part : thread)
-			{
-				includedPlayers.addAll(part.getPlayers());
-			}
-		}
-		else
+	/**
+	 * Suggested direct payments for the given session's thread, settling the metrics of
+	 * {@link #computeMetricsFor(Session, boolean)} with non-active players included.
+	 * Shares the thread's memoized metrics, so it costs nothing until the thread changes.
+	 *
+	 * @param s a session within the thread to compute against
+	 * @return read-only list of transfers
+	 */
+	public List<Transfer> computeTransfersFor(Session s)
+	{
+		if (s == null)
 		{
-			includedPlayers.addAll(s.getPlayers());
+			return List.of();
 		}
+		return splitEngine(s).transfers(s, playerManager.getKnownPlayers(), playerManager.getVersion());
+	}
 
-		// Initialize aggregate totals and splits
-		Map<String, Long> totals = new LinkedHashMap<>();
-		Map<String, Long> splits = new LinkedHashMap<>();
-		for (String p : includedPlayers)
+	/**
+	 * Loot, kill count and time span of the given segment, read from its thread's running
+	 * counters. Cheap enough to call on every display tick.
+	 *
+	 * @param s the segment
+	 * @return the segment's numbers, or null if there is no session
+	 */
+	public SegmentMetrics computeSegmentMetricsFor(Session s)
+	{
+		if (s == null)
 		{
-			totals.put(p, 0L);
-			splits.put(p, 0L);
+			return null;
 		}
+		return splitEngine(s).segmentMetrics(s);
+	}
 
-		// For each session in the thread:
-		// - compute that session's per-player totals for its own roster
-		// - compute that session's average across its roster (including zeroes)
-		// - for players active in that session, accumulate (playerTotal - sessionAvg) into splits
-		for (Session part : thread)
+	private SplitEngine splitEngine(Session s)
+	{
+		String rootId = motherIdOf(s);
+		SplitEngine engine = splitEngines.get(rootId);
+		if (engine == null)
 		{
-			// Roster for this part (the only players eligible for this part's split)
-			List<String> roster = new ArrayList<>(part.getPlayers());
-			if (roster.isEmpty())
-			{
-				continue;
-			}
-
-			// Per-session totals for players in this roster
-			Map<String, Long> perSessionTotals = new LinkedHashMap<>();
-			for (String p : roster)
-			{
-				perSessionTotals.put(p, 0L);
-			}
-			for (Kill k : part.getKills())
-			{
-				// Ignore JOINED/LEFT events in split math; only count regular loot
-				String t = k.getType();
-				if (t != null && !t.equalsIgnoreCase("LOOT"))
-				{
-					continue;
-				}
-				perSessionTotals.computeIfPresent(k.getPlayer(), (k1, v) -> v + k.getAmount());
-			}
-
-			// Session average across the entire roster
-			Long sessionAvg = 0L;
-			if (!perSessionTotals.isEmpty())
-			{
-				Long sum = 0L;
-				for (Long v : perSessionTotals.values())
-				{
-					sum += v;
-				}
-				sessionAvg = sum / perSessionTotals.size();
-			}
-
-			// Accumulate totals and splits into the aggregate maps
-			for (Map.Entry<String, Long> e : perSessionTotals.entrySet())
-			{
-				String player = e.getKey();
-				Long playerTotalThisSession = e.getValue();
-
-				// Aggregate total (only if we're showing this player)
-				if (totals.containsKey(player))
-				{
-					totals.compute(player, (k, v) -> (v) + playerTotalThisSession);
-				}
-
-				// Aggregate split only for players active in THIS session
-				if (splits.containsKey(player))
-				{
-					Long delta = playerTotalThisSession - sessionAvg;
-					splits.compute(player, (k, v) -> (v) + delta);
-				}
-			}
+			engine = new SplitEngine(threadOf(rootId));
+			splitEngines.put(rootId, engine);
 		}
+		return engine;
+	}
 
-		// Build output rows, marking active based on the provided session's current roster
-		List<PlayerMetrics> out = new ArrayList<>();
-		for (String p : includedPlayers)
+	/**
+	 * Apply a mutation to a thread's split engine, if it has been built already.
+	 */
+	private void withSplitEngine(String motherId, Consumer<SplitEngine> update)
+	{
+		SplitEngine engine = splitEngines.get(motherId);
+		if (engine != null)
 		{
-			boolean isActiveNow = s.getPlayers().contains(p);
-			Long total = totals.getOrDefault(p, 0L);
-			Long split = splits.getOrDefault(p, 0L);
-
-			// Skip players with total = 0, unless they are active now
-			if (!isActiveNow && total == 0.0 && split == 0.0)
-			{
-				continue;
-			}
-
-			out.add(new PlayerMetrics(p, total, split, isActiveNow));
+			update.accept(engine);
 		}
-		return out;
 	}
 
 
 	/**
-	 * Get all kills from all sessions that share the same mother session as the current session.
+	 * Get all kills from all sessions that share the same mother session as the current session,
+	 * or as the history session while history mode is on.
 	 * Uses a cached list per mother to avoid recomputing on every UI update.
 	 *
 	 * @return a list containing all kill records from sessions with the same mother
 	 */
 	public List<Kill> getAllKills()
 	{
-		Session curr = getCurrentSession().orElse(null);
+		Session curr = getCurrentSession().or(this::getHistorySession).orElse(null);
 		if (curr == null)
 		{
 			return new ArrayList<>();
@@ -796,12 +1869,9 @@ public class ManagerSession
 		}
 		// Build once, sort by time ascending (oldest first), and cache
 		List<Kill> built = new ArrayList<>();
-		for (Session session : sessions.values())
+		for (Session session : threadOf(motherId))
 		{
-			if (motherId.equals(session.getId()) || motherId.equals(session.getMotherId()))
-			{
-				built.addAll(session.getKills());
-			}
+			built.addAll(session.getKills());
 		}
 		built.sort(Comparator.comparing(Kill::getAt, Comparator.nullsLast(Comparator.naturalOrder())));
 		motherKillsCache.put(motherId, built);
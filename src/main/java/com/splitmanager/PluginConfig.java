@@ -5,6 +5,8 @@ import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
 import net.runelite.client.config.ConfigSection;
+import net.runelite.client.config.Range;
+import net.runelite.client.config.Units;
 
 
 /**
@@ -18,6 +20,10 @@ public interface PluginConfig extends Config
 	String GROUP = "Split Manager";
 
 	String KEY_SESSIONS_JSON = "sessionsJson";
+	String KEY_SESSIONS_JOURNAL = "sessionsJournal";
+	String KEY_THREAD_MANIFEST = "threadManifest";
+	String KEY_THREAD_ARCHIVE = "threadArchive";
+	String KEY_LIFETIME_ROLLUPS = "lifetimeRollups";
 	String KEY_CURRENT_SESSION_ID = "currentSessionId";
 	String KEY_HISTORY_LOADED = "historyLoaded";
 	String KEY_PEOPLE_CSV = "PlayersCsv";
@@ -35,6 +41,12 @@ public interface PluginConfig extends Config
 		position = 1
 	)
 	String chatDetectionSection = "Chat detection";
+	@ConfigSection(
+		name = "History",
+		description = "How much session history is kept at hand",
+		position = 3
+	)
+	String historySection = "History";
 	// Alt/main mapping persistence (hidden JSON)
 	String KEY_ALTS_JSON = "altsJson";
 
@@ -98,6 +110,7 @@ public interface PluginConfig extends Config
 
 	/**
 	 * Retrieves the JSON string representation of serialized sessions.
+	 * Only used by older versions; on load it is split into per-thread keys and cleared.
 	 *
 	 * @return a JSON string representing the serialized sessions, or an empty string if no sessions are serialized
 	 */
@@ -125,6 +138,164 @@ public interface PluginConfig extends Config
 	)
 	void sessionsJson(String value);
 
+	/**
+	 * Retrieves the append-only journal of session mutations recorded since the last snapshot.
+	 *
+	 * @return newline separated JSON journal entries, or an empty string if the snapshot is up to date
+	 */
+	@ConfigItem(
+		keyName = KEY_SESSIONS_JOURNAL,
+		name = "Sessions journal",
+		description = "Session mutations since the last snapshot",
+		hidden = true
+	)
+	default String sessionsJournal()
+	{
+		return "";
+	}
+
+	/**
+	 * Sets the append-only journal of session mutations.
+	 *
+	 * @param value newline separated JSON journal entries
+	 */
+	@ConfigItem(
+		keyName = KEY_SESSIONS_JOURNAL,
+		name = "Sessions journal",
+		description = "Session mutations since the last snapshot",
+		hidden = true
+	)
+	void sessionsJournal(String value);
+
+	/**
+	 * Retrieves the manifest of stored session threads.
+	 *
+	 * @return a JSON array describing every stored thread, or an empty string if none are stored yet
+	 */
+	@ConfigItem(
+		keyName = KEY_THREAD_MANIFEST,
+		name = "Thread manifest",
+		description = "Index of stored session threads",
+		hidden = true
+	)
+	default String threadManifest()
+	{
+		return "";
+	}
+
+	/**
+	 * Sets the manifest of stored session threads.
+	 *
+	 * @param value a JSON array describing every stored thread
+	 */
+	@ConfigItem(
+		keyName = KEY_THREAD_MANIFEST,
+		name = "Thread manifest",
+		description = "Index of stored session threads",
+		hidden = true
+	)
+	void threadManifest(String value);
+
+	/**
+	 * Retrieves the index of threads moved out of the manifest by the retention policy.
+	 *
+	 * @return a JSON array describing every archived thread, or an empty string if none are archived yet
+	 */
+	@ConfigItem(
+		keyName = KEY_THREAD_ARCHIVE,
+		name = "Thread archive",
+		description = "Index of session threads past the retention limits",
+		hidden = true
+	)
+	default String threadArchive()
+	{
+		return "";
+	}
+
+	/**
+	 * Sets the index of archived session threads.
+	 *
+	 * @param value a JSON array describing every archived thread
+	 */
+	@ConfigItem(
+		keyName = KEY_THREAD_ARCHIVE,
+		name = "Thread archive",
+		description = "Index of session threads past the retention limits",
+		hidden = true
+	)
+	void threadArchive(String value);
+
+	/**
+	 * Retrieves the lifetime per-player rollups of every finished session thread.
+	 *
+	 * @return a JSON object with the counted threads and the rollups, or an empty string if none are stored yet
+	 */
+	@ConfigItem(
+		keyName = KEY_LIFETIME_ROLLUPS,
+		name = "Lifetime rollups",
+		description = "Per-player totals over every finished session thread",
+		hidden = true
+	)
+	default String lifetimeRollups()
+	{
+		return "";
+	}
+
+	/**
+	 * Sets the lifetime per-player rollups.
+	 *
+	 * @param value a JSON object with the counted threads and the rollups
+	 */
+	@ConfigItem(
+		keyName = KEY_LIFETIME_ROLLUPS,
+		name = "Lifetime rollups",
+		description = "Per-player totals over every finished session thread",
+		hidden = true
+	)
+	void lifetimeRollups(String value);
+
+	/**
+	 * Maximum number of session threads kept in the recent history. Older finished threads are
+	 * moved to the archive, where they can still be viewed and exported.
+	 *
+	 * @return number of recent threads to keep, 0 for no limit
+	 */
+	@Range(
+		min = 0
+	)
+	@ConfigItem(
+		keyName = "retentionMaxThreads",
+		name = "Recent sessions",
+		description = "Number of sessions kept in the recent history, older ones are archived. Archived sessions stay viewable and exportable through \"Show archived\". 0 = no limit",
+		section = historySection,
+		position = 1
+	)
+	default int retentionMaxThreads()
+	{
+		return 0;
+	}
+
+	/**
+	 * Maximum age of a finished session thread in the recent history, counted from its end.
+	 *
+	 * @return age in days after which finished threads are archived, 0 for no limit
+	 */
+	@Range(
+		min = 0
+	)
+	@Units(" days")
+	@ConfigItem(
+		keyName = "retentionMaxAgeDays",
+		name = "Archive after",
+		description = "Finished sessions older than this are archived. Archived sessions stay viewable and exportable through \"Show archived\". 0 = never",
+		section = historySection,
+		position = 2
+	)
+	default int retentionMaxAgeDays()
+	{
+		return 0;
+	}
+
 	/**
 	 * Retrieves the identifier of the current active session.
 	 *
@@ -203,6 +374,23 @@ public interface PluginConfig extends Config
 		return true;
 	}
 
+	/**
+	 * Determines whether the metrics table shows hourly rates per player and the current segment's
+	 * rates above it. The rates are updated every second.
+	 *
+	 * @return true if gp/h and kills/h are shown
+	 */
+	@ConfigItem(
+		keyName = "showRates",
+		name = "Show hourly rates",
+		description = "Show gp/h and kills/h per player and for the current segment, updated every second",
+		section = settlementSection
+	)
+	default boolean showRates()
+	{
+		return true;
+	}
+
 	// TODO When Direct Payement is used there is no method to remove players, this needs to be fixed before direct payment mode is enabled again
 
 	/**
@@ -336,6 +524,24 @@ public interface PluginConfig extends Config
 		return true;
 	}
 
+	/**
+	 * Detection rules of the user's own, one per line as "TYPE: regex" with TYPE PVM, PVP or ADD
+	 * and the regex holding a (?&lt;value&gt;...) group and optionally a (?&lt;player&gt;...) group.
+	 * See {@link com.splitmanager.DetectionRules}.
+	 *
+	 * @return the rules, empty for none
+	 */
+	@ConfigItem(
+		keyName = "detectionRules",
+		name = "Custom detection rules",
+		description = "One rule per line: TYPE: regex, with TYPE PVM, PVP or ADD. The regex needs a (?<value>...) group and may have a (?<player>...) group, otherwise the sender gets the value. Invalid rules are ignored and listed in the chat box.",
+		section = chatDetectionSection
+	)
+	default String detectionRules()
+	{
+		return "";
+	}
+
 	/**
 	 * Determines if the system should automatically apply when the suggested player
 	 * (or their main account) is already in the active session, bypassing the waitlist.
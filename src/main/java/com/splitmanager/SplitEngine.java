@@ -0,0 +1,634 @@
+package com.splitmanager;
+
+import com.splitmanager.models.Kill;
+import com.splitmanager.models.PlayerMetrics;
+import com.splitmanager.models.SegmentMetrics;
+import com.splitmanager.models.Session;
+import com.splitmanager.models.Transfer;
+import com.splitmanager.utils.PaymentProcessor;
+import com.splitmanager.utils.PlayerKey;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+
+/**
+ * Running split state of one session thread (mother + children).
+ * <p>
+ * The split math is the same as before: within each segment every roster member's loot is
+ * compared to the average of that segment's roster, and a player's split is the sum of those
+ * differences over the segments they were in. Instead of rebuilding this from every kill on
+ * each read, the engine keeps per-segment totals and, per player, the thread total plus the
+ * sum of the averages of their segments. Each kill, kill edit or roster change is applied as a
+ * delta, so reading the metrics costs the same whether the thread has 10 kills or 10,000.
+ * <p>
+ * Players are interned by {@link PlayerKey} into dense ids per thread and all sums are kept in
+ * primitive long arrays indexed by those ids; names are only mapped back when the metrics rows
+ * are built, using the spelling the player was first seen with.
+ * <p>
+ * Every change bumps the engine's version. Metrics and transfers are memoized per session against
+ * that version and the known players version, so the panel, the direct payments view and the
+ * clipboard exports share one computation until something actually changes.
+ * <p>
+ * Loot and kill counts per player and per segment are kept as running counters as well, so the
+ * hourly rates only need the time spans of the segments, which are read from their sessions.
+ * <p>
+ * A finished thread can be frozen together with the engine's sums (see {@link FrozenThread}); the
+ * engine restored from it only records what each kill counts as once the thread is changed.
+ * <p>
+ * Only regular loot counts; JOINED/LEFT events are ignored. Loot by a player who is not on the
+ * segment's roster is not counted, as before.
+ */
+public class SplitEngine
+{
+	/**
+	 * Running sums of one segment. Roster members are kept as player ids, looked up by a scan
+	 * since rosters are small.
+	 */
+	private static final class Segment
+	{
+		// Start and end of the segment are read from the session itself, they are not part of the sums
+		private final Session session;
+		private int[] members = new int[0];
+		// Loot per roster member within this segment, parallel to members
+		private long[] totals = new long[0];
+		private long sum;
+		private long avg;
+		// Counted loot kills, for the hourly rates
+		private long kills;
+
+		private Segment(Session session)
+		{
+			this.session = session;
+		}
+
+		/**
+		 * @return position of the player in this segment's roster, or -1 if not on it
+		 */
+		private int slotOf(int player)
+		{
+			return indexOf(members, members.length, player);
+		}
+	}
+
+	/**
+	 * What a kill was counted as, so an in-place edit can be taken back out.
+	 */
+	private static final class Counted
+	{
+		private final Segment segment;
+		// Position in the segment's roster, -1 when the player is not on it
+		private final int slot;
+		private final long amount;
+
+		private Counted(Segment segment, int slot, long amount)
+		{
+			this.segment = segment;
+			this.slot = slot;
+			this.amount = amount;
+		}
+	}
+
+	/**
+	 * Results read for one session of the thread, valid for one engine and known players version.
+	 */
+	private static final class Memo
+	{
+		private final long version;
+		private final long knownVersion;
+		private List<PlayerMetrics> activeOnly;
+		private List<PlayerMetrics> all;
+		private List<Transfer> transfers;
+
+		private Memo(long version, long knownVersion)
+		{
+			this.version = version;
+			this.knownVersion = knownVersion;
+		}
+	}
+
+	/**
+	 * Final sums of an engine, stored with a {@link FrozenThread} so the engine can be restored
+	 * without counting the kills again. Segments are in the order of the frozen thread.
+	 */
+	static final class Settlement
+	{
+		// Per player id
+		private final String[] names;
+		private final long[] totals;
+		private final long[] avgSums;
+		private final long[] killCounts;
+		// Per segment; the members of segment i are members[memberStart[i] .. memberStart[i + 1])
+		private final int[] memberStart;
+		private final int[] members;
+		private final long[] memberTotals;
+		private final long[] sums;
+		private final long[] avgs;
+		private final long[] kills;
+
+		private Settlement(SplitEngine engine, List<Segment> order)
+		{
+			int players = engine.names.size();
+			this.names = engine.names.toArray(new String[0]);
+			this.totals = Arrays.copyOf(engine.totals, players);
+			this.avgSums = Arrays.copyOf(engine.avgSums, players);
+			this.killCounts = Arrays.copyOf(engine.killCounts, players);
+			this.memberStart = new int[order.size() + 1];
+			int memberCount = 0;
+			for (Segment seg : order)
+			{
+				memberCount += seg.members.length;
+			}
+			this.members = new int[memberCount];
+			this.memberTotals = new long[memberCount];
+			this.sums = new long[order.size()];
+			this.avgs = new long[order.size()];
+			this.kills = new long[order.size()];
+			int m = 0;
+			for (int i = 0; i < order.size(); i++)
+			{
+				Segment seg = order.get(i);
+				memberStart[i] = m;
+				System.arraycopy(seg.members, 0, members, m, seg.members.length);
+				System.arraycopy(seg.totals, 0, memberTotals, m, seg.members.length);
+				m += seg.members.length;
+				sums[i] = seg.sum;
+				avgs[i] = seg.avg;
+				kills[i] = seg.kills;
+			}
+			memberStart[order.size()] = m;
+		}
+	}
+
+	// Segments by session id
+	private final Map<String, Segment> segments = new LinkedHashMap<>();
+	// Dense player ids of this thread by player key, in order of appearance
+	private final Map<String, Integer> playerIds = new LinkedHashMap<>();
+	// Per player id: name as first seen
+	private final List<String> names = new ArrayList<>();
+	// Per player id: its key, so reads do not derive it again
+	private final List<String> keys = new ArrayList<>();
+	// Per player id: total loot in the segments they were in
+	private long[] totals = new long[8];
+	// Per player id: sum of the averages of the segments they were in
+	private long[] avgSums = new long[8];
+	// Per player id: counted loot kills, for the hourly rates
+	private long[] killCounts = new long[8];
+	// Kills currently counted, by identity since kills are edited in place
+	private final Map<Kill, Counted> counted = new IdentityHashMap<>();
+	// Memoized reads by session id
+	private final Map<String, Memo> memos = new HashMap<>();
+	// Set when restored from a frozen thread: the kills are not in counted yet, see materialize()
+	private FrozenThread frozen;
+	/**
+	 * Modification version of the thread, bumped by every change that can affect the metrics.
+	 */
+	@Getter
+	private long version;
+
+	/**
+	 * Build the engine for a thread. This is the only step that visits every kill.
+	 *
+	 * @param thread segments of the thread, mother first
+	 */
+	public SplitEngine(Collection<Session> thread)
+	{
+		for (Session s : thread)
+		{
+			addSession(s);
+		}
+	}
+
+	/**
+	 * Restore the engine of a frozen thread from its stored sums, without visiting the kills.
+	 *
+	 * @param thread the thawed sessions of the frozen thread, in its order
+	 * @param frozen the frozen thread
+	 */
+	public SplitEngine(List<Session> thread, FrozenThread frozen)
+	{
+		Settlement st = frozen.settlement;
+		for (String name : st.names)
+		{
+			String key = PlayerKey.of(name);
+			playerIds.put(key, names.size());
+			names.add(name);
+			keys.add(key);
+		}
+		int capacity = Math.max(8, st.names.length);
+		totals = Arrays.copyOf(st.totals, capacity);
+		avgSums = Arrays.copyOf(st.avgSums, capacity);
+		killCounts = Arrays.copyOf(st.killCounts, capacity);
+		for (int i = 0; i < thread.size(); i++)
+		{
+			Segment seg = new Segment(thread.get(i));
+			seg.members = Arrays.copyOfRange(st.members, st.memberStart[i], st.memberStart[i + 1]);
+			seg.totals = Arrays.copyOfRange(st.memberTotals, st.memberStart[i], st.memberStart[i + 1]);
+			seg.sum = st.sums[i];
+			seg.avg = st.avgs[i];
+			seg.kills = st.kills[i];
+			segments.put(seg.session.getId(), seg);
+		}
+		this.frozen = frozen;
+	}
+
+	/**
+	 * Sums of this engine for freezing the given thread.
+	 *
+	 * @param thread sessions of the thread, each tracked by this engine
+	 * @return the sums with segments in the order of the thread
+	 */
+	Settlement settlement(List<Session> thread)
+	{
+		List<Segment> order = new ArrayList<>(thread.size());
+		for (Session s : thread)
+		{
+			Segment seg = segments.get(s.getId());
+			if (seg == null)
+			{
+				throw new IllegalArgumentException("Session " + s.getId() + " is not part of this thread");
+			}
+			order.add(seg);
+		}
+		return new Settlement(this, order);
+	}
+
+	/**
+	 * Start tracking a segment, including any kills it already has.
+	 */
+	public void addSession(Session s)
+	{
+		materialize();
+		Segment seg = new Segment(s);
+		segments.put(s.getId(), seg);
+		setRoster(seg, s);
+		for (Kill k : s.getKills())
+		{
+			addKill(k);
+		}
+	}
+
+	/**
+	 * Count a kill that was added to one of the thread's segments.
+	 */
+	public void addKill(Kill k)
+	{
+		materialize();
+		Counted c = count(k);
+		if (c != null)
+		{
+			counted.put(k, c);
+			apply(c, 1);
+		}
+	}
+
+	/**
+	 * Re-count a kill whose player, amount or type was changed in place. Only the kill's own
+	 * segment is touched, and an edit that does not change what is counted changes nothing.
+	 */
+	public void killChanged(Kill k)
+	{
+		materialize();
+		Counted now = count(k);
+		Counted old = counted.get(k);
+		if (old != null && now != null && old.segment == now.segment && old.slot == now.slot && old.amount == now.amount)
+		{
+			return;
+		}
+		if (old != null)
+		{
+			counted.remove(k);
+			apply(old, -1);
+		}
+		if (now != null)
+		{
+			counted.put(k, now);
+			apply(now, 1);
+		}
+	}
+
+	/**
+	 * Record what the kills of a restored engine count as, before the first change. The frozen
+	 * values are used rather than the kills themselves, since a kill may already have been edited
+	 * in place when its change is reported.
+	 */
+	private void materialize()
+	{
+		if (frozen == null)
+		{
+			return;
+		}
+		FrozenThread f = frozen;
+		frozen = null;
+		int i = 0;
+		for (Segment seg : segments.values())
+		{
+			List<Kill> kills = seg.session.getKills();
+			int n = Math.min(f.killCount(i), kills.size());
+			for (int j = 0; j < n; j++)
+			{
+				if (!isLoot(f.killType(i, j)))
+				{
+					continue;
+				}
+				String name = f.killPlayer(i, j);
+				Integer player = name == null ? null : playerIds.get(PlayerKey.of(name));
+				int slot = player == null ? -1 : seg.slotOf(player);
+				counted.put(kills.get(j), new Counted(seg, slot, f.killAmount(i, j)));
+			}
+			i++;
+		}
+	}
+
+	/**
+	 * @return what the kill counts as right now, or null if it does not count
+	 */
+	private Counted count(Kill k)
+	{
+		Segment seg = segments.get(k.getSessionId());
+		if (seg == null || !isLoot(k))
+		{
+			return null;
+		}
+		Integer player = k.getPlayer() == null ? null : playerIds.get(PlayerKey.of(k.getPlayer()));
+		int slot = player == null ? -1 : seg.slotOf(player);
+		return new Counted(seg, slot, k.getAmount() == null ? 0L : k.getAmount());
+	}
+
+	/**
+	 * Re-apply the roster of a segment after players were added or removed in place.
+	 * Only that segment's kills are visited again.
+	 */
+	public void rosterChanged(Session s)
+	{
+		materialize();
+		Segment seg = segments.get(s.getId());
+		if (seg == null)
+		{
+			addSession(s);
+			return;
+		}
+		for (Kill k : s.getKills())
+		{
+			Counted c = counted.remove(k);
+			if (c != null)
+			{
+				apply(c, -1);
+			}
+		}
+		setRoster(seg, s);
+		for (Kill k : s.getKills())
+		{
+			addKill(k);
+		}
+	}
+
+	/**
+	 * Read the metrics of the thread. The result is memoized until the thread or the known players change.
+	 *
+	 * @param s                       session of the thread whose roster counts as active
+	 * @param includeNonActivePlayers include known players and everyone who appeared in the thread,
+	 *                                instead of only the roster of s
+	 * @param knownPlayers            known players, listed first when includeNonActivePlayers is set
+	 * @param knownVersion            version of the known players
+	 * @return read-only list with one row per included player; players that are not active and have
+	 * nothing to settle are omitted
+	 */
+	public List<PlayerMetrics> metrics(Session s, boolean includeNonActivePlayers, Collection<String> knownPlayers,
+									   long knownVersion)
+	{
+		Memo memo = memo(s, knownVersion);
+		if (includeNonActivePlayers)
+		{
+			if (memo.all == null)
+			{
+				memo.all = Collections.unmodifiableList(compute(s, true, knownPlayers));
+			}
+			return memo.all;
+		}
+		if (memo.activeOnly == null)
+		{
+			memo.activeOnly = Collections.unmodifiableList(compute(s, false, knownPlayers));
+		}
+		return memo.activeOnly;
+	}
+
+	/**
+	 * Suggested direct payments settling the metrics of {@link #metrics} with non-active players included.
+	 * Memoized like the metrics.
+	 *
+	 * @return read-only list of transfers
+	 */
+	public List<Transfer> transfers(Session s, Collection<String> knownPlayers, long knownVersion)
+	{
+		Memo memo = memo(s, knownVersion);
+		if (memo.transfers == null)
+		{
+			memo.transfers = Collections.unmodifiableList(
+				PaymentProcessor.computeDirectPaymentsStructured(metrics(s, true, knownPlayers, knownVersion)));
+		}
+		return memo.transfers;
+	}
+
+	/**
+	 * Loot, kill count and time span of one segment, for its hourly rates.
+	 *
+	 * @return the segment's numbers, or null if the session is not part of this thread
+	 */
+	public SegmentMetrics segmentMetrics(Session s)
+	{
+		Segment seg = segments.get(s.getId());
+		if (seg == null)
+		{
+			return null;
+		}
+		return new SegmentMetrics(s.getId(), s.getStart(), s.getEnd(), seg.sum, seg.kills);
+	}
+
+	private Memo memo(Session s, long knownVersion)
+	{
+		Memo memo = memos.get(s.getId());
+		if (memo == null || memo.version != version || memo.knownVersion != knownVersion)
+		{
+			memo = new Memo(version, knownVersion);
+			memos.put(s.getId(), memo);
+		}
+		return memo;
+	}
+
+	private List<PlayerMetrics> compute(Session s, boolean includeNonActivePlayers, Collection<String> knownPlayers)
+	{
+		// Player key -> name shown, so each player gets one row whatever spellings were used
+		Map<String, String> included = new LinkedHashMap<>();
+		if (includeNonActivePlayers)
+		{
+			for (String p : knownPlayers)
+			{
+				included.putIfAbsent(PlayerKey.of(p), p);
+			}
+			for (int id = 0; id < names.size(); id++)
+			{
+				included.putIfAbsent(keys.get(id), names.get(id));
+			}
+		}
+		else
+		{
+			for (String p : s.getPlayers())
+			{
+				included.putIfAbsent(PlayerKey.of(p), p);
+			}
+		}
+
+		// Time per player in finished segments, and the start of the running segment they are in.
+		// This visits segments, not kills, and only when the thread changed since the last read.
+		long[] activeMillis = new long[playerIds.size()];
+		Instant[] activeSince = new Instant[playerIds.size()];
+		for (Segment seg : segments.values())
+		{
+			Instant start = seg.session.getStart();
+			Instant end = seg.session.getEnd();
+			if (start == null)
+			{
+				continue;
+			}
+			for (int p : seg.members)
+			{
+				if (end == null)
+				{
+					activeSince[p] = activeSince[p] == null || start.isBefore(activeSince[p]) ? start : activeSince[p];
+				}
+				else
+				{
+					activeMillis[p] += Math.max(0L, end.toEpochMilli() - start.toEpochMilli());
+				}
+			}
+		}
+
+		List<PlayerMetrics> out = new ArrayList<>();
+		for (Map.Entry<String, String> e : included.entrySet())
+		{
+			String p = e.getValue();
+			boolean isActiveNow = s.hasPlayerKey(e.getKey());
+			Integer id = playerIds.get(e.getKey());
+			long total = id == null ? 0L : totals[id];
+			long split = id == null ? 0L : totals[id] - avgSums[id];
+
+			// Skip players with total = 0, unless they are active now
+			if (!isActiveNow && total == 0 && split == 0)
+			{
+				continue;
+			}
+			out.add(id == null
+				? new PlayerMetrics(p, total, split, isActiveNow)
+				: new PlayerMetrics(p, total, split, isActiveNow, killCounts[id], activeMillis[id], activeSince[id]));
+		}
+		return out;
+	}
+
+	private int intern(String player)
+	{
+		String key = PlayerKey.of(player);
+		Integer id = playerIds.get(key);
+		if (id != null)
+		{
+			return id;
+		}
+		int next = playerIds.size();
+		if (next == totals.length)
+		{
+			totals = Arrays.copyOf(totals, next * 2);
+			avgSums = Arrays.copyOf(avgSums, next * 2);
+			killCounts = Arrays.copyOf(killCounts, next * 2);
+		}
+		playerIds.put(key, next);
+		names.add(player);
+		keys.add(key);
+		return next;
+	}
+
+	private void setRoster(Segment seg, Session s)
+	{
+		version++;
+		// The segment holds no counted kills here, only its average is still credited to the old roster
+		setAvg(seg, 0L);
+		int[] members = new int[s.getPlayers().size()];
+		int i = 0;
+		for (String p : s.getPlayers())
+		{
+			int id = intern(p);
+			// Rosters stored before names were compared by key may hold two spellings of one player
+			if (indexOf(members, i, id) < 0)
+			{
+				members[i++] = id;
+			}
+		}
+		seg.members = i == members.length ? members : Arrays.copyOf(members, i);
+		seg.totals = new long[seg.members.length];
+		seg.sum = 0L;
+		seg.kills = 0L;
+	}
+
+	private static int indexOf(int[] a, int length, int v)
+	{
+		for (int i = 0; i < length; i++)
+		{
+			if (a[i] == v)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Add (sign 1) or remove (sign -1) a counted kill and move the segment average accordingly.
+	 */
+	private void apply(Counted c, int sign)
+	{
+		version++;
+		if (c.slot < 0)
+		{
+			// Not on this segment's roster
+			return;
+		}
+		Segment seg = c.segment;
+		long delta = sign * c.amount;
+		seg.totals[c.slot] += delta;
+		seg.sum += delta;
+		seg.kills += sign;
+		totals[seg.members[c.slot]] += delta;
+		killCounts[seg.members[c.slot]] += sign;
+		setAvg(seg, seg.sum / seg.members.length);
+	}
+
+	private void setAvg(Segment seg, long avg)
+	{
+		long delta = avg - seg.avg;
+		if (delta == 0)
+		{
+			return;
+		}
+		for (int p : seg.members)
+		{
+			avgSums[p] += delta;
+		}
+		seg.avg = avg;
+	}
+
+	private static boolean isLoot(Kill k)
+	{
+		return isLoot(k.getType());
+	}
+
+	private static boolean isLoot(String type)
+	{
+		return type == null || type.equalsIgnoreCase("LOOT");
+	}
+}
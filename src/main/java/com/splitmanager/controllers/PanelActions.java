@@ -1,5 +1,7 @@
 package com.splitmanager.controllers;
 
+import com.splitmanager.models.Kill;
+
 /**
  * Actions that the PanelView can invoke on its controller.
  */
@@ -86,6 +88,30 @@ public interface PanelActions
 	 */
 	void onKnownPlayerSelectionChanged(String selected);
 
+	/**
+	 * Open a past session read-only.
+	 *
+	 * @param sessionId id of the session selected in the history list
+	 */
+	void loadHistory(String sessionId);
+
+	/**
+	 * Leave history mode and return to the live session.
+	 */
+	void unloadHistory();
+
+	/**
+	 * Export the thread of a session as JSON to a file chosen by the user.
+	 *
+	 * @param sessionId id of the session selected in the history list
+	 */
+	void exportThread(String sessionId);
+
+	/**
+	 * Export every stored session as JSON to a file chosen by the user.
+	 */
+	void exportAllSessions();
+
 	/**
 	 * Refresh all sections of the view; idempotent and safe after mutations.
 	 */
@@ -98,6 +124,18 @@ public interface PanelActions
 
 	void recomputeMetricsForSession(String sessionId);
 
+	/**
+	 * Repaint the hourly rates for the current time, once a second; must not recompute metrics.
+	 */
+	void tickRates();
+
+	/**
+	 * Persist an in-place edit made to a kill and refresh the metrics of its session.
+	 *
+	 * @param kill the edited kill
+	 */
+	void killEdited(Kill kill);
+
 	void altPlayerManageAddPlayer(String player);
 
 	void altPlayerManageRemovePlayer(String player);
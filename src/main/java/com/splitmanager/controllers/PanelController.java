@@ -4,9 +4,11 @@ import com.splitmanager.ManagerKnownPlayers;
 import com.splitmanager.ManagerPanel;
 import com.splitmanager.ManagerSession;
 import com.splitmanager.PluginConfig;
+import com.splitmanager.models.Kill;
 import com.splitmanager.models.Metrics;
 import com.splitmanager.models.PendingValue;
 import com.splitmanager.models.Session;
+import com.splitmanager.models.SessionHeader;
 import com.splitmanager.models.WaitlistTable;
 import com.splitmanager.utils.Formats;
 import com.splitmanager.utils.MarkdownFormatter;
@@ -14,12 +16,17 @@ import static com.splitmanager.utils.Utils.toast;
 import com.splitmanager.views.PanelView;
 import java.awt.Toolkit;
 import java.awt.datatransfer.StringSelection;
+import java.io.File;
+import java.nio.file.Path;
 import java.util.List;
 import javax.swing.DefaultCellEditor;
 import javax.swing.DefaultComboBoxModel;
 import javax.swing.DefaultListModel;
 import javax.swing.JComboBox;
+import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
@@ -350,6 +357,76 @@ public class PanelController implements PanelActions
 		refreshAllView();
 	}
 
+	@Override
+	public void loadHistory(String sessionId)
+	{
+		if (sessionId == null)
+		{
+			toast(view, "Select a session in the history list.");
+			return;
+		}
+		if (sessionManager.hasActiveSession())
+		{
+			toast(view, "Stop the active session first.");
+			return;
+		}
+		if (sessionManager.loadHistory(sessionId).isEmpty())
+		{
+			toast(view, "Failed to load session.");
+		}
+		refreshAllView();
+	}
+
+	@Override
+	public void unloadHistory()
+	{
+		if (!sessionManager.isHistoryLoaded())
+		{
+			return;
+		}
+		sessionManager.unloadHistory();
+		refreshAllView();
+	}
+
+	@Override
+	public void exportThread(String sessionId)
+	{
+		if (sessionId == null)
+		{
+			toast(view, "Select a session in the history list.");
+			return;
+		}
+		exportToChosenFile(sessionId, "split-session.json");
+	}
+
+	@Override
+	public void exportAllSessions()
+	{
+		exportToChosenFile(null, "split-sessions.json");
+	}
+
+	/**
+	 * Ask for a target file and export in the background; the result is reported once the file is written.
+	 *
+	 * @param sessionId session whose thread to export, or null for all sessions
+	 */
+	private void exportToChosenFile(String sessionId, String defaultName)
+	{
+		JFileChooser chooser = new JFileChooser();
+		chooser.setDialogTitle("Export sessions");
+		chooser.setFileFilter(new FileNameExtensionFilter("JSON files", "json"));
+		chooser.setSelectedFile(new File(defaultName));
+		if (chooser.showSaveDialog(view) != JFileChooser.APPROVE_OPTION)
+		{
+			return;
+		}
+		Path file = chooser.getSelectedFile().toPath();
+		sessionManager.exportToFile(sessionId, true, file).whenComplete((count, error) ->
+			SwingUtilities.invokeLater(() -> toast(view, error == null
+				? "Exported " + count + " sessions."
+				: "Export failed: " + error.getMessage())));
+	}
+
 	@Override
 	public void onKnownPlayerSelectionChanged(String selected)
 	{
@@ -363,12 +440,20 @@ public class PanelController implements PanelActions
 		recomputeMetrics();
 		refreshSessionData();
 		refreshWaitlist();
+		refreshHistory();
+		refreshLifetime();
 		refreshButtonStates();
 	}
 
 	@Override
 	public void recomputeMetrics()
 	{
+		Session history = sessionManager.getHistorySession().orElse(null);
+		if (history != null)
+		{
+			recomputeMetricsForSession(history.getId());
+			return;
+		}
 		Session current = sessionManager.getCurrentSession().orElse(null);
 		if (current != null)
 		{
@@ -391,20 +476,37 @@ public class PanelController implements PanelActions
 			return;
 		}
 		// Find that session (either current or one from history)
-		Session target = sessionManager.getAllSessionsNewestFirst().stream()
-			.filter(s -> sessionId.equals(s.getId()))
-			.findFirst().orElse(null);
-		if (target != null)
-		{
-			((Metrics) view.getMetricsTable().getModel()).setData(
-				sessionManager.computeMetricsFor(target, true)
-			);
-			view.refreshMetrics();
-		}
+		sessionManager.getSession(sessionId).ifPresent(this::showMetricsFor);
 		// Keep the recent splits list up-to-date (it shows all kills)
 		view.getRecentSplitsModel().setFromKills(sessionManager.getAllKills());
 	}
 
+	@Override
+	public void tickRates()
+	{
+		view.tickRates();
+	}
+
+	@Override
+	public void killEdited(Kill kill)
+	{
+		if (kill == null)
+		{
+			recomputeMetrics();
+			return;
+		}
+		// The edited row is already updated in place and the split engine takes the edit as a delta,
+		// so only the metrics views are refreshed; the recent splits list is not rebuilt
+		sessionManager.recordKillEdit(kill);
+		sessionManager.getSession(kill.getSessionId()).ifPresent(this::showMetricsFor);
+	}
+
+	private void showMetricsFor(Session target)
+	{
+		((Metrics) view.getMetricsTable().getModel()).setData(sessionManager.computeMetricsFor(target, true));
+		view.refreshMetrics();
+	}
+
 	@Override
 	public void altPlayerManageAddPlayer(String player)
 	{
@@ -428,9 +530,9 @@ public class PanelController implements PanelActions
 	@Override
 	public void copyMetricsMarkdown()
 	{
+		Session currentSession = sessionManager.getCurrentSession().orElse(null);
 		String payload = MarkdownFormatter.buildMetricsMarkdown(
-			sessionManager.computeMetricsFor(
-				sessionManager.getCurrentSession().orElse(null), true), config);
+			sessionManager.computeMetricsFor(currentSession, true), sessionManager.computeTransfersFor(currentSession), config);
 		StringSelection selection = new StringSelection(payload);
 		Toolkit.getDefaultToolkit().getSystemClipboard().setContents(selection, selection);
 	}
@@ -515,12 +617,40 @@ public class PanelController implements PanelActions
 				.setData(sessionManager.computeMetricsFor(current, true));
 			view.getRecentSplitsModel().setFromKills(sessionManager.getAllKills());
 		}
-		else
+		else if (!sessionManager.isHistoryLoaded())
 		{
 			view.getRecentSplitsModel().clear();
 		}
 	}
 
+	/**
+	 * Refreshes the history list from the session header index, keeping the selection.
+	 * Only headers are read here, the kills of a session are loaded when it is opened.
+	 */
+	private void refreshHistory()
+	{
+		DefaultListModel<SessionHeader> model = view.getHistoryModel();
+		SessionHeader selected = view.getHistoryList().getSelectedValue();
+		model.clear();
+		for (SessionHeader h : sessionManager.getSessionHeadersNewestFirst(view.getShowArchivedHistory().isSelected()))
+		{
+			model.addElement(h);
+			if (selected != null && selected.getId().equals(h.getId()))
+			{
+				view.getHistoryList().setSelectedIndex(model.size() - 1);
+			}
+		}
+	}
+
+	/**
+	 * Refreshes the lifetime table from the stored rollups; no session thread is read for this.
+	 */
+	private void refreshLifetime()
+	{
+		view.getLifetimeModel().setData(sessionManager.getLifetimeRollups());
+		view.getLifetimeStatus().setText(sessionManager.isLifetimeUpdating() ? "Adding older sessions..." : " ");
+	}
+
 	/**
 	 * Refreshes the data and UI components related to the waitlist table.
 	 * <p>
@@ -569,6 +699,9 @@ public class PanelController implements PanelActions
 
 		view.getBtnWaitlistAdd().setEnabled(!readOnly && hasActiveSession && waitlistRows > 0);
 		view.getBtnWaitlistDelete().setEnabled(waitlistRows > 0);
+
+		view.getBtnLoadHistory().setEnabled(!hasActiveSession);
+		view.getBtnUnloadHistory().setEnabled(readOnly);
 	}
 
 	/**
@@ -0,0 +1,27 @@
+package com.splitmanager.models;
+
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * Result of a bulk recomputation over many session threads, e.g. a monthly summary or an audit
+ * of every stored split: the metrics of each thread, and the numbers per player over all of them.
+ */
+@Getter
+public class HistoryReport
+{
+	/**
+	 * One entry per thread that could be read, oldest first.
+	 */
+	private final List<ThreadReport> threads;
+	/**
+	 * Numbers per player over all threads, highest net first.
+	 */
+	private final List<PlayerRollup> players;
+
+	public HistoryReport(List<ThreadReport> threads, List<PlayerRollup> players)
+	{
+		this.threads = threads;
+		this.players = players;
+	}
+}
@@ -0,0 +1,68 @@
+package com.splitmanager.models;
+
+import static com.splitmanager.utils.Formats.OsrsAmountFormatter.toSuffixString;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Read-only table of the lifetime rollups, one row per player.
+ */
+@SuppressWarnings("serial")
+public class LifetimeTable extends AbstractTableModel
+{
+	private final String[] cols = {"Player", "Sessions", "Total", "Net"};
+	private final List<PlayerRollup> rows = new ArrayList<>();
+
+	public void setData(List<PlayerRollup> rollups)
+	{
+		rows.clear();
+		if (rollups != null)
+		{
+			rows.addAll(rollups);
+		}
+		fireTableDataChanged();
+	}
+
+	@Override
+	public int getRowCount()
+	{
+		return rows.size();
+	}
+
+	@Override
+	public int getColumnCount()
+	{
+		return cols.length;
+	}
+
+	@Override
+	public Object getValueAt(int rowIndex, int columnIndex)
+	{
+		PlayerRollup r = rows.get(rowIndex);
+		switch (columnIndex)
+		{
+			case 0:
+				return r.getPlayer();
+			case 1:
+				return r.getSessions();
+			case 2:
+				return toSuffixString(r.getTotal(), 'k');
+			case 3:
+				return toSuffixString(r.getNet(), 'k');
+		}
+		return null;
+	}
+
+	@Override
+	public String getColumnName(int column)
+	{
+		return cols[column];
+	}
+
+	@Override
+	public Class<?> getColumnClass(int columnIndex)
+	{
+		return columnIndex == 1 ? Integer.class : String.class;
+	}
+}
@@ -2,6 +2,8 @@ package com.splitmanager.models;
 
 import com.splitmanager.utils.Formats;
 import java.awt.image.BufferedImage;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -14,10 +16,19 @@ import net.runelite.client.util.ImageUtil;
 
 public final class Metrics extends AbstractTableModel
 {
+	private static final String COL_PLAYER = "Player";
+	private static final String COL_TOTAL = "Total";
+	private static final String COL_SPLIT = "Split";
+	private static final String COL_GP_RATE = "GP/h";
+	private static final String COL_KILL_RATE = "Kills/h";
+	private static final String COL_ACTION = "X";
+
 	private final JButton removeBtn = createStyledButton("/com/splitmanager/icons/trash-solid-full.png");
 	private final JButton addBtn = createStyledButton("/com/splitmanager/icons/trash-arrow-up-solid-full.png");
 	private List<PlayerMetrics> rows = List.of();
 	private boolean hideTotalColumn = false;
+	private boolean showRates = false;
+	private List<String> columns = columnsFor(false, false);
 
 	private static JButton createStyledButton(String iconPath)
 	{
@@ -33,6 +44,7 @@ public final class Metrics extends AbstractTableModel
 		if (this.hideTotalColumn != hide)
 		{
 			this.hideTotalColumn = hide;
+			columns = columnsFor(hideTotalColumn, showRates);
 			fireTableStructureChanged();
 		}
 	}
@@ -42,6 +54,52 @@ public final class Metrics extends AbstractTableModel
 		return hideTotalColumn;
 	}
 
+	public void setShowRates(boolean show)
+	{
+		if (this.showRates != show)
+		{
+			this.showRates = show;
+			columns = columnsFor(hideTotalColumn, showRates);
+			fireTableStructureChanged();
+		}
+	}
+
+	public boolean isShowingRates()
+	{
+		return showRates;
+	}
+
+	/**
+	 * Repaint the rate columns for the current time. The rows are not replaced, the rates are
+	 * derived from what they carry.
+	 */
+	public void tickRates()
+	{
+		if (showRates && !rows.isEmpty())
+		{
+			fireTableRowsUpdated(0, rows.size() - 1);
+		}
+	}
+
+	// The action column stays last, the view sizes it by position
+	private static List<String> columnsFor(boolean hideTotal, boolean rates)
+	{
+		List<String> out = new ArrayList<>();
+		out.add(COL_PLAYER);
+		if (!hideTotal)
+		{
+			out.add(COL_TOTAL);
+		}
+		out.add(COL_SPLIT);
+		if (rates)
+		{
+			out.add(COL_GP_RATE);
+			out.add(COL_KILL_RATE);
+		}
+		out.add(COL_ACTION);
+		return out;
+	}
+
 	public void setData(List<PlayerMetrics> rows)
 	{
 		// Sort: active first, inactive at bottom; stable within groups
@@ -70,78 +128,36 @@ public final class Metrics extends AbstractTableModel
 	@Override
 	public int getColumnCount()
 	{
-		return hideTotalColumn ? 3 : 4;
+		return columns.size();
 	}
 
 	@Override
 	public Object getValueAt(int rowIndex, int columnIndex)
 	{
 		var r = rows.get(rowIndex);
-		if (!hideTotalColumn)
-		{
-			switch (columnIndex)
-			{
-				case 0:
-					return r.player;
-				case 1:
-					return Formats.OsrsAmountFormatter.toSuffixString(r.total, 'k');
-				case 2:
-					return Formats.OsrsAmountFormatter.toSuffixString(r.split, 'k');
-				case 3:
-					return r.activePlayer ? removeBtn : addBtn;
-				default:
-					return "";
-			}
-		}
-		else
+		switch (getColumnName(columnIndex))
 		{
-			switch (columnIndex)
-			{
-				case 0:
-					return r.player;
-				case 1:
-					return Formats.OsrsAmountFormatter.toSuffixString(r.split, 'k');
-				case 2:
-					return r.activePlayer ? removeBtn : addBtn;
-				default:
-					return "";
-			}
+			case COL_PLAYER:
+				return r.player;
+			case COL_TOTAL:
+				return Formats.OsrsAmountFormatter.toSuffixString(r.total, 'k');
+			case COL_SPLIT:
+				return Formats.OsrsAmountFormatter.toSuffixString(r.split, 'k');
+			case COL_GP_RATE:
+				return Formats.OsrsAmountFormatter.toSuffixString(r.gpPerHour(Instant.now()), 'k');
+			case COL_KILL_RATE:
+				return String.format("%.1f", r.killsPerHour(Instant.now()));
+			case COL_ACTION:
+				return r.activePlayer ? removeBtn : addBtn;
+			default:
+				return "";
 		}
 	}
 
 	@Override
 	public String getColumnName(int column)
 	{
-		if (!hideTotalColumn)
-		{
-			switch (column)
-			{
-				case 0:
-					return "Player";
-				case 1:
-					return "Total";
-				case 2:
-					return "Split";
-				case 3:
-					return "X";
-				default:
-					return "";
-			}
-		}
-		else
-		{
-			switch (column)
-			{
-				case 0:
-					return "Player";
-				case 1:
-					return "Split";
-				case 2:
-					return "X";
-				default:
-					return "";
-			}
-		}
+		return column >= 0 && column < columns.size() ? columns.get(column) : "";
 	}
 
 	@Override
@@ -154,8 +170,7 @@ public final class Metrics extends AbstractTableModel
 	@Override
 	public boolean isCellEditable(int rowIndex, int columnIndex)
 	{
-		int actionCol = hideTotalColumn ? 2 : 3;
-		return columnIndex == actionCol;
+		return columnIndex == columns.size() - 1;
 	}
 
 	// Accessor for renderers: raw split value for row
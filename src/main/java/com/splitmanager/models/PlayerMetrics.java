@@ -1,23 +1,79 @@
 package com.splitmanager.models;
 
+import java.time.Instant;
+
 /**
  * Aggregate row to display per-player totals and split deltas for a session thread.
  * total = sum of that player's kills across all sessions in the thread.
  * split = sum over each session in the thread of (playerTotalInThatSession - avgOfThatSessionRoster).
  * activePlayer indicates whether the player is on the provided session's current roster.
+ * <p>
+ * The row also carries what the hourly rates are derived from: the player's counted kills, the time
+ * spent in finished segments, and since when they are in the running segment, if they are. The rates
+ * are computed from that for any moment, so a ticking display does not need new rows.
  */
 public class PlayerMetrics
 {
+	private static final double MILLIS_PER_HOUR = 3_600_000d;
+
 	public final String player;
 	public final Long total;
 	public final Long split;
 	public final boolean activePlayer;
+	/**
+	 * Number of loot kills counted for the player.
+	 */
+	public final long kills;
+	/**
+	 * Time the player spent in finished segments of the thread, in milliseconds.
+	 */
+	public final long activeMillis;
+	/**
+	 * Start of the running segment if the player is on its roster, null otherwise.
+	 */
+	public final Instant activeSince;
 
 	public PlayerMetrics(String player, Long total, Long split, boolean activePlayer)
+	{
+		this(player, total, split, activePlayer, 0L, 0L, null);
+	}
+
+	public PlayerMetrics(String player, Long total, Long split, boolean activePlayer, long kills, long activeMillis,
+						 Instant activeSince)
 	{
 		this.player = player;
 		this.total = total;
 		this.split = split;
 		this.activePlayer = activePlayer;
+		this.kills = kills;
+		this.activeMillis = activeMillis;
+		this.activeSince = activeSince;
+	}
+
+	/**
+	 * @return time the player has been in the thread as of now, in milliseconds
+	 */
+	public long activeMillisAt(Instant now)
+	{
+		long running = activeSince == null ? 0L : Math.max(0L, now.toEpochMilli() - activeSince.toEpochMilli());
+		return activeMillis + running;
+	}
+
+	/**
+	 * @return loot per hour the player has been in the thread, 0 before any time has passed
+	 */
+	public long gpPerHour(Instant now)
+	{
+		long millis = activeMillisAt(now);
+		return millis <= 0 || total == null ? 0L : (long) (total * MILLIS_PER_HOUR / millis);
+	}
+
+	/**
+	 * @return kills per hour the player has been in the thread, 0 before any time has passed
+	 */
+	public double killsPerHour(Instant now)
+	{
+		long millis = activeMillisAt(now);
+		return millis <= 0 ? 0d : kills * MILLIS_PER_HOUR / millis;
 	}
 }
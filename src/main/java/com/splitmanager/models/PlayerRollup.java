@@ -0,0 +1,83 @@
+package com.splitmanager.models;
+
+import lombok.Getter;
+
+/**
+ * Lifetime numbers of one player over every finished session thread.
+ * total = sum of the player's loot over all threads.
+ * net = sum of the player's split over all threads, i.e. what was settled in their favour overall.
+ * sessions = number of threads the player was on the roster of at some point.
+ */
+@Getter
+public class PlayerRollup
+{
+	/**
+	 * Name as first seen; players are matched by their PlayerKey.
+	 */
+	private final String player;
+	private long total;
+	private long net;
+	private int sessions;
+
+	public PlayerRollup(String player)
+	{
+		this.player = player;
+	}
+
+	/**
+	 * Add the numbers of one thread.
+	 *
+	 * @param total    the player's loot in the thread
+	 * @param net      the player's split in the thread
+	 * @param attended true if the player was on the roster of the thread
+	 */
+	public void add(long total, long net, boolean attended)
+	{
+		this.total += total;
+		this.net += net;
+		if (attended)
+		{
+			sessions++;
+		}
+	}
+
+	/**
+	 * Add the numbers of another rollup of the same player.
+	 */
+	public void add(PlayerRollup other)
+	{
+		this.total += other.total;
+		this.net += other.net;
+		this.sessions += other.sessions;
+	}
+
+	/**
+	 * Take away the numbers of another rollup of the same player, e.g. a thread's old share.
+	 */
+	public void subtract(PlayerRollup other)
+	{
+		this.total -= other.total;
+		this.net -= other.net;
+		this.sessions -= other.sessions;
+	}
+
+	/**
+	 * @return true if nothing is counted for the player
+	 */
+	public boolean isEmpty()
+	{
+		return total == 0L && net == 0L && sessions == 0;
+	}
+
+	/**
+	 * @return copy of this rollup, safe to hand to the view or the background writer
+	 */
+	public PlayerRollup copy()
+	{
+		PlayerRollup c = new PlayerRollup(player);
+		c.total = total;
+		c.net = net;
+		c.sessions = sessions;
+		return c;
+	}
+}
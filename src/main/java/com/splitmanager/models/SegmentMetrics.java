@@ -0,0 +1,60 @@
+package com.splitmanager.models;
+
+import java.time.Instant;
+
+/**
+ * Loot and kill count of one child segment together with its time span, from which the hourly
+ * rates of the segment are derived for any moment.
+ */
+public class SegmentMetrics
+{
+	private static final double MILLIS_PER_HOUR = 3_600_000d;
+
+	public final String sessionId;
+	public final Instant start;
+	/**
+	 * Null while the segment is running.
+	 */
+	public final Instant end;
+	/**
+	 * Loot counted in the segment, i.e. by players on its roster.
+	 */
+	public final long total;
+	public final long kills;
+
+	public SegmentMetrics(String sessionId, Instant start, Instant end, long total, long kills)
+	{
+		this.sessionId = sessionId;
+		this.start = start;
+		this.end = end;
+		this.total = total;
+		this.kills = kills;
+	}
+
+	/**
+	 * @return length of the segment as of now, in milliseconds
+	 */
+	public long millisAt(Instant now)
+	{
+		Instant until = end != null ? end : now;
+		return start == null ? 0L : Math.max(0L, until.toEpochMilli() - start.toEpochMilli());
+	}
+
+	/**
+	 * @return loot per hour of the segment, 0 before any time has passed
+	 */
+	public long gpPerHour(Instant now)
+	{
+		long millis = millisAt(now);
+		return millis <= 0 ? 0L : (long) (total * MILLIS_PER_HOUR / millis);
+	}
+
+	/**
+	 * @return kills per hour of the segment, 0 before any time has passed
+	 */
+	public double killsPerHour(Instant now)
+	{
+		long millis = millisAt(now);
+		return millis <= 0 ? 0d : kills * MILLIS_PER_HOUR / millis;
+	}
+}
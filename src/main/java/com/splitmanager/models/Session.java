@@ -1,10 +1,15 @@
 package com.splitmanager.models;
 
+import com.splitmanager.utils.PlayerKey;
 import java.io.Serializable;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import lombok.Getter;
 import lombok.Setter;
@@ -28,6 +33,7 @@ import lombok.Setter;
  * - start/end: timestamps for this segment; end == null indicates the segment is currently active.
  * - motherId: null for the mother/root; otherwise the id of the mother that all children share.
  * - players: the roster for this segment (names are stored as mains; alts resolved earlier).
+ * Membership is checked by PlayerKey, so case and separator spelling do not matter.
  * - kills: ordered list of Kill records attributed during this segment.
  * <p>
  * Lifecycle notes
@@ -62,6 +68,11 @@ public class Session implements Serializable
 	 * Names are expected to be mains; alt->main resolution happens before mutation.
 	 */
 	private final Set<String> players = new LinkedHashSet<>();
+	/**
+	 * Roster by {@link PlayerKey}, mapping to the name as stored. Built on first use since
+	 * sessions are also created by deserialization.
+	 */
+	private transient Map<String, String> rosterIndex;
 	/**
 	 * Kills recorded during this segment, in insertion order.
 	 */
@@ -94,6 +105,102 @@ public class Session implements Serializable
 		return end == null;
 	}
 
+	/**
+	 * @return read-only roster of this segment; change it with {@link #addPlayer}, {@link #removePlayer}
+	 * or {@link #setPlayers}
+	 */
+	public Set<String> getPlayers()
+	{
+		return Collections.unmodifiableSet(players);
+	}
+
+	/**
+	 * @param name player name in any case or separator spelling
+	 * @return true if the player is on this segment's roster
+	 */
+	public boolean hasPlayer(String name)
+	{
+		return name != null && rosterIndex().containsKey(PlayerKey.of(name));
+	}
+
+	/**
+	 * @param key key of a player name as given by {@link PlayerKey#of}
+	 * @return true if the player is on this segment's roster
+	 */
+	public boolean hasPlayerKey(String key)
+	{
+		return rosterIndex().containsKey(key);
+	}
+
+	/**
+	 * @param name player name in any case or separator spelling
+	 * @return the name as it is stored on the roster, or null if the player is not on it
+	 */
+	public String findPlayer(String name)
+	{
+		return name == null ? null : rosterIndex().get(PlayerKey.of(name));
+	}
+
+	/**
+	 * Add a player to the roster unless a player with the same {@link PlayerKey} is on it already.
+	 *
+	 * @return true if the roster changed
+	 */
+	public boolean addPlayer(String name)
+	{
+		if (name == null || hasPlayer(name))
+		{
+			return false;
+		}
+		players.add(name);
+		rosterIndex.put(PlayerKey.of(name), name);
+		return true;
+	}
+
+	/**
+	 * Remove a player from the roster, whatever spelling it is stored with.
+	 *
+	 * @return true if the roster changed
+	 */
+	public boolean removePlayer(String name)
+	{
+		if (name == null)
+		{
+			return false;
+		}
+		String key = PlayerKey.of(name);
+		if (rosterIndex().remove(key) == null)
+		{
+			return false;
+		}
+		players.removeIf(p -> key.equals(PlayerKey.of(p)));
+		return true;
+	}
+
+	/**
+	 * Replace the roster as is, e.g. when restoring a stored segment.
+	 */
+	public void setPlayers(Collection<String> names)
+	{
+		players.clear();
+		players.addAll(names);
+		rosterIndex = null;
+	}
+
+	private Map<String, String> rosterIndex()
+	{
+		if (rosterIndex == null)
+		{
+			Map<String, String> index = new HashMap<>();
+			for (String p : players)
+			{
+				index.putIfAbsent(PlayerKey.of(p), p);
+			}
+			rosterIndex = index;
+		}
+		return rosterIndex;
+	}
+
 	/**
 	 * @return true if at least one kill has been recorded in this segment.
 	 */
@@ -101,4 +208,20 @@ public class Session implements Serializable
 	{
 		return !kills.isEmpty();
 	}
+
+	/**
+	 * Create a copy of this segment with its own roster and kill list, so it can be
+	 * serialized on another thread while this instance keeps being mutated.
+	 * Kill records themselves are shared.
+	 *
+	 * @return copy of this segment
+	 */
+	public Session copy()
+	{
+		Session c = new Session(id, start, motherId);
+		c.players.addAll(players);
+		c.kills.addAll(kills);
+		c.end = end;
+		return c;
+	}
 }
@@ -0,0 +1,99 @@
+package com.splitmanager.models;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import lombok.Getter;
+
+/**
+ * Lightweight summary of a Session segment for the history list.
+ * Headers are kept in the thread manifest so the history can be listed without reading
+ * any kill records; the full Session is only loaded when a history entry is opened.
+ * killCount and totalValue only count regular loot, JOINED/LEFT events are excluded.
+ * The header of a mother session summarizes its whole thread, see {@link #ofThread}.
+ */
+@Getter
+public class SessionHeader
+{
+	private final String id;
+	private final Instant start;
+	private final Instant end;
+	private final String motherId;
+	private final int rosterSize;
+	private final int killCount;
+	private final long totalValue;
+
+	public SessionHeader(String id, Instant start, Instant end, String motherId, int rosterSize, int killCount, long totalValue)
+	{
+		this.id = id;
+		this.start = start;
+		this.end = end;
+		this.motherId = motherId;
+		this.rosterSize = rosterSize;
+		this.killCount = killCount;
+		this.totalValue = totalValue;
+	}
+
+	/**
+	 * Summarize a segment.
+	 *
+	 * @param s segment to summarize
+	 * @return header describing the segment as it is now
+	 */
+	public static SessionHeader of(Session s)
+	{
+		int killCount = 0;
+		long totalValue = 0;
+		for (Kill k : s.getKills())
+		{
+			String t = k.getType();
+			if (t != null && !t.equalsIgnoreCase("LOOT"))
+			{
+				continue;
+			}
+			killCount++;
+			totalValue += k.getAmount() == null ? 0L : k.getAmount();
+		}
+		return new SessionHeader(s.getId(), s.getStart(), s.getEnd(), s.getMotherId(), s.getPlayers().size(), killCount, totalValue);
+	}
+
+	/**
+	 * Summarize a mother session together with its children: the roster size counts every
+	 * player that appeared in the thread, kills and value are summed over all segments.
+	 *
+	 * @param mother mother (root) session of the thread
+	 * @param thread all segments of the thread, the mother included
+	 * @return header describing the whole thread
+	 */
+	public static SessionHeader ofThread(Session mother, List<Session> thread)
+	{
+		Set<String> roster = new HashSet<>(mother.getPlayers());
+		int killCount = 0;
+		long totalValue = 0;
+		for (Session s : thread)
+		{
+			roster.addAll(s.getPlayers());
+			SessionHeader h = of(s);
+			killCount += h.killCount;
+			totalValue += h.totalValue;
+		}
+		return new SessionHeader(mother.getId(), mother.getStart(), mother.getEnd(), null, roster.size(), killCount, totalValue);
+	}
+
+	/**
+	 * @return true when this header describes the mother (root) session of a thread
+	 */
+	public boolean isMother()
+	{
+		return motherId == null;
+	}
+
+	/**
+	 * @return true when the segment was still active at the time the header was taken
+	 */
+	public boolean isActive()
+	{
+		return end == null;
+	}
+}
@@ -0,0 +1,31 @@
+package com.splitmanager.models;
+
+import java.time.Instant;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * Metrics of one session thread as part of a {@link HistoryReport}.
+ */
+@Getter
+public class ThreadReport
+{
+	private final String motherId;
+	private final Instant start;
+	/**
+	 * Null while the thread is still running.
+	 */
+	private final Instant end;
+	/**
+	 * Per-player rows of the thread, non-active players included.
+	 */
+	private final List<PlayerMetrics> metrics;
+
+	public ThreadReport(String motherId, Instant start, Instant end, List<PlayerMetrics> metrics)
+	{
+		this.motherId = motherId;
+		this.start = start;
+		this.end = end;
+		this.metrics = metrics;
+	}
+}
@@ -0,0 +1,30 @@
+package com.splitmanager.persistence;
+
+import lombok.Getter;
+
+/**
+ * Size and checksum metadata of one compressed archive block, kept in the thread manifest.
+ */
+@Getter
+public class ArchiveInfo
+{
+	/**
+	 * Size of the encoded thread before compression, in bytes.
+	 */
+	private final int rawSize;
+	/**
+	 * Size of the stored block, in characters.
+	 */
+	private final int storedSize;
+	/**
+	 * CRC32 of the uncompressed bytes.
+	 */
+	private final long crc;
+
+	public ArchiveInfo(int rawSize, int storedSize, long crc)
+	{
+		this.rawSize = rawSize;
+		this.storedSize = storedSize;
+		this.crc = crc;
+	}
+}
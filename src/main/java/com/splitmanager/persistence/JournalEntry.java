@@ -0,0 +1,88 @@
+package com.splitmanager.persistence;
+
+import com.splitmanager.models.Kill;
+import com.splitmanager.models.Session;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * A single mutation of the live session thread, as written to the append-only journal.
+ * <p>
+ * Entries only carry the data needed to redo the mutation on top of the last snapshot:
+ * - SESSION_STARTED: a new mother or child segment (id, motherId, start and initial roster)
+ * - KILL_ADDED: a kill (or JOINED/LEFT event) appended to a segment
+ * - KILL_EDITED: player/amount of an existing kill changed, addressed by its index in the segment
+ * - ROSTER_CHANGED: the full roster of a segment after an in-place add/remove
+ * - SEGMENT_ENDED: a segment (child or mother) was closed at the given time
+ * Each entry gets a sequence number when it is appended, so replay can tell which entries a
+ * thread snapshot already contains.
+ */
+@Getter
+public class JournalEntry
+{
+	private final Op op;
+	private final String sessionId;
+	private long seq;
+	private String motherId;
+	private Instant at;
+	private Kill kill;
+	private int killIndex;
+	private String player;
+	private Long amount;
+	private List<String> players;
+
+	private JournalEntry(Op op, String sessionId)
+	{
+		this.op = op;
+		this.sessionId = sessionId;
+	}
+
+	void setSeq(long seq)
+	{
+		this.seq = seq;
+	}
+
+	public static JournalEntry sessionStarted(Session s)
+	{
+		JournalEntry e = new JournalEntry(Op.SESSION_STARTED, s.getId());
+		e.motherId = s.getMotherId();
+		e.at = s.getStart();
+		e.players = new ArrayList<>(s.getPlayers());
+		return e;
+	}
+
+	public static JournalEntry killAdded(Kill kill)
+	{
+		JournalEntry e = new JournalEntry(Op.KILL_ADDED, kill.getSessionId());
+		e.kill = kill;
+		return e;
+	}
+
+	public static JournalEntry killEdited(Kill kill, int killIndex)
+	{
+		JournalEntry e = new JournalEntry(Op.KILL_EDITED, kill.getSessionId());
+		e.killIndex = killIndex;
+		e.player = kill.getPlayer();
+		e.amount = kill.getAmount();
+		return e;
+	}
+
+	public static JournalEntry rosterChanged(Session s)
+	{
+		JournalEntry e = new JournalEntry(Op.ROSTER_CHANGED, s.getId());
+		e.players = new ArrayList<>(s.getPlayers());
+		return e;
+	}
+
+	public static JournalEntry segmentEnded(Session s)
+	{
+		JournalEntry e = new JournalEntry(Op.SEGMENT_ENDED, s.getId());
+		e.at = s.getEnd();
+		return e;
+	}
+
+	public enum Op
+	{SESSION_STARTED, KILL_ADDED, KILL_EDITED, ROSTER_CHANGED, SEGMENT_ENDED}
+}
@@ -0,0 +1,22 @@
+package com.splitmanager.persistence;
+
+import com.splitmanager.models.PlayerRollup;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * Stored form of the lifetime rollups: the per-player numbers together with the mother ids of the
+ * threads they contain, so a thread is never counted twice and missing ones can be caught up.
+ */
+@Getter
+public class LifetimeSnapshot
+{
+	private final List<String> threads;
+	private final List<PlayerRollup> players;
+
+	public LifetimeSnapshot(List<String> threads, List<PlayerRollup> players)
+	{
+		this.threads = threads;
+		this.players = players;
+	}
+}
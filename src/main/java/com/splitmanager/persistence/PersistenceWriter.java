@@ -0,0 +1,230 @@
+package com.splitmanager.persistence;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Coalescing background writer for session persistence.
+ * <p>
+ * Mutations only mark the state dirty. The actual write runs on the given executor once no new
+ * mutation has arrived for {@link #QUIET_PERIOD_MS}, so a burst of changes (e.g. applying a pile
+ * of detected values) results in a single write that runs off the client thread and the EDT.
+ * A steady stream of mutations cannot hold the write back for more than {@link #MAX_DELAY_MS}.
+ * <p>
+ * A failed write is retried with a doubling delay, at most {@link #MAX_RETRIES} times in a row;
+ * after that the state stays dirty until the next mutation or flush. {@link #flush()} performs
+ * any outstanding write synchronously and, followed by {@link #close()}, must be called on
+ * shutdown. A closed writer schedules nothing until it is opened again.
+ */
+@Slf4j
+public class PersistenceWriter
+{
+	/**
+	 * Time without new mutations after which a pending write is performed.
+	 */
+	public static final long QUIET_PERIOD_MS = 500;
+	/**
+	 * Longest time a pending write waits for mutations to quiet down.
+	 */
+	public static final long MAX_DELAY_MS = 5_000;
+	/**
+	 * Failed writes in a row after which no retry is scheduled.
+	 */
+	public static final int MAX_RETRIES = 6;
+
+	private final ScheduledExecutorService executor;
+	private final Runnable writeTask;
+	private final Object writeLock = new Object();
+	private final AtomicLong requested = new AtomicLong();
+	private final AtomicLong written = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private ScheduledFuture<?> scheduled;
+	private boolean dirty;
+	// When the state became dirty without being written since, for MAX_DELAY_MS
+	private long dirtySince;
+	// Failed writes since the last successful one
+	private int failures;
+	private boolean closed;
+
+	/**
+	 * @param executor  executor the delayed writes run on
+	 * @param writeTask task that serializes and stores the pending state
+	 */
+	public PersistenceWriter(ScheduledExecutorService executor, Runnable writeTask)
+	{
+		this.executor = executor;
+		this.writeTask = writeTask;
+	}
+
+	/**
+	 * Mark the state as changed. If a write is already waiting, it is pushed back so that
+	 * it picks up this change as well instead of writing twice, but never past
+	 * {@link #MAX_DELAY_MS} after the state first became dirty.
+	 */
+	public synchronized void markDirty()
+	{
+		requested.incrementAndGet();
+		long now = System.nanoTime();
+		if (!dirty)
+		{
+			dirty = true;
+			dirtySince = now;
+		}
+		if (closed || (failures > 0 && failures <= MAX_RETRIES))
+		{
+			// A scheduled retry picks this change up as well
+			return;
+		}
+		failures = 0;
+		if (scheduled != null && scheduled.cancel(false))
+		{
+			coalesced.incrementAndGet();
+		}
+		long left = MAX_DELAY_MS - TimeUnit.NANOSECONDS.toMillis(now - dirtySince);
+		schedule(Math.max(0, Math.min(QUIET_PERIOD_MS, left)));
+	}
+
+	/**
+	 * Allow scheduled writes again after {@link #close()}.
+	 */
+	public synchronized void open()
+	{
+		closed = false;
+	}
+
+	/**
+	 * Cancel any scheduled write and schedule none until {@link #open()}. Call {@link #flush()}
+	 * first to keep the outstanding state.
+	 */
+	public synchronized void close()
+	{
+		closed = true;
+		if (scheduled != null)
+		{
+			scheduled.cancel(false);
+			scheduled = null;
+		}
+	}
+
+	private void schedule(long delayMs)
+	{
+		scheduled = executor.schedule(this::writeIfDirty, delayMs, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Perform any outstanding write on the calling thread. Waits for a write that is
+	 * currently running on the executor to finish first.
+	 */
+	public void flush()
+	{
+		synchronized (this)
+		{
+			if (scheduled != null)
+			{
+				scheduled.cancel(false);
+				scheduled = null;
+			}
+		}
+		writeIfDirty();
+	}
+
+	private void writeIfDirty()
+	{
+		synchronized (writeLock)
+		{
+			synchronized (this)
+			{
+				if (!dirty)
+				{
+					return;
+				}
+				dirty = false;
+			}
+
+			try
+			{
+				writeTask.run();
+				written.incrementAndGet();
+				synchronized (this)
+				{
+					failures = 0;
+				}
+			}
+			catch (RuntimeException e)
+			{
+				failed.incrementAndGet();
+				retry(e);
+			}
+		}
+	}
+
+	private synchronized void retry(RuntimeException e)
+	{
+		// Mutations made during the write are in the state the next write takes anyway
+		dirty = true;
+		failures++;
+		if (closed || failures > MAX_RETRIES)
+		{
+			log.warn("Failed to persist sessions, giving up until the next change", e);
+			return;
+		}
+		long delay = QUIET_PERIOD_MS << failures;
+		if (failures == 1)
+		{
+			log.warn("Failed to persist sessions, retrying in {} ms", delay, e);
+		}
+		else
+		{
+			log.warn("Failed to persist sessions again ({}), retrying in {} ms", e.toString(), delay);
+		}
+		// Replaces a write scheduled meanwhile; the retry writes its changes as well
+		if (scheduled != null)
+		{
+			scheduled.cancel(false);
+		}
+		schedule(delay);
+	}
+
+	/**
+	 * @return number of times the state was marked dirty
+	 */
+	public long getRequestedCount()
+	{
+		return requested.get();
+	}
+
+	/**
+	 * @return number of writes actually performed
+	 */
+	public long getWrittenCount()
+	{
+		return written.get();
+	}
+
+	/**
+	 * @return number of requests that were merged into an already pending write
+	 */
+	public long getCoalescedCount()
+	{
+		return coalesced.get();
+	}
+
+	/**
+	 * @return number of writes that failed
+	 */
+	public long getFailedCount()
+	{
+		return failed.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("requested=%d, written=%d, coalesced=%d, failed=%d",
+			getRequestedCount(), getWrittenCount(), getCoalescedCount(), getFailedCount());
+	}
+}
@@ -0,0 +1,89 @@
+package com.splitmanager.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import lombok.Getter;
+
+/**
+ * A stored snapshot value guarded by a checksum and tagged with the journal sequence number
+ * it contains.
+ * <p>
+ * Format: {@link #PREFIX} + crc32 (hex) + ":" + seq + ":" + payload, where the checksum covers
+ * "seq:payload". A value that was cut off or altered no longer matches its checksum and is
+ * rejected by {@link #open}, so the caller can fall back to the previous snapshot. Values written
+ * before snapshots were sealed have no prefix and are accepted as-is with sequence number 0.
+ */
+@Getter
+public class SealedValue
+{
+	public static final String PREFIX = "sealed:";
+
+	/**
+	 * Sequence number of the last journal entry contained in this snapshot.
+	 */
+	private final long seq;
+	private final String payload;
+
+	private SealedValue(long seq, String payload)
+	{
+		this.seq = seq;
+		this.payload = payload;
+	}
+
+	/**
+	 * @param seq     sequence number of the last journal entry contained in the payload
+	 * @param payload value to protect
+	 * @return sealed value to store
+	 */
+	public static String seal(long seq, String payload)
+	{
+		String body = seq + ":" + payload;
+		return PREFIX + Long.toHexString(checksum(body)) + ":" + body;
+	}
+
+	/**
+	 * Verify and unwrap a stored value.
+	 *
+	 * @param value stored value, sealed or from before sealing
+	 * @return the unwrapped value, or null if the value is empty or damaged
+	 */
+	public static SealedValue open(String value)
+	{
+		if (value == null || value.isEmpty())
+		{
+			return null;
+		}
+		if (!value.startsWith(PREFIX))
+		{
+			return new SealedValue(0L, value);
+		}
+
+		int crcEnd = value.indexOf(':', PREFIX.length());
+		int seqEnd = crcEnd < 0 ? -1 : value.indexOf(':', crcEnd + 1);
+		if (seqEnd < 0)
+		{
+			return null;
+		}
+		String body = value.substring(crcEnd + 1);
+		try
+		{
+			long crc = Long.parseLong(value.substring(PREFIX.length(), crcEnd), 16);
+			if (crc != checksum(body))
+			{
+				return null;
+			}
+			return new SealedValue(Long.parseLong(value.substring(crcEnd + 1, seqEnd)), value.substring(seqEnd + 1));
+		}
+		catch (NumberFormatException e)
+		{
+			return null;
+		}
+	}
+
+	static long checksum(String s)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(s.getBytes(StandardCharsets.UTF_8));
+		return crc.getValue();
+	}
+}
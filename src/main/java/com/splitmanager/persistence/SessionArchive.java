@@ -0,0 +1,143 @@
+package com.splitmanager.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compressed blocks for the cold archive of finished session threads.
+ * <p>
+ * A stopped thread never changes again (apart from the occasional manual edit), so it is stored
+ * deflated instead of in the plain {@link SessionCodec} form. Each block starts with the size and
+ * CRC32 of the uncompressed bytes, so a damaged block is detected when it is unpacked instead of
+ * yielding garbage sessions. Blocks are stored Base64 encoded behind {@link #PREFIX}.
+ */
+public final class SessionArchive
+{
+	public static final String PREFIX = "zbin:";
+	// Header in front of the deflated data: raw size (int) + CRC32 (int)
+	private static final int HEADER_SIZE = 8;
+	// Deflate expands at most about 1032:1, so a larger raw size in the header is damage
+	private static final long MAX_RATIO = 1032;
+
+	private SessionArchive()
+	{
+	}
+
+	/**
+	 * @return true if the stored value is an archive block
+	 */
+	public static boolean isArchived(String value)
+	{
+		return value != null && value.startsWith(PREFIX);
+	}
+
+	/**
+	 * @return CRC32 of the given bytes, as stored in a block header
+	 */
+	public static long checksum(byte[] raw)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(raw);
+		return crc.getValue();
+	}
+
+	/**
+	 * Compress raw bytes into a block.
+	 *
+	 * @param raw bytes to compress, e.g. from {@link SessionCodec#encodeBytes}
+	 * @return {@link #PREFIX} followed by the Base64 encoded block
+	 */
+	public static String pack(byte[] raw)
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER_SIZE + raw.length / 2);
+		out.writeBytes(ByteBuffer.allocate(HEADER_SIZE).putInt(raw.length).putInt((int) checksum(raw)).array());
+
+		Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+		try
+		{
+			deflater.setInput(raw);
+			deflater.finish();
+			byte[] buf = new byte[4096];
+			while (!deflater.finished())
+			{
+				int n = deflater.deflate(buf);
+				out.write(buf, 0, n);
+			}
+		}
+		finally
+		{
+			deflater.end();
+		}
+
+		return PREFIX + Base64.getEncoder().encodeToString(out.toByteArray());
+	}
+
+	/**
+	 * Decompress a block and verify it against its header.
+	 *
+	 * @param value stored block including {@link #PREFIX}
+	 * @return the uncompressed bytes
+	 * @throws IllegalArgumentException if the block is damaged
+	 */
+	public static byte[] unpack(String value)
+	{
+		if (!isArchived(value))
+		{
+			throw new IllegalArgumentException("Not an archive block");
+		}
+		byte[] data = Base64.getDecoder().decode(value.substring(PREFIX.length()));
+		if (data.length < HEADER_SIZE)
+		{
+			throw new IllegalArgumentException("Truncated archive block");
+		}
+		ByteBuffer header = ByteBuffer.wrap(data, 0, HEADER_SIZE);
+		int rawSize = header.getInt();
+		long expectedCrc = header.getInt() & 0xFFFFFFFFL;
+		if (rawSize < 0 || rawSize > (data.length - HEADER_SIZE) * MAX_RATIO)
+		{
+			throw new IllegalArgumentException("Invalid archive block size " + rawSize);
+		}
+
+		byte[] raw = new byte[rawSize];
+		Inflater inflater = new Inflater();
+		try
+		{
+			inflater.setInput(data, HEADER_SIZE, data.length - HEADER_SIZE);
+			int n = 0;
+			while (n < rawSize && !inflater.finished())
+			{
+				int read = inflater.inflate(raw, n, rawSize - n);
+				if (read == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+				{
+					break;
+				}
+				n += read;
+			}
+			// The stream has to end right after the raw bytes; this also reads the end of an empty one
+			int extra = inflater.finished() ? 0 : inflater.inflate(new byte[1]);
+			if (n != rawSize || extra != 0 || !inflater.finished())
+			{
+				throw new IllegalArgumentException("Archive block size mismatch");
+			}
+		}
+		catch (DataFormatException e)
+		{
+			throw new IllegalArgumentException("Corrupt archive block", e);
+		}
+		finally
+		{
+			inflater.end();
+		}
+
+		if (checksum(raw) != expectedCrc)
+		{
+			throw new IllegalArgumentException("Archive block checksum mismatch");
+		}
+		return raw;
+	}
+}
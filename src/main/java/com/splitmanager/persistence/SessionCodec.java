@@ -0,0 +1,347 @@
+package com.splitmanager.persistence;
+
+import com.splitmanager.models.Kill;
+import com.splitmanager.models.Session;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, versioned binary encoding of Session segments and their kills.
+ * <p>
+ * Compared to Gson JSON, ids, player names and type strings are written once into an interned
+ * string table and referenced by index; kills do not repeat their session id at all. Amounts are
+ * zigzag varints, timestamps are millisecond deltas from the previous timestamp, and the kill
+ * type is a single byte. Config values are strings, so the bytes are stored Base64 encoded behind
+ * {@link #PREFIX}. Values without the prefix are treated as the older JSON format by the caller.
+ * <p>
+ * Layout (version 1):
+ * - version byte
+ * - string table: count, then each string as length + UTF-8 bytes
+ * - sessions: count, then per session: id, motherId (0 = none, otherwise index + 1), start, end,
+ * roster (count + indices), kills (count, then type byte, player, amount, time)
+ * <p>
+ * Timestamps are stored with millisecond precision.
+ */
+public final class SessionCodec
+{
+	public static final String PREFIX = "bin:";
+	public static final int VERSION = 1;
+
+	private static final int TYPE_NULL = 0;
+	private static final int TYPE_LOOT = 1;
+	private static final int TYPE_JOINED = 2;
+	private static final int TYPE_LEFT = 3;
+	private static final int TYPE_OTHER = 4;
+	// Set in the type byte when the kill has no amount
+	private static final int FLAG_NO_AMOUNT = 0x80;
+
+	private SessionCodec()
+	{
+	}
+
+	/**
+	 * @return true if the stored value was written by this codec
+	 */
+	public static boolean isEncoded(String value)
+	{
+		return value != null && value.startsWith(PREFIX);
+	}
+
+	/**
+	 * Encode sessions into a config-safe string.
+	 *
+	 * @param sessions segments to encode, in the order they should be read back
+	 * @return {@link #PREFIX} followed by the Base64 encoded binary form
+	 */
+	public static String encode(Session[] sessions)
+	{
+		return PREFIX + Base64.getEncoder().encodeToString(encodeBytes(sessions));
+	}
+
+	/**
+	 * Encode sessions into the raw binary form, without the text wrapping of {@link #encode}.
+	 */
+	public static byte[] encodeBytes(Session[] sessions)
+	{
+		Map<String, Integer> strings = new LinkedHashMap<>();
+		for (Session s : sessions)
+		{
+			intern(strings, s.getId());
+			if (s.getMotherId() != null)
+			{
+				intern(strings, s.getMotherId());
+			}
+			for (String p : s.getPlayers())
+			{
+				intern(strings, p);
+			}
+			for (Kill k : s.getKills())
+			{
+				if (k.getPlayer() != null)
+				{
+					intern(strings, k.getPlayer());
+				}
+				if (typeCode(k.getType()) == TYPE_OTHER)
+				{
+					intern(strings, k.getType());
+				}
+			}
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes))
+		{
+			out.writeByte(VERSION);
+			writeVarLong(out, strings.size());
+			for (String str : strings.keySet())
+			{
+				byte[] utf = str.getBytes(StandardCharsets.UTF_8);
+				writeVarLong(out, utf.length);
+				out.write(utf);
+			}
+
+			long[] prev = {0L};
+			writeVarLong(out, sessions.length);
+			for (Session s : sessions)
+			{
+				writeVarLong(out, strings.get(s.getId()));
+				writeVarLong(out, s.getMotherId() == null ? 0 : strings.get(s.getMotherId()) + 1);
+				writeInstant(out, s.getStart(), prev);
+				writeInstant(out, s.getEnd(), prev);
+
+				writeVarLong(out, s.getPlayers().size());
+				for (String p : s.getPlayers())
+				{
+					writeVarLong(out, strings.get(p));
+				}
+
+				writeVarLong(out, s.getKills().size());
+				for (Kill k : s.getKills())
+				{
+					int type = typeCode(k.getType());
+					out.writeByte(type | (k.getAmount() == null ? FLAG_NO_AMOUNT : 0));
+					if (type == TYPE_OTHER)
+					{
+						writeVarLong(out, strings.get(k.getType()));
+					}
+					writeVarLong(out, k.getPlayer() == null ? 0 : strings.get(k.getPlayer()) + 1);
+					if (k.getAmount() != null)
+					{
+						writeVarLong(out, zigzag(k.getAmount()));
+					}
+					writeInstant(out, k.getAt(), prev);
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			// Writing to memory does not fail
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decode a value written by {@link #encode}.
+	 *
+	 * @param value stored value including {@link #PREFIX}
+	 * @return decoded segments in stored order
+	 * @throws IllegalArgumentException if the value is malformed or from an unknown version
+	 */
+	public static List<Session> decode(String value)
+	{
+		if (!isEncoded(value))
+		{
+			throw new IllegalArgumentException("Not an encoded session value");
+		}
+		return decodeBytes(Base64.getDecoder().decode(value.substring(PREFIX.length())));
+	}
+
+	/**
+	 * Decode the raw binary form written by {@link #encodeBytes}.
+	 *
+	 * @throws IllegalArgumentException if the data is malformed or from an unknown version
+	 */
+	public static List<Session> decodeBytes(byte[] data)
+	{
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data)))
+		{
+			int version = in.readUnsignedByte();
+			if (version != VERSION)
+			{
+				throw new IllegalArgumentException("Unsupported session encoding version " + version);
+			}
+
+			String[] strings = new String[readCount(in)];
+			for (int i = 0; i < strings.length; i++)
+			{
+				byte[] utf = new byte[readCount(in)];
+				in.readFully(utf);
+				strings[i] = new String(utf, StandardCharsets.UTF_8);
+			}
+
+			long[] prev = {0L};
+			int count = readCount(in);
+			List<Session> sessions = new ArrayList<>(count);
+			for (int i = 0; i < count; i++)
+			{
+				String id = strings[(int) readVarLong(in)];
+				int mother = (int) readVarLong(in);
+				Instant start = readInstant(in, prev);
+				Instant end = readInstant(in, prev);
+				Session s = new Session(id, start, mother == 0 ? null : strings[mother - 1]);
+				s.setEnd(end);
+
+				int players = readCount(in);
+				List<String> roster = new ArrayList<>(players);
+				for (int j = 0; j < players; j++)
+				{
+					roster.add(strings[(int) readVarLong(in)]);
+				}
+				s.setPlayers(roster);
+
+				int kills = readCount(in);
+				for (int j = 0; j < kills; j++)
+				{
+					int typeByte = in.readUnsignedByte();
+					int type = typeByte & ~FLAG_NO_AMOUNT;
+					String typeName = type == TYPE_OTHER ? strings[(int) readVarLong(in)] : typeName(type);
+					int player = (int) readVarLong(in);
+					Long amount = (typeByte & FLAG_NO_AMOUNT) != 0 ? null : unzigzag(readVarLong(in));
+					Instant at = readInstant(in, prev);
+
+					Kill k = new Kill(id, player == 0 ? null : strings[player - 1], amount, at);
+					k.setType(typeName);
+					s.getKills().add(k);
+				}
+				sessions.add(s);
+			}
+			return sessions;
+		}
+		catch (IOException | IndexOutOfBoundsException e)
+		{
+			throw new IllegalArgumentException("Malformed session value", e);
+		}
+	}
+
+	private static void intern(Map<String, Integer> strings, String s)
+	{
+		strings.putIfAbsent(s, strings.size());
+	}
+
+	private static int typeCode(String type)
+	{
+		if (type == null)
+		{
+			return TYPE_NULL;
+		}
+		switch (type)
+		{
+			case "LOOT":
+				return TYPE_LOOT;
+			case "JOINED":
+				return TYPE_JOINED;
+			case "LEFT":
+				return TYPE_LEFT;
+			default:
+				return TYPE_OTHER;
+		}
+	}
+
+	private static String typeName(int code)
+	{
+		switch (code)
+		{
+			case TYPE_LOOT:
+				return "LOOT";
+			case TYPE_JOINED:
+				return "JOINED";
+			case TYPE_LEFT:
+				return "LEFT";
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Write a timestamp as the delta to the previously written one; 0 encodes null.
+	 */
+	private static void writeInstant(DataOutputStream out, Instant at, long[] prev) throws IOException
+	{
+		if (at == null)
+		{
+			writeVarLong(out, 0);
+			return;
+		}
+		long millis = at.toEpochMilli();
+		writeVarLong(out, zigzag(millis - prev[0]) + 1);
+		prev[0] = millis;
+	}
+
+	private static Instant readInstant(DataInputStream in, long[] prev) throws IOException
+	{
+		long v = readVarLong(in);
+		if (v == 0)
+		{
+			return null;
+		}
+		prev[0] += unzigzag(v - 1);
+		return Instant.ofEpochMilli(prev[0]);
+	}
+
+	private static int readCount(DataInputStream in) throws IOException
+	{
+		long n = readVarLong(in);
+		if (n < 0 || n > in.available())
+		{
+			// Every element takes at least one byte, a larger count means the data is corrupt
+			throw new IOException("Invalid element count " + n);
+		}
+		return (int) n;
+	}
+
+	private static long zigzag(long v)
+	{
+		return (v << 1) ^ (v >> 63);
+	}
+
+	private static long unzigzag(long v)
+	{
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	private static void writeVarLong(DataOutputStream out, long v) throws IOException
+	{
+		while ((v & ~0x7FL) != 0)
+		{
+			out.writeByte((int) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		out.writeByte((int) v);
+	}
+
+	private static long readVarLong(DataInputStream in) throws IOException
+	{
+		long v = 0;
+		for (int shift = 0; shift < 64; shift += 7)
+		{
+			int b = in.readUnsignedByte();
+			v |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+			{
+				return v;
+			}
+		}
+		throw new IOException("Malformed varint");
+	}
+}
@@ -0,0 +1,105 @@
+package com.splitmanager.persistence;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import com.splitmanager.models.Session;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams sessions as a JSON array, one thread at a time.
+ * <p>
+ * The exporter is created on the thread that owns the session state, with copies of the threads
+ * that are loaded or not yet written; every other thread is read from the store only when it is
+ * its turn to be written, and each session goes straight into the JsonWriter. The whole document
+ * is never held in memory, so {@link #writeTo} can run on a background executor. The output has
+ * the same shape as the legacy sessionsJson blob and can be read back with {@link SessionJsonReader}.
+ */
+public class SessionExporter
+{
+	private final SessionStore store;
+	private final Gson gson;
+	// Mother ids of the threads to export, in output order
+	private final List<String> motherIds;
+	// Copies of threads that must not be read from the store, by mother id
+	private final Map<String, List<Session>> captured;
+	// When set, only this session is written instead of whole threads
+	private final String sessionId;
+
+	/**
+	 * @param motherIds mother ids of the threads to export, in output order
+	 * @param captured  copies of threads whose stored value is outdated or missing, by mother id
+	 * @param sessionId id of the only session to write, or null to write every session of the threads
+	 */
+	public SessionExporter(SessionStore store, Gson gson, List<String> motherIds, Map<String, List<Session>> captured,
+						   String sessionId)
+	{
+		this.store = store;
+		this.gson = gson;
+		this.motherIds = motherIds;
+		this.captured = captured;
+		this.sessionId = sessionId;
+	}
+
+	/**
+	 * Write the export to a file. The file is first written next to the target and then moved
+	 * over it, so an interrupted export never leaves a truncated file behind.
+	 *
+	 * @return number of sessions written
+	 */
+	public int writeTo(Path file) throws IOException
+	{
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		int count;
+		try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8))
+		{
+			count = writeTo(out);
+		}
+		catch (IOException e)
+		{
+			Files.deleteIfExists(tmp);
+			throw e;
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+		return count;
+	}
+
+	/**
+	 * Write the export to the given writer. The writer is flushed after every thread but not closed.
+	 *
+	 * @return number of sessions written
+	 */
+	public int writeTo(Writer out) throws IOException
+	{
+		JsonWriter json = new JsonWriter(out);
+		json.setIndent("  ");
+		json.beginArray();
+		int count = 0;
+		for (String motherId : motherIds)
+		{
+			List<Session> thread = captured.get(motherId);
+			if (thread == null)
+			{
+				thread = store.readThread(motherId);
+			}
+			for (Session s : thread)
+			{
+				if (sessionId == null || sessionId.equals(s.getId()))
+				{
+					gson.toJson(s, Session.class, json);
+					count++;
+				}
+			}
+			json.flush();
+		}
+		json.endArray();
+		json.flush();
+		return count;
+	}
+}
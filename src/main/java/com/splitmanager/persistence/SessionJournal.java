@@ -0,0 +1,304 @@
+package com.splitmanager.persistence;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.splitmanager.PluginConfig;
+import com.splitmanager.models.Kill;
+import com.splitmanager.models.Session;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only journal of session mutations, stored next to the sessions snapshot in PluginConfig.
+ * <p>
+ * Every mutation of the live thread is written as one JSON line instead of re-serializing the
+ * whole history. On load the journal is replayed on top of the snapshot. Once the journal grows
+ * past {@link #COMPACT_THRESHOLD} entries the owner writes a fresh snapshot and clears it, so the
+ * cost of a single append stays bounded no matter how much history exists.
+ * <p>
+ * Appending only queues the entry; {@link #write()} serializes the queued entries and is meant
+ * to be called from the background writer, never from the client thread or the EDT.
+ * <p>
+ * Every line carries a CRC32 of its entry. Replay stops at the first line that does not match,
+ * which is where an interrupted write left the journal, and entries that a thread snapshot
+ * already contains (by sequence number) are skipped, so a crash between writing a snapshot and
+ * clearing the journal does not apply anything twice.
+ */
+@Slf4j
+public class SessionJournal
+{
+	/**
+	 * Number of journal entries after which a snapshot should be written and the journal cleared.
+	 */
+	public static final int COMPACT_THRESHOLD = 64;
+
+	private final PluginConfig config;
+	private final Gson gson;
+	// Persisted journal text, only touched by write() and replay()
+	private final StringBuilder text = new StringBuilder();
+	private List<JournalEntry> pending = new ArrayList<>();
+	private boolean cleared;
+	// Set when replay dropped a damaged tail, so the next write stores the cleaned journal
+	private boolean truncated;
+	private int size;
+	// Sequence number of the last appended entry
+	private long lastSeq;
+
+	public SessionJournal(PluginConfig config, Gson gson)
+	{
+		this.config = config;
+		this.gson = gson;
+	}
+
+	/**
+	 * @return number of entries written since the last snapshot
+	 */
+	public synchronized int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return sequence number of the last appended entry; a snapshot taken now contains it
+	 */
+	public synchronized long lastSeq()
+	{
+		return lastSeq;
+	}
+
+	/**
+	 * @return true when the journal is long enough that a new snapshot should be taken
+	 */
+	public synchronized boolean needsCompaction()
+	{
+		return size >= COMPACT_THRESHOLD;
+	}
+
+	/**
+	 * Queue a single entry; it is persisted by the next {@link #write()}.
+	 */
+	public synchronized void append(JournalEntry entry)
+	{
+		entry.setSeq(++lastSeq);
+		pending.add(entry);
+		size++;
+	}
+
+	/**
+	 * Drop all entries; called when a snapshot containing them has been taken.
+	 * The persisted journal is reset by the next {@link #write()}.
+	 */
+	public synchronized void clear()
+	{
+		pending.clear();
+		cleared = true;
+		size = 0;
+	}
+
+	/**
+	 * Serialize queued entries and store the journal in PluginConfig.
+	 * Must only be called by a single writer at a time.
+	 */
+	public void write()
+	{
+		List<JournalEntry> batch;
+		boolean reset;
+		boolean rewrite;
+		synchronized (this)
+		{
+			batch = pending;
+			pending = new ArrayList<>();
+			reset = cleared;
+			cleared = false;
+			rewrite = truncated;
+			truncated = false;
+		}
+
+		if (reset)
+		{
+			text.setLength(0);
+		}
+		for (JournalEntry entry : batch)
+		{
+			if (text.length() > 0)
+			{
+				text.append('\n');
+			}
+			String json = gson.toJson(entry);
+			text.append(Long.toHexString(SealedValue.checksum(json))).append(' ').append(json);
+		}
+		if (reset || rewrite || !batch.isEmpty())
+		{
+			config.sessionsJournal(text.toString());
+		}
+	}
+
+	/**
+	 * Read the persisted journal and redo each entry against the snapshot that was just loaded.
+	 * Replay stops at the first damaged line; entries that cannot be parsed, reference unknown
+	 * sessions or are already contained in their thread's snapshot are skipped.
+	 *
+	 * @param sessions   session map populated from the snapshot; mutated in place
+	 * @param threadSeqs sequence number contained in each loaded thread snapshot, by mother id
+	 * @param floorSeq   lowest sequence number to continue from, e.g. that of the manifest
+	 */
+	public synchronized void replay(Map<String, Session> sessions, Map<String, Long> threadSeqs, long floorSeq)
+	{
+		text.setLength(0);
+		pending.clear();
+		cleared = false;
+		truncated = false;
+		size = 0;
+		lastSeq = floorSeq;
+		for (long seq : threadSeqs.values())
+		{
+			lastSeq = Math.max(lastSeq, seq);
+		}
+
+		String stored = config.sessionsJournal();
+		if (stored == null || stored.isEmpty())
+		{
+			return;
+		}
+
+		int applied = 0;
+		int skipped = 0;
+		for (String line : stored.split("\n"))
+		{
+			if (line.isBlank())
+			{
+				continue;
+			}
+			String json = verify(line);
+			if (json == null)
+			{
+				log.warn("Journal is damaged after {} entries, ignoring the rest", size);
+				truncated = true;
+				break;
+			}
+			if (text.length() > 0)
+			{
+				text.append('\n');
+			}
+			text.append(line);
+			size++;
+
+			JournalEntry entry;
+			try
+			{
+				entry = gson.fromJson(json, JournalEntry.class);
+			}
+			catch (JsonParseException e)
+			{
+				log.warn("Skipping unreadable journal entry", e);
+				continue;
+			}
+			if (entry == null || entry.getOp() == null)
+			{
+				continue;
+			}
+			lastSeq = Math.max(lastSeq, entry.getSeq());
+
+			Long snapshotSeq = threadSeqs.get(threadOf(entry, sessions));
+			if (entry.getSeq() > 0 && snapshotSeq != null && entry.getSeq() <= snapshotSeq)
+			{
+				skipped++;
+				continue;
+			}
+			apply(entry, sessions);
+			applied++;
+		}
+		log.debug("Replayed {} journal entries, {} already in snapshots", applied, skipped);
+	}
+
+	/**
+	 * @return the entry's JSON if the line's checksum matches, null if the line is damaged.
+	 * Lines written before checksums were added are plain JSON and accepted as-is.
+	 */
+	private static String verify(String line)
+	{
+		if (line.startsWith("{"))
+		{
+			return line;
+		}
+		int sep = line.indexOf(' ');
+		if (sep < 0)
+		{
+			return null;
+		}
+		String json = line.substring(sep + 1);
+		try
+		{
+			return Long.parseLong(line.substring(0, sep), 16) == SealedValue.checksum(json) ? json : null;
+		}
+		catch (NumberFormatException e)
+		{
+			return null;
+		}
+	}
+
+	private static String threadOf(JournalEntry entry, Map<String, Session> sessions)
+	{
+		Session s = sessions.get(entry.getSessionId());
+		if (s != null)
+		{
+			return s.getMotherId() == null ? s.getId() : s.getMotherId();
+		}
+		if (entry.getOp() == JournalEntry.Op.SESSION_STARTED)
+		{
+			return entry.getMotherId() == null ? entry.getSessionId() : entry.getMotherId();
+		}
+		return null;
+	}
+
+	private void apply(JournalEntry entry, Map<String, Session> sessions)
+	{
+		if (entry.getOp() == JournalEntry.Op.SESSION_STARTED)
+		{
+			Session s = new Session(entry.getSessionId(), entry.getAt(), entry.getMotherId());
+			if (entry.getPlayers() != null)
+			{
+				s.setPlayers(entry.getPlayers());
+			}
+			sessions.putIfAbsent(s.getId(), s);
+			return;
+		}
+
+		Session target = sessions.get(entry.getSessionId());
+		if (target == null)
+		{
+			log.warn("Journal entry {} references unknown session {}", entry.getOp(), entry.getSessionId());
+			return;
+		}
+
+		switch (entry.getOp())
+		{
+			case KILL_ADDED:
+				if (entry.getKill() != null)
+				{
+					target.getKills().add(entry.getKill());
+				}
+				break;
+			case KILL_EDITED:
+				List<Kill> kills = target.getKills();
+				if (entry.getKillIndex() >= 0 && entry.getKillIndex() < kills.size())
+				{
+					Kill k = kills.get(entry.getKillIndex());
+					k.setPlayer(entry.getPlayer());
+					k.setAmount(entry.getAmount());
+				}
+				break;
+			case ROSTER_CHANGED:
+				target.setPlayers(entry.getPlayers() != null ? entry.getPlayers() : Collections.emptyList());
+				break;
+			case SEGMENT_ENDED:
+				target.setEnd(entry.getAt());
+				break;
+			default:
+				break;
+		}
+	}
+}
@@ -0,0 +1,257 @@
+package com.splitmanager.persistence;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.splitmanager.models.Kill;
+import com.splitmanager.models.Session;
+import com.splitmanager.models.SessionHeader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming reader for sessions stored as a JSON array (the legacy sessionsJson blob and threads
+ * written before the binary codec).
+ * <p>
+ * Unlike gson.fromJson(json, Session[].class) no parse tree is built: sessions are created one
+ * at a time straight from the token stream. {@link #readHeaders} goes one step further and never
+ * creates Kill objects at all, it only tallies the kill arrays into {@link SessionHeader}s, which
+ * is all that is needed for threads that are not opened yet.
+ */
+public final class SessionJsonReader
+{
+	private SessionJsonReader()
+	{
+	}
+
+	/**
+	 * Read full sessions, kills included.
+	 *
+	 * @param in JSON array of sessions
+	 * @return sessions in stored order
+	 * @throws JsonParseException if the JSON is malformed
+	 */
+	public static List<Session> readSessions(Reader in)
+	{
+		List<Session> sessions = new ArrayList<>();
+		read(in, sessions, null);
+		return sessions;
+	}
+
+	/**
+	 * Read only the headers of the sessions, skipping over kill records without creating them.
+	 * Mother headers summarize their whole thread like {@link SessionHeader#ofThread}.
+	 *
+	 * @param in JSON array of sessions
+	 * @return headers in stored order
+	 * @throws JsonParseException if the JSON is malformed
+	 */
+	public static List<SessionHeader> readHeaders(Reader in)
+	{
+		List<SessionHeader> headers = new ArrayList<>();
+		read(in, null, headers);
+		return headers;
+	}
+
+	private static void read(Reader in, List<Session> sessions, List<SessionHeader> headers)
+	{
+		// Players and {kill count, total value} of every thread, for the mother headers
+		Map<String, Set<String>> threadRosters = new LinkedHashMap<>();
+		Map<String, long[]> threadTotals = new LinkedHashMap<>();
+		try
+		{
+			JsonReader reader = new JsonReader(in);
+			if (reader.peek() == JsonToken.NULL)
+			{
+				reader.nextNull();
+				return;
+			}
+			reader.beginArray();
+			while (reader.hasNext())
+			{
+				if (reader.peek() == JsonToken.NULL)
+				{
+					reader.nextNull();
+					continue;
+				}
+				if (sessions != null)
+				{
+					sessions.add(readSession(reader, null));
+					continue;
+				}
+
+				long[] tally = new long[2];
+				Session s = readSession(reader, tally);
+				String motherId = s.getMotherId() == null ? s.getId() : s.getMotherId();
+				threadRosters.computeIfAbsent(motherId, k -> new HashSet<>()).addAll(s.getPlayers());
+				long[] totals = threadTotals.computeIfAbsent(motherId, k -> new long[2]);
+				totals[0] += tally[0];
+				totals[1] += tally[1];
+				headers.add(new SessionHeader(s.getId(), s.getStart(), s.getEnd(), s.getMotherId(),
+					s.getPlayers().size(), (int) tally[0], tally[1]));
+			}
+			reader.endArray();
+		}
+		catch (IOException | IllegalStateException | DateTimeParseException | NumberFormatException e)
+		{
+			throw new JsonParseException("Malformed sessions JSON", e);
+		}
+
+		if (headers != null)
+		{
+			// Now that all segments are read, mothers can summarize their thread
+			for (int i = 0; i < headers.size(); i++)
+			{
+				SessionHeader h = headers.get(i);
+				if (h.isMother())
+				{
+					long[] totals = threadTotals.get(h.getId());
+					headers.set(i, new SessionHeader(h.getId(), h.getStart(), h.getEnd(), null,
+						threadRosters.get(h.getId()).size(), (int) totals[0], totals[1]));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param tally when non-null, kills are not created but counted into {count, total value}
+	 */
+	private static Session readSession(JsonReader reader, long[] tally) throws IOException
+	{
+		String id = null;
+		String motherId = null;
+		Instant start = null;
+		Instant end = null;
+		List<String> players = new ArrayList<>();
+		List<Kill> kills = new ArrayList<>();
+
+		reader.beginObject();
+		while (reader.hasNext())
+		{
+			String name = reader.nextName();
+			if (reader.peek() == JsonToken.NULL)
+			{
+				reader.nextNull();
+				continue;
+			}
+			switch (name)
+			{
+				case "id":
+					id = reader.nextString();
+					break;
+				case "motherId":
+					motherId = reader.nextString();
+					break;
+				case "start":
+					start = Instant.parse(reader.nextString());
+					break;
+				case "end":
+					end = Instant.parse(reader.nextString());
+					break;
+				case "players":
+					reader.beginArray();
+					while (reader.hasNext())
+					{
+						players.add(reader.nextString());
+					}
+					reader.endArray();
+					break;
+				case "kills":
+					reader.beginArray();
+					while (reader.hasNext())
+					{
+						Kill k = readKill(reader, tally);
+						if (k != null)
+						{
+							kills.add(k);
+						}
+					}
+					reader.endArray();
+					break;
+				default:
+					reader.skipValue();
+					break;
+			}
+		}
+		reader.endObject();
+
+		Session s = new Session(id, start, motherId);
+		s.setEnd(end);
+		s.setPlayers(players);
+		s.getKills().addAll(kills);
+		return s;
+	}
+
+	/**
+	 * @param tally when non-null, the kill is only counted into {count, total value} and null is returned
+	 */
+	private static Kill readKill(JsonReader reader, long[] tally) throws IOException
+	{
+		String sessionId = null;
+		String player = null;
+		Long amount = null;
+		Instant at = null;
+		String type = null;
+
+		reader.beginObject();
+		while (reader.hasNext())
+		{
+			String name = reader.nextName();
+			if (reader.peek() == JsonToken.NULL)
+			{
+				reader.nextNull();
+				continue;
+			}
+			switch (name)
+			{
+				case "sessionId":
+					sessionId = reader.nextString();
+					break;
+				case "player":
+					player = reader.nextString();
+					break;
+				case "amount":
+					amount = reader.nextLong();
+					break;
+				case "at":
+					if (tally == null)
+					{
+						at = Instant.parse(reader.nextString());
+					}
+					else
+					{
+						reader.skipValue();
+					}
+					break;
+				case "type":
+					type = reader.nextString();
+					break;
+				default:
+					reader.skipValue();
+					break;
+			}
+		}
+		reader.endObject();
+
+		if (tally != null)
+		{
+			if (type == null || type.equalsIgnoreCase("LOOT"))
+			{
+				tally[0]++;
+				tally[1] += amount == null ? 0L : amount;
+			}
+			return null;
+		}
+		Kill k = new Kill(sessionId, player, amount, at);
+		k.setType(type);
+		return k;
+	}
+}
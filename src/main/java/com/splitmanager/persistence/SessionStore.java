@@ -0,0 +1,602 @@
+package com.splitmanager.persistence;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.splitmanager.PluginConfig;
+import com.splitmanager.models.Session;
+import com.splitmanager.models.SessionHeader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.config.ConfigManager;
+
+/**
+ * Sharded storage of session threads in the plugin's config group.
+ * <p>
+ * Each thread (mother session plus its children) is stored under its own key
+ * ({@value #THREAD_KEY_PREFIX} + motherId), encoded with {@link SessionCodec}. Threads stored as a
+ * JSON array by older versions are still readable and are re-encoded the next time they are written.
+ * Finished threads are written to the cold archive instead, as a compressed {@link SessionArchive}
+ * block that is only unpacked when the thread is read again. A small manifest lists every stored
+ * thread so that startup only needs to read the manifest and the active thread. Histories written
+ * by older versions as a single sessionsJson blob are read once with {@link #readLegacy} and then
+ * rewritten as separate threads.
+ * <p>
+ * Threads past the retention limits are listed in a separate archive index instead of the
+ * manifest, which is only read when the archived history is viewed or exported. Once
+ * {@value #BLOCK_THREADS} archived threads have their own keys, they are compacted into one shared
+ * block under {@value #BLOCK_KEY_PREFIX} + the first thread's id, which compresses better than
+ * each thread alone, and their own keys are removed. A compacted thread that is edited gets its
+ * own key again, which takes precedence over its copy in the block. Nothing is ever deleted, so
+ * the stored history keeps growing with every session, only more slowly.
+ * <p>
+ * The lifetime rollups of every finished thread are kept under their own key as well.
+ * <p>
+ * Threads, the manifest, the archive index and the rollups are written as {@link SealedValue}s.
+ * Before a valid value is replaced it is kept under the same key plus {@value #BACKUP_SUFFIX}, so a
+ * value damaged by an interrupted write is detected on load and the last good snapshot is used instead.
+ * The client keeps config values in memory and saves them to disk later, so reading a value back
+ * right after setting it proves nothing; a backup is therefore only ever replaced by the next write
+ * of its key. Compacted threads give up their own keys, backup included, only on a later write than
+ * the one that wrote their block, which bounds the doubled storage to threads not in a block.
+ */
+@Slf4j
+public class SessionStore
+{
+	public static final String THREAD_KEY_PREFIX = "thread.";
+	public static final String BACKUP_SUFFIX = ".prev";
+	public static final String BLOCK_KEY_PREFIX = "archiveBlock.";
+	/**
+	 * Archived threads per shared block.
+	 */
+	public static final int BLOCK_THREADS = 16;
+
+	/**
+	 * Values of the plugin's config group by key.
+	 */
+	interface Values
+	{
+		String get(String key);
+
+		void set(String key, String value);
+
+		void unset(String key);
+	}
+
+	private final PluginConfig config;
+	private final Values values;
+	private final Gson gson;
+	// Journal sequence number of the manifest read last
+	private long manifestSeq;
+	// Shared block key of every compacted thread by mother id; read from the archive index on first use
+	private final Map<String, String> blockOf = new ConcurrentHashMap<>();
+	private volatile boolean blockIndexRead;
+
+	public SessionStore(PluginConfig config, ConfigManager configManager, Gson gson)
+	{
+		this(config, new Values()
+		{
+			@Override
+			public String get(String key)
+			{
+				return configManager.getConfiguration(PluginConfig.GROUP, key);
+			}
+
+			@Override
+			public void set(String key, String value)
+			{
+				configManager.setConfiguration(PluginConfig.GROUP, key, value);
+			}
+
+			@Override
+			public void unset(String key)
+			{
+				configManager.unsetConfiguration(PluginConfig.GROUP, key);
+			}
+		}, gson);
+	}
+
+	SessionStore(PluginConfig config, Values values, Gson gson)
+	{
+		this.config = config;
+		this.values = values;
+		this.gson = gson;
+	}
+
+	/**
+	 * @return manifest entries in the order they were stored; empty if nothing is stored yet
+	 */
+	public List<ThreadEntry> readManifest()
+	{
+		manifestSeq = 0L;
+		String key = PluginConfig.KEY_THREAD_MANIFEST;
+		for (String value : new String[]{config.threadManifest(), readBackup(key)})
+		{
+			SealedValue sealed = SealedValue.open(value);
+			if (sealed == null)
+			{
+				continue;
+			}
+			try
+			{
+				ThreadEntry[] arr = gson.fromJson(sealed.getPayload(), ThreadEntry[].class);
+				manifestSeq = sealed.getSeq();
+				return arr == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(arr));
+			}
+			catch (JsonParseException e)
+			{
+				log.warn("Unable to read session thread manifest", e);
+			}
+		}
+		if (hasManifest())
+		{
+			log.error("Session thread manifest and its backup are damaged");
+		}
+		return new ArrayList<>();
+	}
+
+	/**
+	 * @return journal sequence number contained in the manifest read by {@link #readManifest}
+	 */
+	public long getManifestSeq()
+	{
+		return manifestSeq;
+	}
+
+	/**
+	 * @param entries manifest entries to store
+	 * @param seq     sequence number of the last journal entry contained in this snapshot
+	 */
+	public void writeManifest(ThreadEntry[] entries, long seq)
+	{
+		String key = PluginConfig.KEY_THREAD_MANIFEST;
+		backup(key, config.threadManifest());
+		config.threadManifest(SealedValue.seal(seq, gson.toJson(entries)));
+	}
+
+	/**
+	 * Read the index of threads that the retention policy moved out of the manifest.
+	 * Their thread values stay under their own keys until they are compacted into a shared block.
+	 *
+	 * @return archived thread entries, oldest first; empty if nothing is archived
+	 */
+	public List<ThreadEntry> readArchiveIndex()
+	{
+		String key = PluginConfig.KEY_THREAD_ARCHIVE;
+		String current = config.threadArchive();
+		for (String value : new String[]{current, readBackup(key)})
+		{
+			SealedValue sealed = SealedValue.open(value);
+			if (sealed == null)
+			{
+				continue;
+			}
+			try
+			{
+				ThreadEntry[] arr = gson.fromJson(sealed.getPayload(), ThreadEntry[].class);
+				return arr == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(arr));
+			}
+			catch (JsonParseException e)
+			{
+				log.warn("Unable to read session thread archive index", e);
+			}
+		}
+		if (current != null && !current.isEmpty())
+		{
+			log.error("Session thread archive index and its backup are damaged");
+		}
+		return new ArrayList<>();
+	}
+
+	/**
+	 * @param entries archived thread entries to store
+	 * @param seq     sequence number of the last journal entry contained in this snapshot
+	 */
+	public void writeArchiveIndex(ThreadEntry[] entries, long seq)
+	{
+		String key = PluginConfig.KEY_THREAD_ARCHIVE;
+		backup(key, config.threadArchive());
+		config.threadArchive(SealedValue.seal(seq, gson.toJson(entries)));
+	}
+
+	/**
+	 * Read the lifetime rollups, falling back to the previous snapshot if the current one is damaged.
+	 *
+	 * @return stored rollups, or null if none are stored or both snapshots are damaged
+	 */
+	public LifetimeSnapshot readLifetime()
+	{
+		String key = PluginConfig.KEY_LIFETIME_ROLLUPS;
+		String current = config.lifetimeRollups();
+		for (String value : new String[]{current, readBackup(key)})
+		{
+			SealedValue sealed = SealedValue.open(value);
+			if (sealed == null)
+			{
+				continue;
+			}
+			try
+			{
+				LifetimeSnapshot snapshot = gson.fromJson(sealed.getPayload(), LifetimeSnapshot.class);
+				if (snapshot != null && snapshot.getThreads() != null && snapshot.getPlayers() != null)
+				{
+					return snapshot;
+				}
+			}
+			catch (JsonParseException e)
+			{
+				log.warn("Unable to read lifetime rollups", e);
+			}
+		}
+		if (current != null && !current.isEmpty())
+		{
+			log.error("Lifetime rollups and their backup are damaged");
+		}
+		return null;
+	}
+
+	/**
+	 * @param snapshot lifetime rollups to store
+	 * @param seq      sequence number of the last journal entry contained in this snapshot
+	 */
+	public void writeLifetime(LifetimeSnapshot snapshot, long seq)
+	{
+		String key = PluginConfig.KEY_LIFETIME_ROLLUPS;
+		backup(key, config.lifetimeRollups());
+		config.lifetimeRollups(SealedValue.seal(seq, gson.toJson(snapshot)));
+	}
+
+	/**
+	 * @return true if a manifest has been written, i.e. the history is stored per thread
+	 */
+	public boolean hasManifest()
+	{
+		String json = config.threadManifest();
+		return json != null && !json.isEmpty();
+	}
+
+	/**
+	 * Read all sessions of one thread.
+	 *
+	 * @param motherId id of the thread's mother session
+	 * @return the thread's sessions, mother first; empty if the thread is not stored
+	 */
+	public List<Session> readThread(String motherId)
+	{
+		return readThreadSnapshot(motherId).getSessions();
+	}
+
+	/**
+	 * Read all sessions of one thread together with the journal sequence number they contain.
+	 * Falls back to the previous snapshot of the thread if the current one is damaged.
+	 *
+	 * @param motherId id of the thread's mother session
+	 * @return the thread's snapshot; empty with sequence number 0 if the thread is not stored or unreadable
+	 */
+	public ThreadSnapshot readThreadSnapshot(String motherId)
+	{
+		String key = THREAD_KEY_PREFIX + motherId;
+		String current = values.get(key);
+		if (current == null || current.isEmpty())
+		{
+			return readFromBlock(motherId);
+		}
+
+		ThreadSnapshot snapshot = decodeThread(current);
+		if (snapshot == null)
+		{
+			snapshot = decodeThread(readBackup(key));
+			if (snapshot == null)
+			{
+				log.error("Session thread {} and its backup are damaged", motherId);
+				return new ThreadSnapshot(0L, new ArrayList<>());
+			}
+			log.warn("Session thread {} is damaged, restored the previous snapshot", motherId);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Read a compacted thread out of its shared block.
+	 *
+	 * @return the thread's snapshot; empty with sequence number 0 if it is in no block or the block is damaged
+	 */
+	private ThreadSnapshot readFromBlock(String motherId)
+	{
+		String blockKey = blockIndex().get(motherId);
+		ThreadSnapshot block = blockKey == null ? null : decodeThread(values.get(blockKey));
+		if (block == null)
+		{
+			if (blockKey != null)
+			{
+				log.error("Archive block {} holding session thread {} is damaged", blockKey, motherId);
+			}
+			return new ThreadSnapshot(0L, new ArrayList<>());
+		}
+		List<Session> thread = new ArrayList<>();
+		for (Session s : block.getSessions())
+		{
+			if (motherId.equals(s.getMotherId() == null ? s.getId() : s.getMotherId()))
+			{
+				thread.add(s);
+			}
+		}
+		return new ThreadSnapshot(block.getSeq(), thread);
+	}
+
+	private Map<String, String> blockIndex()
+	{
+		if (!blockIndexRead)
+		{
+			synchronized (blockOf)
+			{
+				if (!blockIndexRead)
+				{
+					for (ThreadEntry entry : readArchiveIndex())
+					{
+						if (entry.getBlock() != null)
+						{
+							blockOf.putIfAbsent(entry.getMotherId(), entry.getBlock());
+						}
+					}
+					blockIndexRead = true;
+				}
+			}
+		}
+		return blockOf;
+	}
+
+	/**
+	 * Prepare an archive index for writing: fill in the blocks of threads compacted earlier and
+	 * compact further threads into new blocks once {@link #BLOCK_THREADS} of them have their own
+	 * keys. Call {@link #dropThreadKeys} with the result once the index is written. Runs on the
+	 * background writer only.
+	 * <p>
+	 * Threads keep their own keys when their block is written. Only a later call, once the client
+	 * had the time to save the block, hands them out for removal, and only if the block still opens.
+	 *
+	 * @param index     archive index about to be written; its entries are updated
+	 * @param rewritten threads written to their own keys in the same batch, these are not compacted
+	 * @param seq       sequence number of the last journal entry contained in this snapshot
+	 * @return mother ids of threads compacted by an earlier call whose own keys can be removed now
+	 */
+	public List<String> compactArchive(ThreadEntry[] index, Set<String> rewritten, long seq)
+	{
+		Map<String, String> blocks = blockIndex();
+		List<ThreadEntry> loose = new ArrayList<>();
+		List<String> droppable = new ArrayList<>();
+		// Whether each block met below opens, so every block is checked once
+		Map<String, Boolean> intact = new HashMap<>();
+		for (ThreadEntry entry : index)
+		{
+			String id = entry.getMotherId();
+			if (rewritten.contains(id))
+			{
+				// Its own key is newer than any block copy
+				blocks.remove(id);
+				entry.setBlock(null);
+			}
+			else if (blocks.containsKey(id))
+			{
+				String blockKey = blocks.get(id);
+				entry.setBlock(blockKey);
+				if (values.get(THREAD_KEY_PREFIX + id) != null
+					&& intact.computeIfAbsent(blockKey, k -> decodeThread(values.get(k)) != null))
+				{
+					droppable.add(id);
+				}
+			}
+			else if (!entry.isActive() && values.get(THREAD_KEY_PREFIX + id) != null)
+			{
+				loose.add(entry);
+			}
+			else
+			{
+				entry.setBlock(null);
+			}
+		}
+
+		List<ThreadEntry> group = new ArrayList<>(BLOCK_THREADS);
+		List<Session> sessions = new ArrayList<>();
+		for (int i = 0; i < loose.size() && loose.size() - i + group.size() >= BLOCK_THREADS; i++)
+		{
+			ThreadEntry next = loose.get(i);
+			List<Session> thread = readThread(next.getMotherId());
+			if (thread.isEmpty())
+			{
+				// Unreadable; leave it where it is rather than lose what is left of it
+				log.warn("Not compacting damaged session thread {}", next.getMotherId());
+				continue;
+			}
+			group.add(next);
+			sessions.addAll(thread);
+			if (group.size() < BLOCK_THREADS)
+			{
+				continue;
+			}
+
+			String blockKey = BLOCK_KEY_PREFIX + group.get(0).getMotherId();
+			values.set(blockKey, SealedValue.seal(seq, SessionArchive.pack(SessionCodec.encodeBytes(sessions.toArray(new Session[0])))));
+			for (ThreadEntry entry : group)
+			{
+				entry.setBlock(blockKey);
+				blocks.put(entry.getMotherId(), blockKey);
+			}
+			log.debug("Compacted {} archived session threads into {}", group.size(), blockKey);
+			group.clear();
+			sessions.clear();
+		}
+		return droppable;
+	}
+
+	/**
+	 * Remove the own keys, and their backups, of threads that are stored in a shared block now.
+	 */
+	public void dropThreadKeys(List<String> motherIds)
+	{
+		for (String motherId : motherIds)
+		{
+			values.unset(THREAD_KEY_PREFIX + motherId);
+			values.unset(THREAD_KEY_PREFIX + motherId + BACKUP_SUFFIX);
+		}
+	}
+
+	private ThreadSnapshot decodeThread(String value)
+	{
+		SealedValue sealed = SealedValue.open(value);
+		if (sealed == null)
+		{
+			return null;
+		}
+		String payload = sealed.getPayload();
+		try
+		{
+			List<Session> sessions;
+			if (SessionArchive.isArchived(payload))
+			{
+				sessions = SessionCodec.decodeBytes(SessionArchive.unpack(payload));
+			}
+			else if (SessionCodec.isEncoded(payload))
+			{
+				sessions = SessionCodec.decode(payload);
+			}
+			else
+			{
+				sessions = SessionJsonReader.readSessions(new StringReader(payload));
+			}
+			return new ThreadSnapshot(sealed.getSeq(), sessions);
+		}
+		catch (IllegalArgumentException | JsonParseException e)
+		{
+			log.warn("Unable to decode session thread", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Read only the headers of a stored thread. Threads still stored as JSON are streamed without
+	 * creating their kill records.
+	 *
+	 * @param motherId id of the thread's mother session
+	 * @return headers of the thread's sessions, mother first; empty if the thread is not stored or unreadable
+	 */
+	public List<SessionHeader> readThreadHeaders(String motherId)
+	{
+		String value = values.get(THREAD_KEY_PREFIX + motherId);
+		SealedValue sealed = SealedValue.open(value);
+		if (sealed != null && !SessionCodec.isEncoded(sealed.getPayload()) && !SessionArchive.isArchived(sealed.getPayload()))
+		{
+			try
+			{
+				return SessionJsonReader.readHeaders(new StringReader(sealed.getPayload()));
+			}
+			catch (JsonParseException e)
+			{
+				log.warn("Unable to read headers of session thread {}", motherId, e);
+			}
+		}
+
+		List<Session> thread = readThread(motherId);
+		List<SessionHeader> headers = new ArrayList<>(thread.size());
+		for (Session s : thread)
+		{
+			headers.add(s.getMotherId() == null ? SessionHeader.ofThread(s, thread) : SessionHeader.of(s));
+		}
+		return headers;
+	}
+
+	/**
+	 * @return true if the thread is stored in an older format and should be written again
+	 */
+	public boolean needsUpgrade(String motherId)
+	{
+		String value = values.get(THREAD_KEY_PREFIX + motherId);
+		return value != null && !value.isEmpty() && !value.startsWith(SealedValue.PREFIX);
+	}
+
+	/**
+	 * @param motherId id of the thread's mother session
+	 * @param sessions all sessions of the thread
+	 * @param seq      sequence number of the last journal entry contained in this snapshot
+	 */
+	public void writeThread(String motherId, Session[] sessions, long seq)
+	{
+		writeSealed(THREAD_KEY_PREFIX + motherId, SessionCodec.encode(sessions), seq);
+	}
+
+	/**
+	 * Write a finished thread to the cold archive as a compressed block.
+	 *
+	 * @param motherId id of the thread's mother session
+	 * @param sessions all sessions of the thread
+	 * @param seq      sequence number of the last journal entry contained in this snapshot
+	 * @return size and checksum metadata of the written block, for the manifest
+	 */
+	public ArchiveInfo archiveThread(String motherId, Session[] sessions, long seq)
+	{
+		byte[] raw = SessionCodec.encodeBytes(sessions);
+		String block = SessionArchive.pack(raw);
+		writeSealed(THREAD_KEY_PREFIX + motherId, block, seq);
+		return new ArchiveInfo(raw.length, block.length(), SessionArchive.checksum(raw));
+	}
+
+	private void writeSealed(String key, String payload, long seq)
+	{
+		backup(key, values.get(key));
+		values.set(key, SealedValue.seal(seq, payload));
+	}
+
+	/**
+	 * Keep the value about to be replaced as the last good snapshot, unless it is damaged itself.
+	 */
+	private void backup(String key, String previous)
+	{
+		if (previous != null && previous.startsWith(SealedValue.PREFIX) && SealedValue.open(previous) != null)
+		{
+			values.set(key + BACKUP_SUFFIX, previous);
+		}
+	}
+
+	private String readBackup(String key)
+	{
+		return values.get(key + BACKUP_SUFFIX);
+	}
+
+	/**
+	 * Read a history written by older versions as a single sessionsJson blob.
+	 *
+	 * @return all legacy sessions; empty if there is no legacy data, null if it is unreadable
+	 */
+	public List<Session> readLegacy()
+	{
+		String json = config.sessionsJson();
+		if (json == null || json.isEmpty())
+		{
+			return new ArrayList<>();
+		}
+		try
+		{
+			return SessionJsonReader.readSessions(new StringReader(json));
+		}
+		catch (JsonParseException e)
+		{
+			// Leave the blob in place so nothing is lost, it is only cleared after a successful migration
+			log.error("Unable to read legacy sessions", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Drop the legacy blob once its sessions have been written as separate threads.
+	 */
+	public void clearLegacy()
+	{
+		config.sessionsJson("");
+	}
+}
@@ -0,0 +1,71 @@
+package com.splitmanager.persistence;
+
+import com.splitmanager.models.SessionHeader;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Manifest entry describing one stored session thread (a mother session plus its children).
+ * The manifest is small and always loaded, the thread itself is only read when needed.
+ */
+@Getter
+public class ThreadEntry
+{
+	/**
+	 * Id of the mother session; also identifies the storage key of the thread.
+	 */
+	private final String motherId;
+	private final Instant start;
+	/**
+	 * When the thread was stopped; null while the thread is still running.
+	 */
+	@Setter
+	private Instant end;
+	/**
+	 * Headers of every segment in the thread, mother first, as of the last snapshot.
+	 * Null for manifests written before headers were stored.
+	 */
+	@Setter
+	private List<SessionHeader> sessions;
+	/**
+	 * Metadata of the compressed block once the finished thread was archived; null otherwise.
+	 */
+	@Setter
+	private ArchiveInfo archive;
+	/**
+	 * Key of the shared block holding the thread once the retention policy's compaction removed
+	 * the thread's own key; null otherwise. Only set in the archive index.
+	 */
+	@Setter
+	private String block;
+
+	public ThreadEntry(String motherId, Instant start, Instant end, List<SessionHeader> sessions)
+	{
+		this.motherId = motherId;
+		this.start = start;
+		this.end = end;
+		this.sessions = sessions;
+	}
+
+	/**
+	 * @return copy of this entry, safe to hand to the background writer
+	 */
+	public ThreadEntry copy()
+	{
+		ThreadEntry c = new ThreadEntry(motherId, start, end, sessions == null ? null : new ArrayList<>(sessions));
+		c.archive = archive;
+		c.block = block;
+		return c;
+	}
+
+	/**
+	 * @return true when the thread has not been stopped yet
+	 */
+	public boolean isActive()
+	{
+		return end == null;
+	}
+}
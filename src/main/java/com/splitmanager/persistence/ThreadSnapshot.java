@@ -0,0 +1,23 @@
+package com.splitmanager.persistence;
+
+import com.splitmanager.models.Session;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * The stored sessions of one thread together with the journal position they were taken at.
+ * Journal entries up to and including {@link #getSeq()} are already part of the sessions and
+ * must not be replayed on top of them again.
+ */
+@Getter
+public class ThreadSnapshot
+{
+	private final long seq;
+	private final List<Session> sessions;
+
+	public ThreadSnapshot(long seq, List<Session> sessions)
+	{
+		this.seq = seq;
+		this.sessions = sessions;
+	}
+}
@@ -0,0 +1,146 @@
+package com.splitmanager.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tokenizer for the player command "!add value [value ...]" in chat.
+ * <p>
+ * Anyone in the chat can send this, so it is read by a hand-written scanner instead of a regex
+ * with nested repetition: every character is looked at a bounded number of times, and messages
+ * longer than {@link #MAX_MESSAGE_LENGTH} or values past {@link #MAX_VALUES} are ignored.
+ * <p>
+ * Grammar, case-insensitive: "!add", whitespace, then one or more values separated by whitespace
+ * and/or a single comma. A value is a number with optional fraction ("1,234", "1.5") and an
+ * optional unit k, m or b, which may follow after whitespace but not be followed by a letter.
+ * A comma between two digits groups thousands; any other comma separates values. Whatever
+ * follows the last value is ignored.
+ */
+public final class AddCommandParser
+{
+	/**
+	 * Longer messages are not looked at; chat messages are much shorter than this.
+	 */
+	public static final int MAX_MESSAGE_LENGTH = 256;
+	/**
+	 * Values after this many in one message are dropped.
+	 */
+	public static final int MAX_VALUES = 10;
+
+	private static final String COMMAND = "!add";
+
+	private AddCommandParser()
+	{
+	}
+
+	/**
+	 * Find the values of the first !add command in a message.
+	 *
+	 * @param msg chat message
+	 * @return the values as typed, unit included if one was given but without whitespace, e.g.
+	 * "1.5m" or "300"; empty if the message holds no !add command with a value
+	 */
+	public static List<String> parse(String msg)
+	{
+		if (msg == null || msg.length() > MAX_MESSAGE_LENGTH)
+		{
+			return List.of();
+		}
+		int n = msg.length();
+		for (int at = indexOfCommand(msg, 0); at >= 0; at = indexOfCommand(msg, at + 1))
+		{
+			int i = at + COMMAND.length();
+			int afterCommand = i;
+			i = skipWhitespace(msg, i, n);
+			if (i == afterCommand || i == n || !isDigit(msg.charAt(i)))
+			{
+				continue;
+			}
+
+			List<String> values = new ArrayList<>(1);
+			while (values.size() < MAX_VALUES)
+			{
+				int end = readValue(msg, i, n, values);
+				// Separator: whitespace and/or one comma, then the next value must start with a digit
+				int next = skipWhitespace(msg, end, n);
+				if (next < n && msg.charAt(next) == ',')
+				{
+					next = skipWhitespace(msg, next + 1, n);
+				}
+				if (next == n || !isDigit(msg.charAt(next)))
+				{
+					break;
+				}
+				i = next;
+			}
+			return values;
+		}
+		return List.of();
+	}
+
+	/**
+	 * Read one value starting at a digit and add it to values.
+	 *
+	 * @return index just past the value
+	 */
+	private static int readValue(String msg, int i, int n, List<String> values)
+	{
+		int start = i;
+		i++;
+		while (i < n && (isDigit(msg.charAt(i)) || (msg.charAt(i) == ',' && i + 1 < n && isDigit(msg.charAt(i + 1)))))
+		{
+			i++;
+		}
+		if (i + 1 < n && msg.charAt(i) == '.' && isDigit(msg.charAt(i + 1)))
+		{
+			i += 2;
+			while (i < n && isDigit(msg.charAt(i)))
+			{
+				i++;
+			}
+		}
+		int numberEnd = i;
+
+		int u = skipWhitespace(msg, i, n);
+		if (u < n && isUnit(msg.charAt(u)) && (u + 1 == n || !Character.isLetter(msg.charAt(u + 1))))
+		{
+			values.add(msg.substring(start, numberEnd) + msg.charAt(u));
+			return u + 1;
+		}
+		values.add(msg.substring(start, numberEnd));
+		return numberEnd;
+	}
+
+	private static int indexOfCommand(String msg, int from)
+	{
+		int last = msg.length() - COMMAND.length();
+		for (int i = msg.indexOf('!', from); i >= 0 && i <= last; i = msg.indexOf('!', i + 1))
+		{
+			if (msg.regionMatches(true, i, COMMAND, 0, COMMAND.length()))
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int skipWhitespace(String msg, int i, int n)
+	{
+		while (i < n && Character.isWhitespace(msg.charAt(i)))
+		{
+			i++;
+		}
+		return i;
+	}
+
+	private static boolean isUnit(char c)
+	{
+		char l = Character.toLowerCase(c);
+		return l == 'k' || l == 'm' || l == 'b';
+	}
+
+	private static boolean isDigit(char c)
+	{
+		return c >= '0' && c <= '9';
+	}
+}
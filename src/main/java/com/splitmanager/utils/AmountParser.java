@@ -0,0 +1,230 @@
+package com.splitmanager.utils;
+
+import java.text.ParseException;
+
+/**
+ * Single-pass parser for OSRS amounts such as "1,234", "1.5m", "300k", "2b" and "12,345 coins".
+ * <p>
+ * The text is read once, character by character, straight into a long: no substrings, regexes or
+ * BigDecimals are created. Accepted are a number with optional fraction, followed by an optional
+ * unit (k, m or b in any case, or "coins" after a space), with surrounding whitespace. Commas are
+ * ignored wherever they appear. Amounts without a unit are multiplied by the given default.
+ * The result is the exact amount in coins, rounded down, and overflowing a long is an error.
+ */
+public final class AmountParser
+{
+	/**
+	 * Multiplier of a plain number, and of amounts in coins.
+	 */
+	public static final long COINS = 1L;
+	// More fraction digits cannot change an amount rounded down to whole coins
+	private static final int MAX_FRACTION_DIGITS = 9;
+	private static final long FRACTION_SCALE = 1_000_000_000L;
+
+	private AmountParser()
+	{
+	}
+
+	/**
+	 * @param unit unit as configured, e.g. "k" or " coins"; anything else counts as coins
+	 * @return multiplier of the unit
+	 */
+	public static long multiplierOf(String unit)
+	{
+		if (unit == null || unit.isEmpty())
+		{
+			return COINS;
+		}
+		return multiplierOf(unit.charAt(0));
+	}
+
+	/**
+	 * @return true if the text holds nothing but whitespace and commas
+	 */
+	public static boolean isBlank(CharSequence text)
+	{
+		for (int i = 0; i < text.length(); i++)
+		{
+			char c = text.charAt(i);
+			if (c != ',' && !Character.isWhitespace(c))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Parse a whole text as an amount.
+	 *
+	 * @param defaultMultiplier multiplier for amounts without a unit, see {@link #multiplierOf}
+	 * @return the amount in coins
+	 * @throws ParseException if the text is not an amount or does not fit in a long
+	 */
+	public static long parse(CharSequence text, long defaultMultiplier) throws ParseException
+	{
+		return parse(text, 0, text.length(), defaultMultiplier);
+	}
+
+	/**
+	 * Parse text[start, end) as an amount, e.g. a matched group, without copying it out.
+	 *
+	 * @param defaultMultiplier multiplier for amounts without a unit, see {@link #multiplierOf}
+	 * @return the amount in coins
+	 * @throws ParseException if the range is not an amount or does not fit in a long
+	 */
+	public static long parse(CharSequence text, int start, int end, long defaultMultiplier) throws ParseException
+	{
+		int i = skipBlank(text, start, end);
+		if (i == end || !isDigit(text.charAt(i)))
+		{
+			throw new ParseException("Invalid amount", i - start);
+		}
+
+		long whole = 0L;
+		for (; i < end; i++)
+		{
+			char c = text.charAt(i);
+			if (c == ',')
+			{
+				continue;
+			}
+			if (!isDigit(c))
+			{
+				break;
+			}
+			if (whole > (Long.MAX_VALUE - (c - '0')) / 10)
+			{
+				throw new ParseException("Amount too large", i - start);
+			}
+			whole = whole * 10 + (c - '0');
+		}
+
+		// Fraction as nanos, i.e. scaled by FRACTION_SCALE
+		long fraction = 0L;
+		if (i < end && text.charAt(i) == '.')
+		{
+			i++;
+			int digits = 0;
+			long scale = FRACTION_SCALE;
+			for (; i < end; i++)
+			{
+				char c = text.charAt(i);
+				if (c == ',')
+				{
+					continue;
+				}
+				if (!isDigit(c))
+				{
+					break;
+				}
+				if (digits < MAX_FRACTION_DIGITS)
+				{
+					scale /= 10;
+					fraction += (c - '0') * scale;
+				}
+				digits++;
+			}
+			if (digits == 0)
+			{
+				throw new ParseException("Invalid amount", i - start);
+			}
+		}
+
+		int beforeUnit = i;
+		i = skipBlank(text, i, end);
+		long multiplier = defaultMultiplier;
+		if (i < end)
+		{
+			char c = Character.toLowerCase(text.charAt(i));
+			if (c == 'k' || c == 'm' || c == 'b')
+			{
+				multiplier = multiplierOf(c);
+				i++;
+			}
+			else if (hasWhitespace(text, beforeUnit, i) && regionMatchesIgnoreCase(text, i, end, "coins"))
+			{
+				multiplier = COINS;
+				i += "coins".length();
+			}
+			else
+			{
+				throw new ParseException("Invalid unit", i - start);
+			}
+			if (skipBlank(text, i, end) != end)
+			{
+				throw new ParseException("Invalid amount", i - start);
+			}
+		}
+
+		if (whole > Long.MAX_VALUE / multiplier)
+		{
+			throw new ParseException("Amount too large", start);
+		}
+		long coins = whole * multiplier;
+		// multiplier divides FRACTION_SCALE, so this is the fraction rounded down to whole coins
+		long fractionCoins = fraction / (FRACTION_SCALE / multiplier);
+		if (coins > Long.MAX_VALUE - fractionCoins)
+		{
+			throw new ParseException("Amount too large", start);
+		}
+		return coins + fractionCoins;
+	}
+
+	private static long multiplierOf(char unit)
+	{
+		switch (Character.toLowerCase(unit))
+		{
+			case 'k':
+				return 1_000L;
+			case 'm':
+				return 1_000_000L;
+			case 'b':
+				return 1_000_000_000L;
+			default:
+				return COINS;
+		}
+	}
+
+	private static int skipBlank(CharSequence text, int i, int end)
+	{
+		while (i < end && (text.charAt(i) == ',' || Character.isWhitespace(text.charAt(i))))
+		{
+			i++;
+		}
+		return i;
+	}
+
+	private static boolean hasWhitespace(CharSequence text, int from, int to)
+	{
+		for (int i = from; i < to; i++)
+		{
+			if (Character.isWhitespace(text.charAt(i)))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isDigit(char c)
+	{
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean regionMatchesIgnoreCase(CharSequence text, int i, int end, String word)
+	{
+		if (end - i < word.length())
+		{
+			return false;
+		}
+		for (int j = 0; j < word.length(); j++)
+		{
+			if (Character.toLowerCase(text.charAt(i + j)) != word.charAt(j))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -2,12 +2,10 @@ package com.splitmanager.utils;
 
 import com.splitmanager.PluginConfig;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.text.DecimalFormat;
 import java.text.ParseException;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.regex.Pattern;
 import javax.annotation.Nonnull;
 import javax.swing.JFormattedTextField;
 import lombok.Setter;
@@ -33,39 +31,9 @@ public class Formats
 		return DF;
 	}
 
+	@SuppressWarnings("serial")
 	public static final class OsrsAmountFormatter extends JFormattedTextField.AbstractFormatter
 	{
-		private static final Pattern P =
-			Pattern.compile("(?i)^\\s*([0-9]+(?:\\.[0-9]+)?)\\s*([kmb]| coins)?\\s*$");
-
-		private static BigDecimal getBigDecimal(BigDecimal number, char suffix) throws ParseException
-		{
-			log.debug("Converting {} to BigDecimal, with {}", number, suffix);
-			if (number.signum() < 0)
-			{
-				throw new ParseException("Negative not allowed", 0);
-			}
-
-			long multiplierK;
-			switch (suffix)
-			{
-				case 'k':
-					multiplierK = 1_000L;
-					break;
-				case 'm':
-					multiplierK = 1_000_000L;
-					break;
-				case 'b':
-					multiplierK = 1_000_000_000L;
-					break;
-				default:
-					multiplierK = 1L;
-					break;
-			}
-
-			return number.multiply(BigDecimal.valueOf(multiplierK));
-		}
-
 		/**
 		 * Convert a K-based long amount to a human string with a target suffix.
 		 * Examples:
@@ -123,80 +91,43 @@ public class Formats
 			return toSuffixString(amountK, suffix.charAt(0));
 		}
 
+		/**
+		 * Parse an amount typed into a table cell. Amounts without a unit use the default
+		 * multiplier of the given config, or of the plugin config if none is given.
+		 *
+		 * @return the amount in coins
+		 * @throws ParseException if the text is empty or not an amount
+		 */
 		public static long stringAmountToLongAmount(String amount, PluginConfig config) throws ParseException
 		{
-			String valueStr = amount;
-
-			log.debug("Parsing amount: {}", valueStr);
-			// Check if the value has no unit (k, m, b) and append the default
-			java.util.regex.Pattern unitPattern = java.util.regex.Pattern.compile("(?i)^\\s*([0-9][0-9,]*(?:\\.[0-9]+)?)\\s*([kmb])?\\s*$");
-			java.util.regex.Matcher matcher = unitPattern.matcher(valueStr);
-
-			if (matcher.matches())
-			{
-				String numberTxt = matcher.group(1);
-				String unitTxt = matcher.group(2);
-				log.debug("Number: {}, Unit: {}", numberTxt, unitTxt);
-
-				if (unitTxt == null && config != null)
-				{
-					// No unit specified, append the default multiplier
-					valueStr = numberTxt + config.defaultValueMultiplier().getValue();
-				}
-				log.debug("Final value: {}", valueStr);
-			}
-
-			log.debug("Parsed amount: {}", valueStr);
-			Object k = new Formats.OsrsAmountFormatter().stringToValue(valueStr);
-			if (k == null)
+			if (amount == null || AmountParser.isBlank(amount))
 			{
 				throw new ParseException("Invalid amount", 0);
 			}
-			return (Long) k;
+			return AmountParser.parse(amount, defaultMultiplier(config != null ? config : Formats.config));
+		}
+
+		/**
+		 * @return multiplier for amounts without a unit, coins if there is no config
+		 */
+		public static long defaultMultiplier(PluginConfig config)
+		{
+			return config == null ? AmountParser.COINS : AmountParser.multiplierOf(config.defaultValueMultiplier().getValue());
 		}
 
+		/**
+		 * Swing-facing wrapper around {@link AmountParser}.
+		 *
+		 * @return the amount in coins, or null for an empty text
+		 */
 		@Override
 		public Object stringToValue(@Nonnull String text) throws ParseException
 		{
-			log.debug("Parsing bujiamount: {}", text);
-			String s = text.replace(",", "").trim(); // ignore commas
-			if (s.isEmpty())
+			if (AmountParser.isBlank(text))
 			{
 				return null;
 			}
-
-			java.util.regex.Matcher m = P.matcher(s);
-			if (!m.matches())
-			{
-				throw new ParseException("Invalid amount", 0);
-			}
-
-			BigDecimal number = new BigDecimal(m.group(1));
-			Character suffixCh = (m.group(2) == null) ? null : Character.toLowerCase(m.group(2).charAt(0));
-			// If no suffix provided by user, fall back to config default if available
-			char suffix;
-			if (config == null)
-			{
-				log.debug("No config available, falling back to global config");
-			}
-			if (suffixCh == null)
-			{
-				log.debug("No suffix provided, falling back to config default");
-				String def = config.defaultValueMultiplier().getValue();
-				suffix = def != null && !def.isEmpty() ? Character.toLowerCase(def.charAt(0)) : ' ';
-			}
-			else
-			{
-				log.debug("Suffix provided: {}", suffixCh);
-				suffix = (suffixCh == null) ? ' ' : suffixCh;
-			}
-
-			log.debug("Parsed amo00unt: {}{}", number, suffix);
-
-			// Convert to raw coins
-			BigDecimal coinsValue = getBigDecimal(number, suffix);
-			// Return the exact long value (no normalization to K units)
-			return coinsValue.setScale(0, RoundingMode.FLOOR).longValueExact();
+			return AmountParser.parse(text, defaultMultiplier(config));
 		}
 
 		@Override
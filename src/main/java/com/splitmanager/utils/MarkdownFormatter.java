@@ -4,6 +4,7 @@ import com.splitmanager.ManagerSession;
 import com.splitmanager.PluginConfig;
 import com.splitmanager.models.PlayerMetrics;
 import com.splitmanager.models.Session;
+import com.splitmanager.models.Transfer;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.List;
@@ -16,19 +17,20 @@ public class MarkdownFormatter
 
 	/**
 	 * Build metrics table as markdown.
+	 *
+	 * @param transfers suggested direct payments for data, as computed by the session manager
 	 */
-	public static String buildMetricsMarkdown(List<PlayerMetrics> data, PluginConfig config)
+	public static String buildMetricsMarkdown(List<PlayerMetrics> data, List<Transfer> transfers, PluginConfig config)
 	{
 		DecimalFormat df = Formats.getDecimalFormat();
 		StringBuilder sb = new StringBuilder();
 
 		if (config.directPayments())
 		{
-			List<String> transfers = PaymentProcessor.computeDirectPayments(data);
 			if (!transfers.isEmpty())
 			{
 				sb.append('\n').append("Suggested direct payments:\n");
-				for (String line : transfers)
+				for (String line : PaymentProcessor.formatTransfers(transfers))
 				{
 					sb.append("- ").append(line).append('\n');
 				}
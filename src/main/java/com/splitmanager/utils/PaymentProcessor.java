@@ -17,59 +17,20 @@ public class PaymentProcessor
 	 */
 	public static List<String> computeDirectPayments(List<PlayerMetrics> data)
 	{
-		List<PlayerMetrics> receivers = new ArrayList<>();
-		List<PlayerMetrics> payers = new ArrayList<>();
-
-		for (PlayerMetrics pm : data)
-		{
-			if (pm.split > 0)
-			{
-				receivers.add(pm);
-			}
-			else if (pm.split < 0)
-			{
-				payers.add(pm);
-			}
-		}
-
-		receivers.sort((a, b) -> Long.compare(b.split, a.split));
-		payers.sort((a, b) -> Long.compare(Math.abs(b.split), Math.abs(a.split)));
+		return formatTransfers(computeDirectPaymentsStructured(data));
+	}
 
-		List<String> lines = new ArrayList<>();
+	/**
+	 * Format transfers as text instructions, one "from -> to: amount" line each.
+	 */
+	public static List<String> formatTransfers(List<Transfer> transfers)
+	{
 		DecimalFormat df = Formats.getDecimalFormat();
-
-		int i = 0, j = 0;
-		long recvLeft = receivers.isEmpty() ? 0 : receivers.get(0).split;
-		long payLeft = payers.isEmpty() ? 0 : -payers.get(0).split;
-		while (i < receivers.size() && j < payers.size())
+		List<String> lines = new ArrayList<>(transfers.size());
+		for (Transfer t : transfers)
 		{
-			long amt = Math.min(recvLeft, payLeft);
-			if (amt > 0)
-			{
-				String from = payers.get(j).player;
-				String to = receivers.get(i).player;
-				lines.add(from + " -> " + to + ": " + df.format(amt));
-				recvLeft -= amt;
-				payLeft -= amt;
-			}
-			if (recvLeft == 0)
-			{
-				i++;
-				if (i < receivers.size())
-				{
-					recvLeft = receivers.get(i).split;
-				}
-			}
-			if (payLeft == 0)
-			{
-				j++;
-				if (j < payers.size())
-				{
-					payLeft = -payers.get(j).split;
-				}
-			}
+			lines.add(t.getFrom() + " -> " + t.getTo() + ": " + df.format(t.getAmount()));
 		}
-
 		return lines;
 	}
 
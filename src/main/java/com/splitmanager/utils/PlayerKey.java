@@ -0,0 +1,56 @@
+package com.splitmanager.utils;
+
+/**
+ * Canonical form of a player name, used to compare names the way the game does.
+ * <p>
+ * Jagex names are case-insensitive, and spaces, underscores, hyphens and non-breaking spaces
+ * (as sent in chat and menu targets) all mean the same separator. The key lower-cases the name,
+ * maps every separator to a single space and trims the ends, so "Iron_Man", "iron man" and
+ * "IRON MAN" share the key "iron man". Keys are only for lookups; the name as the user
+ * entered it is still what is stored and shown.
+ */
+public final class PlayerKey
+{
+	private PlayerKey()
+	{
+	}
+
+	/**
+	 * @param name player name as displayed, entered or received from the client; tags must be removed already
+	 * @return canonical key of the name, or null for null
+	 */
+	public static String of(String name)
+	{
+		if (name == null)
+		{
+			return null;
+		}
+		StringBuilder sb = new StringBuilder(name.length());
+		boolean separator = false;
+		for (int i = 0; i < name.length(); i++)
+		{
+			char c = name.charAt(i);
+			if (c == '_' || c == '-' || c == '\u00A0' || Character.isWhitespace(c))
+			{
+				// Leading separators are dropped, runs collapse into one
+				separator = sb.length() > 0;
+				continue;
+			}
+			if (separator)
+			{
+				sb.append(' ');
+				separator = false;
+			}
+			sb.append(Character.toLowerCase(c));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return true if both names refer to the same player
+	 */
+	public static boolean same(String a, String b)
+	{
+		return a != null && b != null && of(a).equals(of(b));
+	}
+}
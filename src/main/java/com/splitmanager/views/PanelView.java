@@ -6,16 +6,17 @@ import com.splitmanager.PluginConfig;
 import com.splitmanager.controllers.PanelActions;
 import com.splitmanager.controllers.PanelController;
 import com.splitmanager.models.Kill;
+import com.splitmanager.models.LifetimeTable;
 import com.splitmanager.models.Metrics;
-import com.splitmanager.models.PlayerMetrics;
 import com.splitmanager.models.RecentSplitsTable;
+import com.splitmanager.models.SegmentMetrics;
 import com.splitmanager.models.Session;
+import com.splitmanager.models.SessionHeader;
 import com.splitmanager.models.Transfer;
 import com.splitmanager.models.WaitlistTable;
 import com.splitmanager.utils.Formats;
 import static com.splitmanager.utils.Formats.OsrsAmountFormatter.toSuffixString;
 import com.splitmanager.utils.MarkdownFormatter;
-import com.splitmanager.utils.PaymentProcessor;
 import com.splitmanager.views.components.DropdownRip;
 import com.splitmanager.views.components.table.RemoveButtonEditor;
 import com.splitmanager.views.components.table.RemoveButtonRenderer;
@@ -30,6 +31,7 @@ import java.awt.GridBagLayout;
 import java.awt.GridLayout;
 import java.awt.Insets;
 import java.awt.datatransfer.StringSelection;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import javax.swing.BorderFactory;
@@ -37,8 +39,10 @@ import javax.swing.Box;
 import javax.swing.BoxLayout;
 import javax.swing.DefaultCellEditor;
 import javax.swing.DefaultComboBoxModel;
+import javax.swing.DefaultListCellRenderer;
 import javax.swing.DefaultListModel;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JComponent;
 import javax.swing.JFormattedTextField;
@@ -99,8 +103,16 @@ public class PanelView extends PluginPanel
 	private final JButton btnRemoveFromSession = new JButton("Remove");
 	private final JComboBox<String> currentSessionPlayerDropdown = new JComboBox<>();
 	private final JComboBox<String> notInCurrentSessionPlayerDropdown = new JComboBox<>();
-	private final DefaultListModel<Session> historyModel = new DefaultListModel<>();
-	private final JList<Session> historyList = new JList<>(historyModel);
+	private final DefaultListModel<SessionHeader> historyModel = new DefaultListModel<>();
+	private final JList<SessionHeader> historyList = new JList<>(historyModel);
+	private final JButton btnLoadHistory = new JButton("Load");
+	private final JButton btnUnloadHistory = new JButton("Unload");
+	private final JButton btnExportThread = new JButton("Export");
+	private final JButton btnExportAll = new JButton("Export all");
+	private final JCheckBox showArchivedHistory = new JCheckBox("Show archived");
+	private final LifetimeTable lifetimeModel = new LifetimeTable();
+	private final JTable lifetimeTable = new JTable(lifetimeModel);
+	private final JLabel lifetimeStatus = new JLabel(" ");
 	private final Dimension dl = new Dimension(48, 24);
 	private final Dimension dm = new Dimension(64, 24);
 	private final Dimension bm = new Dimension(59, 24);
@@ -124,6 +136,11 @@ public class PanelView extends PluginPanel
 	private boolean tourRunning = false;
 	private int tourStep = 0;
 	private Timer rainbowTimer;
+	// Repaints the hourly rates once a second while the panel is showing; nothing is recomputed
+	private Timer rateTimer;
+	private final JLabel segmentRates = new JLabel();
+	// Numbers of the segment shown in segmentRates, refreshed with the metrics
+	private SegmentMetrics segmentMetrics;
 	private JComponent highlighted;
 	private Border originalBorder;
 	// References to copy buttons so we can highlight them in the tour
@@ -142,7 +159,7 @@ public class PanelView extends PluginPanel
 		recentSplitsModel.setListener(editedKill -> {
 			if (actions != null)
 			{
-				actions.recomputeMetricsForSession(editedKill != null ? editedKill.getSessionId() : null);
+				actions.killEdited(editedKill);
 			}
 			else
 			{
@@ -171,6 +188,10 @@ public class PanelView extends PluginPanel
 		top.add(Box.createVerticalStrut(3));
 		top.add(generateKnownPlayersManagement());
 		top.add(Box.createVerticalStrut(3));
+		top.add(generateHistoryPanel());
+		top.add(Box.createVerticalStrut(3));
+		top.add(generateLifetimePanel());
+		top.add(Box.createVerticalStrut(3));
 
 		add(top, BorderLayout.NORTH);
 	}
@@ -217,6 +238,18 @@ public class PanelView extends PluginPanel
 			actions.addKillFromInputs();
 		});
 
+		btnLoadHistory.addActionListener(e -> {
+			SessionHeader selected = historyList.getSelectedValue();
+			actions.loadHistory(selected == null ? null : selected.getId());
+		});
+		btnUnloadHistory.addActionListener(e -> actions.unloadHistory());
+		btnExportThread.addActionListener(e -> {
+			SessionHeader selected = historyList.getSelectedValue();
+			actions.exportThread(selected == null ? null : selected.getId());
+		});
+		btnExportAll.addActionListener(e -> actions.exportAllSessions());
+		showArchivedHistory.addActionListener(e -> actions.refreshAllView());
+
 		btnWaitlistAdd.addActionListener(e -> actions.applySelectedPendingValue(waitlistTable.getSelectedRow()));
 		btnWaitlistDelete.addActionListener(e -> actions.deleteSelectedPendingValue(waitlistTable.getSelectedRow()));
 		waitlistTable.addMouseListener(new java.awt.event.MouseAdapter()
@@ -1034,6 +1067,64 @@ public class PanelView extends PluginPanel
 		return detectedValuesDropdown;
 	}
 
+	private JComponent generateHistoryPanel()
+	{
+		historyList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		historyList.setCellRenderer(new DefaultListCellRenderer()
+		{
+			@Override
+			public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+														  boolean isSelected, boolean cellHasFocus)
+			{
+				SessionHeader h = (SessionHeader) value;
+				String text = (h.isMother() ? "" : "  \u21B3 ")
+					+ Formats.getDateTime().format(h.getStart())
+					+ " | " + h.getRosterSize() + "p"
+					+ " | " + h.getKillCount() + " kills"
+					+ " | " + toSuffixString(h.getTotalValue(), config.defaultValueMultiplier().getValue())
+					+ (h.isActive() ? " (active)" : "");
+				return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+			}
+		});
+
+		JPanel content = new JPanel(new BorderLayout(0, 3));
+		JScrollPane sc = new JScrollPane(historyList);
+		sc.setPreferredSize(lm);
+		content.add(showArchivedHistory, BorderLayout.NORTH);
+		content.add(sc, BorderLayout.CENTER);
+
+		JPanel btns = new JPanel(new GridLayout(2, 2, 6, 3));
+		btns.add(btnLoadHistory);
+		btns.add(btnUnloadHistory);
+		btns.add(btnExportThread);
+		btns.add(btnExportAll);
+		content.add(btns, BorderLayout.SOUTH);
+
+		String tooltip = "Past sessions, newest first. Load one to view its splits read-only.\n" +
+			" Stop the active session before loading history.\n" +
+			" Older sessions are archived after the limits set in the plugin config; show them with \"Show archived\".\n" +
+			" Export writes the selected session with its whole thread, or every session, to a JSON file.";
+		return new DropdownRip("History", content, false, tooltip);
+	}
+
+	private JComponent generateLifetimePanel()
+	{
+		lifetimeTable.setFillsViewportHeight(true);
+		lifetimeTable.setAutoResizeMode(JTable.AUTO_RESIZE_ALL_COLUMNS);
+		lifetimeTable.setAutoCreateRowSorter(true);
+
+		JPanel content = new JPanel(new BorderLayout(0, 3));
+		JScrollPane sc = new JScrollPane(lifetimeTable);
+		sc.setPreferredSize(lm);
+		content.add(sc, BorderLayout.CENTER);
+		content.add(lifetimeStatus, BorderLayout.SOUTH);
+
+		String tooltip = "Totals per player over every stopped session, archived ones included.\n" +
+			" Sessions: number of sessions the player took part in.\n" +
+			" Net: the sum of the player's splits, what was settled in their favour overall.";
+		return new DropdownRip("Lifetime", content, false, tooltip);
+	}
+
 	private JComponent generateRecentSplitsPanel()
 	{
 		JScrollPane scroller = new JScrollPane(recentSplitsTable);
@@ -1098,6 +1189,10 @@ public class PanelView extends PluginPanel
 		JPanel header = new JPanel(new BorderLayout());
 		header.add(title, BorderLayout.NORTH);
 		header.add(desc, BorderLayout.CENTER);
+		if (config.showRates())
+		{
+			header.add(segmentRates, BorderLayout.SOUTH);
+		}
 
 		btnCopyJson = new JButton("Copy JSON");
 		btnCopyJson.addActionListener(e -> {
@@ -1131,6 +1226,7 @@ public class PanelView extends PluginPanel
 		metricsTable.setAutoResizeMode(JTable.AUTO_RESIZE_ALL_COLUMNS);
 
 		((Metrics) metricsTable.getModel()).setHideTotalColumn(true);
+		((Metrics) metricsTable.getModel()).setShowRates(config.showRates());
 		refreshMetrics();
 
 		int colCount = metricsTable.getColumnModel().getColumnCount();
@@ -1178,13 +1274,16 @@ public class PanelView extends PluginPanel
 		catch (IllegalArgumentException ignored)
 		{
 		}
-		try
-		{
-			int totalIdx = metricsTable.getColumnModel().getColumnIndex("Total");
-			metricsTable.getColumnModel().getColumn(totalIdx).setCellRenderer(greyingRenderer);
-		}
-		catch (IllegalArgumentException ignored)
+		for (String column : new String[]{"Total", "GP/h", "Kills/h"})
 		{
+			try
+			{
+				int idx = metricsTable.getColumnModel().getColumnIndex(column);
+				metricsTable.getColumnModel().getColumn(idx).setCellRenderer(greyingRenderer);
+			}
+			catch (IllegalArgumentException ignored)
+			{
+			}
 		}
 
 		DefaultTableCellRenderer splitRenderer = new DefaultTableCellRenderer()
@@ -1237,8 +1336,7 @@ public class PanelView extends PluginPanel
 	private JComponent generateDirectPaymentsContent()
 	{
 		Session currentSession = sessionManager.getCurrentSession().orElse(null);
-		List<PlayerMetrics> data = sessionManager.computeMetricsFor(currentSession, true);
-		List<Transfer> transfers = PaymentProcessor.computeDirectPaymentsStructured(data);
+		List<Transfer> transfers = sessionManager.computeTransfersFor(currentSession);
 
 		if (transfers != null && !transfers.isEmpty())
 		{
@@ -1277,9 +1375,64 @@ public class PanelView extends PluginPanel
 	{
 		Session currentSession = sessionManager.getCurrentSession().orElse(null);
 		((Metrics) metricsTable.getModel()).setData(sessionManager.computeMetricsFor(currentSession, true));
+		segmentMetrics = sessionManager.computeSegmentMetricsFor(currentSession);
+		refreshSegmentRates();
 		refreshMetricsContent();
 	}
 
+	/**
+	 * Repaint the hourly rates for the current time. Called once a second; the rates are derived
+	 * from the shown rows and segment numbers, so this neither recomputes nor rebuilds them.
+	 */
+	public void tickRates()
+	{
+		((Metrics) metricsTable.getModel()).tickRates();
+		refreshSegmentRates();
+	}
+
+	private void refreshSegmentRates()
+	{
+		if (segmentMetrics == null)
+		{
+			segmentRates.setText("This segment: no session");
+			return;
+		}
+		Instant now = Instant.now();
+		segmentRates.setText(String.format("This segment: %s gp/h, %.1f kills/h",
+			toSuffixString(segmentMetrics.gpPerHour(now), 'k'), segmentMetrics.killsPerHour(now)));
+	}
+
+	@Override
+	public void addNotify()
+	{
+		super.addNotify();
+		if (config.showRates() && rateTimer == null)
+		{
+			rateTimer = new Timer(1000, e -> {
+				if (actions != null)
+				{
+					actions.tickRates();
+				}
+				else
+				{
+					tickRates();
+				}
+			});
+			rateTimer.start();
+		}
+	}
+
+	@Override
+	public void removeNotify()
+	{
+		if (rateTimer != null)
+		{
+			rateTimer.stop();
+			rateTimer = null;
+		}
+		super.removeNotify();
+	}
+
 	private void copyMetricsJsonToClipboard()
 	{
 		String payload = MarkdownFormatter.buildMetricsJson(sessionManager);
@@ -1289,9 +1442,9 @@ public class PanelView extends PluginPanel
 
 	private void copyMetricsMarkdownToClipboard()
 	{
+		Session currentSession = sessionManager.getCurrentSession().orElse(null);
 		String payload = MarkdownFormatter.buildMetricsMarkdown(
-			sessionManager.computeMetricsFor(
-				sessionManager.getCurrentSession().orElse(null), true), config);
+			sessionManager.computeMetricsFor(currentSession, true), sessionManager.computeTransfersFor(currentSession), config);
 		StringSelection selection = new StringSelection(payload);
 		java.awt.Toolkit.getDefaultToolkit().getSystemClipboard().setContents(selection, selection);
 	}
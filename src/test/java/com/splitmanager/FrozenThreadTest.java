@@ -0,0 +1,92 @@
+package com.splitmanager;
+
+import com.splitmanager.models.Kill;
+import com.splitmanager.models.PlayerMetrics;
+import com.splitmanager.models.Session;
+import com.splitmanager.persistence.SessionCodecTest;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class FrozenThreadTest
+{
+	private static final Instant START = Instant.parse("2024-05-01T18:00:00Z");
+
+	private static FrozenThread freeze(List<Session> thread)
+	{
+		return FrozenThread.freeze(thread, new SplitEngine(thread));
+	}
+
+	@Test
+	public void thawKeepsEveryField()
+	{
+		Session[] thread = SessionCodecTest.sampleThread();
+		FrozenThread frozen = freeze(Arrays.asList(thread));
+		assertEquals("m", frozen.getMotherId());
+		assertEquals(2, frozen.getSegmentCount());
+		assertEquals(5, frozen.getKillCount());
+		SessionCodecTest.assertSameThread(thread, frozen.thaw());
+	}
+
+	@Test
+	public void extremeAmountsAndTimesAreNotTakenForMissing()
+	{
+		Session mother = new Session("m", Instant.ofEpochMilli(Long.MIN_VALUE), null);
+		Kill min = new Kill("m", "Alice", Long.MIN_VALUE, Instant.ofEpochMilli(Long.MIN_VALUE));
+		Kill none = new Kill("m", "Alice", null, null);
+		mother.getKills().add(min);
+		mother.getKills().add(none);
+
+		List<Session> thawed = freeze(List.of(mother)).thaw();
+		Session s = thawed.get(0);
+		assertEquals(Instant.ofEpochMilli(Long.MIN_VALUE), s.getStart());
+		assertNull(s.getEnd());
+		assertEquals(Long.valueOf(Long.MIN_VALUE), s.getKills().get(0).getAmount());
+		assertEquals(Instant.ofEpochMilli(Long.MIN_VALUE), s.getKills().get(0).getAt());
+		assertNull(s.getKills().get(1).getAmount());
+		assertNull(s.getKills().get(1).getAt());
+	}
+
+	@Test
+	public void everyThawIsANewCopy()
+	{
+		Session[] thread = SessionCodecTest.sampleThread();
+		FrozenThread frozen = freeze(Arrays.asList(thread));
+		List<Session> first = frozen.thaw();
+		first.get(1).getKills().clear();
+		first.get(0).setPlayers(List.of());
+
+		SessionCodecTest.assertSameThread(thread, frozen.thaw());
+	}
+
+	@Test
+	public void thawedEngineMatchesARebuiltOne()
+	{
+		Session mother = new Session("m", START, null);
+		mother.setEnd(START.plusSeconds(600));
+		mother.setPlayers(List.of("Alice", "Bob"));
+		mother.getKills().add(new Kill("m", "Alice", 900_000L, START.plusSeconds(60)));
+		Session child = new Session("c", START.plusSeconds(600), "m");
+		child.setEnd(START.plusSeconds(1200));
+		child.setPlayers(List.of("Alice", "Bob", "Carol"));
+		child.getKills().add(new Kill("c", "Carol", 300_000L, START.plusSeconds(700)));
+		child.getKills().add(new Kill("c", "Bob", 30_000L, START.plusSeconds(800)));
+		List<Session> thread = List.of(mother, child);
+
+		FrozenThread frozen = freeze(thread);
+		List<Session> thawed = frozen.thaw();
+		List<PlayerMetrics> restored = new SplitEngine(thawed, frozen).metrics(thawed.get(0), true, List.of(), 0L);
+		List<PlayerMetrics> rebuilt = new SplitEngine(thawed).metrics(thawed.get(0), true, List.of(), 0L);
+		assertEquals(rebuilt.size(), restored.size());
+		for (int i = 0; i < rebuilt.size(); i++)
+		{
+			assertEquals(rebuilt.get(i).player, restored.get(i).player);
+			assertEquals(rebuilt.get(i).total, restored.get(i).total);
+			assertEquals(rebuilt.get(i).split, restored.get(i).split);
+			assertEquals(rebuilt.get(i).kills, restored.get(i).kills);
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package com.splitmanager;
+
+import com.splitmanager.models.Kill;
+import com.splitmanager.models.PlayerMetrics;
+import com.splitmanager.models.Session;
+import com.splitmanager.models.Transfer;
+import java.time.Instant;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Split numbers checked against settlements computed by hand. Amounts are chosen so every
+ * segment average is a whole number.
+ */
+public class SplitEngineTest
+{
+	private static final Instant START = Instant.parse("2024-05-01T18:00:00Z");
+
+	private Session mother;
+	private Session child;
+	private Kill bobLoot;
+
+	/**
+	 * Mother with Alice and Bob: Alice 900k, Bob 100k, and 500k by Carol, who is not on the roster.
+	 * Average 500k, so Alice +400k and Bob -400k. Then Carol joins, the child with all three has
+	 * 300k by Carol. Average 100k, so Alice -100k, Bob -100k and Carol +200k.
+	 */
+	@Before
+	public void setUp()
+	{
+		mother = new Session("m", START, null);
+		mother.setEnd(START.plusSeconds(600));
+		mother.setPlayers(List.of("Alice", "Bob"));
+		bobLoot = new Kill("m", "Bob", 100_000L, START.plusSeconds(120));
+		mother.getKills().add(new Kill("m", "Alice", 900_000L, START.plusSeconds(60)));
+		mother.getKills().add(bobLoot);
+		mother.getKills().add(new Kill("m", "Carol", 500_000L, START.plusSeconds(180)));
+
+		child = new Session("c", START.plusSeconds(600), "m");
+		child.setPlayers(List.of("Alice", "Bob", "Carol"));
+		child.getKills().add(new Kill("c", "Carol", 300_000L, START.plusSeconds(700)));
+	}
+
+	private static List<PlayerMetrics> metrics(SplitEngine engine, Session s)
+	{
+		return engine.metrics(s, true, List.of(), 0L);
+	}
+
+	private static void assertRow(List<PlayerMetrics> rows, String player, long total, long split)
+	{
+		for (PlayerMetrics pm : rows)
+		{
+			if (pm.player.equals(player))
+			{
+				assertEquals(player + " total", Long.valueOf(total), pm.total);
+				assertEquals(player + " split", Long.valueOf(split), pm.split);
+				return;
+			}
+		}
+		fail("No row for " + player);
+	}
+
+	private static void assertTransfer(Transfer t, String from, String to, long amount)
+	{
+		assertEquals(from, t.getFrom());
+		assertEquals(to, t.getTo());
+		assertEquals(amount, t.getAmount());
+	}
+
+	@Test
+	public void settlesEverySegmentAgainstItsOwnRoster()
+	{
+		SplitEngine engine = new SplitEngine(List.of(mother, child));
+		List<PlayerMetrics> rows = metrics(engine, child);
+		assertEquals(3, rows.size());
+		assertRow(rows, "Alice", 900_000L, 300_000L);
+		assertRow(rows, "Bob", 100_000L, -500_000L);
+		// Her 500k in the mother counts for nobody, as she was not on its roster
+		assertRow(rows, "Carol", 300_000L, 200_000L);
+
+		// Transfers pair the negative splits with the positive ones, largest first
+		List<Transfer> transfers = engine.transfers(child, List.of(), 0L);
+		assertEquals(2, transfers.size());
+		assertTransfer(transfers.get(0), "Bob", "Alice", 300_000L);
+		assertTransfer(transfers.get(1), "Bob", "Carol", 200_000L);
+	}
+
+	@Test
+	public void segmentsAddedOneByOneMatchABuiltThread()
+	{
+		SplitEngine engine = new SplitEngine(List.of(mother));
+		List<PlayerMetrics> rows = metrics(engine, mother);
+		assertRow(rows, "Alice", 900_000L, 400_000L);
+		assertRow(rows, "Bob", 100_000L, -400_000L);
+
+		engine.addSession(child);
+		rows = metrics(engine, child);
+		assertRow(rows, "Alice", 900_000L, 300_000L);
+		assertRow(rows, "Bob", 100_000L, -500_000L);
+		assertRow(rows, "Carol", 300_000L, 200_000L);
+	}
+
+	@Test
+	public void rosterChangeInPlaceRecountsTheSegment()
+	{
+		SplitEngine engine = new SplitEngine(List.of(mother, child));
+
+		// Carol leaves the child again: her 300k no longer counts, the child averages 0
+		child.removePlayer("Carol");
+		engine.rosterChanged(child);
+		List<PlayerMetrics> rows = metrics(engine, child);
+		assertRow(rows, "Alice", 900_000L, 400_000L);
+		assertRow(rows, "Bob", 100_000L, -400_000L);
+		assertFalse(rows.stream().anyMatch(pm -> pm.player.equals("Carol")));
+
+		// Carol on the mother's roster after all: 1500k over three, average 500k
+		mother.addPlayer("Carol");
+		engine.rosterChanged(mother);
+		rows = metrics(engine, child);
+		assertRow(rows, "Alice", 900_000L, 400_000L);
+		assertRow(rows, "Bob", 100_000L, -400_000L);
+		assertRow(rows, "Carol", 500_000L, 0L);
+	}
+
+	@Test
+	public void killEditInvalidatesTheMemo()
+	{
+		SplitEngine engine = new SplitEngine(List.of(mother, child));
+		List<PlayerMetrics> before = metrics(engine, child);
+		List<Transfer> transfersBefore = engine.transfers(child, List.of(), 0L);
+		assertSame(before, metrics(engine, child));
+		long version = engine.getVersion();
+
+		// Bob 300k: the mother averages 600k, Alice +300k and Bob -300k, then -100k each in the child
+		bobLoot.setAmount(300_000L);
+		engine.killChanged(bobLoot);
+		assertTrue(engine.getVersion() > version);
+		List<PlayerMetrics> after = metrics(engine, child);
+		assertNotSame(before, after);
+		assertRow(after, "Alice", 900_000L, 200_000L);
+		assertRow(after, "Bob", 300_000L, -400_000L);
+		assertRow(after, "Carol", 300_000L, 200_000L);
+
+		List<Transfer> transfers = engine.transfers(child, List.of(), 0L);
+		assertNotSame(transfersBefore, transfers);
+		assertEquals(2, transfers.size());
+		assertTransfer(transfers.get(0), "Bob", "Alice", 200_000L);
+		assertTransfer(transfers.get(1), "Bob", "Carol", 200_000L);
+	}
+
+	@Test
+	public void editThatCountsTheSameChangesNothing()
+	{
+		SplitEngine engine = new SplitEngine(List.of(mother, child));
+		List<PlayerMetrics> before = metrics(engine, child);
+		bobLoot.setType("LOOT");
+		engine.killChanged(bobLoot);
+		assertSame(before, metrics(engine, child));
+	}
+
+	@Test
+	public void killMovedToAPlayerOffTheRosterStopsCounting()
+	{
+		SplitEngine engine = new SplitEngine(List.of(mother, child));
+		// The mother is left with Alice's 900k, average 450k
+		bobLoot.setPlayer("Dave");
+		engine.killChanged(bobLoot);
+		List<PlayerMetrics> rows = metrics(engine, child);
+		assertRow(rows, "Alice", 900_000L, 350_000L);
+		assertRow(rows, "Bob", 0L, -550_000L);
+		assertRow(rows, "Carol", 300_000L, 200_000L);
+	}
+
+	@Test
+	public void eventsDoNotCount()
+	{
+		Kill joined = new Kill("c", "Alice", 600_000L, START.plusSeconds(601));
+		joined.setType("JOINED");
+		child.getKills().add(joined);
+		List<PlayerMetrics> rows = metrics(new SplitEngine(List.of(mother, child)), child);
+		assertRow(rows, "Alice", 900_000L, 300_000L);
+	}
+
+	@Test
+	public void spellingsOfOnePlayerShareARosterSlot()
+	{
+		// Stored before names were compared by key; still two players, average 450k
+		mother.setPlayers(List.of("Alice", "alice", "Bob"));
+		mother.getKills().remove(bobLoot);
+		List<PlayerMetrics> rows = metrics(new SplitEngine(List.of(mother)), mother);
+		assertEquals(2, rows.size());
+		assertRow(rows, "Alice", 900_000L, 450_000L);
+		assertRow(rows, "Bob", 0L, -450_000L);
+	}
+}
@@ -0,0 +1,72 @@
+package com.splitmanager.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class SealedValueTest
+{
+	@Test
+	public void opensWhatWasSealed()
+	{
+		String payload = SessionCodec.encode(SessionCodecTest.sampleThread());
+		SealedValue opened = SealedValue.open(SealedValue.seal(42L, payload));
+		assertNotNull(opened);
+		assertEquals(42L, opened.getSeq());
+		assertEquals(payload, opened.getPayload());
+	}
+
+	@Test
+	public void payloadMayContainSeparatorsAndUnicode()
+	{
+		String payload = "a:b::c:\u00eb\u4e2d:";
+		SealedValue opened = SealedValue.open(SealedValue.seal(0L, payload));
+		assertNotNull(opened);
+		assertEquals(payload, opened.getPayload());
+		assertEquals("", SealedValue.open(SealedValue.seal(7L, "")).getPayload());
+	}
+
+	@Test
+	public void unsealedValuesAreTakenAsIs()
+	{
+		SealedValue opened = SealedValue.open("[{\"id\":\"m\"}]");
+		assertNotNull(opened);
+		assertEquals(0L, opened.getSeq());
+		assertEquals("[{\"id\":\"m\"}]", opened.getPayload());
+		assertNull(SealedValue.open(null));
+		assertNull(SealedValue.open(""));
+	}
+
+	@Test
+	public void rejectsEveryTruncation()
+	{
+		String sealed = SealedValue.seal(12L, "payload:with:colons");
+		for (int n = SealedValue.PREFIX.length(); n < sealed.length(); n++)
+		{
+			assertNull(sealed.substring(0, n), SealedValue.open(sealed.substring(0, n)));
+		}
+	}
+
+	@Test
+	public void rejectsEveryChangedCharacter()
+	{
+		String sealed = SealedValue.seal(12L, "payload:with:colons");
+		for (int i = SealedValue.PREFIX.length(); i < sealed.length(); i++)
+		{
+			char c = sealed.charAt(i);
+			String changed = sealed.substring(0, i) + (char) (c == 'x' ? 'y' : 'x') + sealed.substring(i + 1);
+			assertNull(changed, SealedValue.open(changed));
+		}
+	}
+
+	@Test
+	public void rejectsMalformedHeaders()
+	{
+		assertNull(SealedValue.open(SealedValue.PREFIX));
+		assertNull(SealedValue.open(SealedValue.PREFIX + "zz:1:payload"));
+		assertNull(SealedValue.open(SealedValue.PREFIX + "0:payload"));
+		String body = "x:payload";
+		assertNull(SealedValue.open(SealedValue.PREFIX + Long.toHexString(SealedValue.checksum(body)) + ":" + body));
+	}
+}
@@ -0,0 +1,99 @@
+package com.splitmanager.persistence;
+
+import java.util.Arrays;
+import java.util.Base64;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class SessionArchiveTest
+{
+	@Test
+	public void packedThreadUnpacksToTheSameBytes()
+	{
+		byte[] raw = SessionCodec.encodeBytes(SessionCodecTest.sampleThread());
+		String block = SessionArchive.pack(raw);
+		assertTrue(SessionArchive.isArchived(block));
+		assertFalse(SessionCodec.isEncoded(block));
+		assertArrayEquals(raw, SessionArchive.unpack(block));
+		SessionCodecTest.assertSameThread(SessionCodecTest.sampleThread(), SessionCodec.decodeBytes(SessionArchive.unpack(block)));
+	}
+
+	@Test
+	public void emptyAndLargeInputsRoundTrip()
+	{
+		assertArrayEquals(new byte[0], SessionArchive.unpack(SessionArchive.pack(new byte[0])));
+
+		byte[] large = new byte[100_000];
+		for (int i = 0; i < large.length; i++)
+		{
+			large[i] = (byte) (i * 31 % 7);
+		}
+		assertArrayEquals(large, SessionArchive.unpack(SessionArchive.pack(large)));
+	}
+
+	@Test
+	public void rejectsEveryTruncation()
+	{
+		byte[] block = blockBytes();
+		for (int n = 0; n < block.length; n++)
+		{
+			String cut = SessionArchive.PREFIX + Base64.getEncoder().encodeToString(Arrays.copyOf(block, n));
+			assertRejected(cut);
+		}
+	}
+
+	@Test
+	public void flippedBitsNeverYieldOtherBytes()
+	{
+		// The header checksum catches what the deflate stream does not; only the padding bits at
+		// the end of the stream may flip without changing the unpacked bytes
+		byte[] raw = SessionCodec.encodeBytes(SessionCodecTest.sampleThread());
+		byte[] block = blockBytes();
+		for (int i = 0; i < block.length; i++)
+		{
+			for (int bit = 0; bit < 8; bit++)
+			{
+				byte[] bad = block.clone();
+				bad[i] ^= (byte) (1 << bit);
+				try
+				{
+					assertArrayEquals(raw, SessionArchive.unpack(SessionArchive.PREFIX + Base64.getEncoder().encodeToString(bad)));
+				}
+				catch (IllegalArgumentException e)
+				{
+					// Expected for nearly every bit
+				}
+			}
+		}
+	}
+
+	@Test
+	public void rejectsOtherValues()
+	{
+		assertFalse(SessionArchive.isArchived(null));
+		assertRejected(SessionCodec.encode(SessionCodecTest.sampleThread()));
+		assertRejected(SessionArchive.PREFIX + "not base64!");
+	}
+
+	private static byte[] blockBytes()
+	{
+		String block = SessionArchive.pack(SessionCodec.encodeBytes(SessionCodecTest.sampleThread()));
+		return Base64.getDecoder().decode(block.substring(SessionArchive.PREFIX.length()));
+	}
+
+	private static void assertRejected(String value)
+	{
+		try
+		{
+			SessionArchive.unpack(value);
+			fail("Expected the block to be rejected");
+		}
+		catch (IllegalArgumentException e)
+		{
+			// Expected
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package com.splitmanager.persistence;
+
+import com.splitmanager.models.Kill;
+import com.splitmanager.models.Session;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class SessionCodecTest
+{
+	private static final Instant START = Instant.parse("2024-05-01T18:00:00.123Z");
+
+	public static Session[] sampleThread()
+	{
+		Session mother = new Session("m", START, null);
+		mother.setEnd(START.plusSeconds(3600));
+		mother.setPlayers(List.of("Alice", "Bob"));
+
+		Session child = new Session("c1", START.plusMillis(5), "m");
+		child.setPlayers(List.of("Alice", "Bob", "Zo\u00eb"));
+		child.getKills().add(kill("c1", "Alice", 1_500_000L, START.plusSeconds(60), null));
+		child.getKills().add(kill("c1", "Bob", -250_000L, START.plusSeconds(30), "LOOT"));
+		child.getKills().add(kill("c1", "Zo\u00eb", null, START.plusSeconds(90), "JOINED"));
+		child.getKills().add(kill("c1", null, Long.MAX_VALUE, START.plusSeconds(120), "LEFT"));
+		child.getKills().add(kill("c1", "Bob", Long.MIN_VALUE, START.minusSeconds(10), "BONUS"));
+		return new Session[]{mother, child};
+	}
+
+	static Kill kill(String sessionId, String player, Long amount, Instant at, String type)
+	{
+		Kill k = new Kill(sessionId, player, amount, at);
+		k.setType(type);
+		return k;
+	}
+
+	public static void assertSameThread(Session[] expected, List<Session> actual)
+	{
+		assertEquals(expected.length, actual.size());
+		for (int i = 0; i < expected.length; i++)
+		{
+			Session e = expected[i];
+			Session a = actual.get(i);
+			assertEquals(e.getId(), a.getId());
+			assertEquals(e.getMotherId(), a.getMotherId());
+			assertEquals(e.getStart(), a.getStart());
+			assertEquals(e.getEnd(), a.getEnd());
+			assertEquals(List.copyOf(e.getPlayers()), List.copyOf(a.getPlayers()));
+			assertEquals(e.getKills().size(), a.getKills().size());
+			for (int j = 0; j < e.getKills().size(); j++)
+			{
+				Kill ek = e.getKills().get(j);
+				Kill ak = a.getKills().get(j);
+				assertEquals(ek.getSessionId(), ak.getSessionId());
+				assertEquals(ek.getPlayer(), ak.getPlayer());
+				assertEquals(ek.getAmount(), ak.getAmount());
+				assertEquals(ek.getAt(), ak.getAt());
+				assertEquals(ek.getType(), ak.getType());
+			}
+		}
+	}
+
+	@Test
+	public void roundTripKeepsEveryField()
+	{
+		Session[] thread = sampleThread();
+		String value = SessionCodec.encode(thread);
+		assertTrue(SessionCodec.isEncoded(value));
+		assertSameThread(thread, SessionCodec.decode(value));
+	}
+
+	@Test
+	public void roundTripKeepsNullsAndOpenSegments()
+	{
+		Session[] thread = sampleThread();
+		List<Session> decoded = SessionCodec.decode(SessionCodec.encode(thread));
+
+		assertNull(decoded.get(1).getEnd());
+		Kill untyped = decoded.get(1).getKills().get(0);
+		assertNull(untyped.getType());
+		Kill noAmount = decoded.get(1).getKills().get(2);
+		assertNull(noAmount.getAmount());
+		Kill noPlayer = decoded.get(1).getKills().get(3);
+		assertNull(noPlayer.getPlayer());
+		assertEquals("BONUS", decoded.get(1).getKills().get(4).getType());
+		assertEquals(Long.valueOf(-250_000L), decoded.get(1).getKills().get(1).getAmount());
+	}
+
+	@Test
+	public void killsBelongToTheirSegment()
+	{
+		// The session id of a kill is not stored, it is the id of the segment holding the kill
+		Session[] thread = sampleThread();
+		thread[1].getKills().add(kill("elsewhere", "Alice", 1L, START, null));
+		for (Kill k : SessionCodec.decode(SessionCodec.encode(thread)).get(1).getKills())
+		{
+			assertEquals("c1", k.getSessionId());
+		}
+	}
+
+	@Test
+	public void timestampsKeepMillisecondPrecision()
+	{
+		Session s = new Session("s", Instant.parse("2024-05-01T18:00:00.123456789Z"), null);
+		Session decoded = SessionCodec.decode(SessionCodec.encode(new Session[]{s})).get(0);
+		assertEquals(Instant.parse("2024-05-01T18:00:00.123Z"), decoded.getStart());
+	}
+
+	@Test
+	public void emptyThreadRoundTrips()
+	{
+		assertTrue(SessionCodec.decode(SessionCodec.encode(new Session[0])).isEmpty());
+	}
+
+	@Test
+	public void rejectsValuesWithoutPrefix()
+	{
+		assertFalse(SessionCodec.isEncoded("[{\"id\":\"m\"}]"));
+		assertFalse(SessionCodec.isEncoded(null));
+		assertRejected(() -> SessionCodec.decode("[{\"id\":\"m\"}]"));
+	}
+
+	@Test
+	public void rejectsUnknownVersion()
+	{
+		byte[] data = SessionCodec.encodeBytes(sampleThread());
+		data[0] = (byte) (SessionCodec.VERSION + 1);
+		assertRejected(() -> SessionCodec.decodeBytes(data));
+	}
+
+	@Test
+	public void rejectsEveryTruncation()
+	{
+		byte[] data = SessionCodec.encodeBytes(sampleThread());
+		for (int n = 0; n < data.length; n++)
+		{
+			byte[] cut = Arrays.copyOf(data, n);
+			assertRejected(() -> SessionCodec.decodeBytes(cut));
+		}
+	}
+
+	@Test
+	public void corruptedBytesFailCleanly()
+	{
+		// Without a checksum a flipped byte may still decode; it must never fail another way
+		byte[] data = SessionCodec.encodeBytes(sampleThread());
+		for (int i = 0; i < data.length; i++)
+		{
+			for (int bit = 0; bit < 8; bit++)
+			{
+				byte[] bad = data.clone();
+				bad[i] ^= (byte) (1 << bit);
+				try
+				{
+					SessionCodec.decodeBytes(bad);
+				}
+				catch (IllegalArgumentException e)
+				{
+					// Expected for most corruptions
+				}
+			}
+		}
+	}
+
+	@Test
+	public void rejectsBrokenBase64()
+	{
+		String value = SessionCodec.encode(sampleThread());
+		assertRejected(() -> SessionCodec.decode(value + "!"));
+		String truncated = SessionCodec.PREFIX + Base64.getEncoder().encodeToString(new byte[]{(byte) SessionCodec.VERSION});
+		assertRejected(() -> SessionCodec.decode(truncated));
+	}
+
+	static void assertRejected(Runnable decode)
+	{
+		try
+		{
+			decode.run();
+			fail("Expected the value to be rejected");
+		}
+		catch (IllegalArgumentException e)
+		{
+			// Expected
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package com.splitmanager.persistence;
+
+import com.splitmanager.PluginConfig;
+import com.splitmanager.models.Kill;
+import com.splitmanager.models.Session;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SessionJournalTest
+{
+	private static final Instant START = Instant.parse("2024-05-01T18:00:00Z");
+
+	private final Map<String, String> stored = new HashMap<>();
+	private PluginConfig config;
+	private SessionJournal journal;
+
+	@Before
+	public void setUp()
+	{
+		stored.clear();
+		config = TestConfig.backedBy(stored);
+		journal = new SessionJournal(config, TestConfig.GSON);
+	}
+
+	/**
+	 * Journal a mother with Alice, then: 1M by Alice, the kill edited to 2M by Bob, Bob on the
+	 * roster, and the mother ended. Sequence numbers 1 to 5.
+	 */
+	private Session journalThread()
+	{
+		Session mother = new Session("m", START, null);
+		mother.setPlayers(List.of("Alice"));
+		journal.append(JournalEntry.sessionStarted(mother));
+		Kill kill = new Kill("m", "Alice", 1_000_000L, START.plusSeconds(60));
+		journal.append(JournalEntry.killAdded(kill));
+		Kill edited = new Kill("m", "Bob", 2_000_000L, kill.getAt());
+		journal.append(JournalEntry.killEdited(edited, 0));
+		mother.setPlayers(List.of("Alice", "Bob"));
+		journal.append(JournalEntry.rosterChanged(mother));
+		mother.setEnd(START.plusSeconds(600));
+		journal.append(JournalEntry.segmentEnded(mother));
+		journal.write();
+		return mother;
+	}
+
+	private SessionJournal replay(Map<String, Session> sessions, Map<String, Long> threadSeqs, long floorSeq)
+	{
+		SessionJournal loaded = new SessionJournal(config, TestConfig.GSON);
+		loaded.replay(sessions, threadSeqs, floorSeq);
+		return loaded;
+	}
+
+	private String[] lines()
+	{
+		return stored.get(PluginConfig.KEY_SESSIONS_JOURNAL).split("\n");
+	}
+
+	@Test
+	public void replayRedoesEveryEntry()
+	{
+		journalThread();
+		Map<String, Session> sessions = new LinkedHashMap<>();
+		SessionJournal loaded = replay(sessions, Map.of(), 0L);
+
+		Session m = sessions.get("m");
+		assertEquals(START, m.getStart());
+		assertEquals(START.plusSeconds(600), m.getEnd());
+		assertEquals(List.of("Alice", "Bob"), List.copyOf(m.getPlayers()));
+		assertEquals(1, m.getKills().size());
+		assertEquals("Bob", m.getKills().get(0).getPlayer());
+		assertEquals(Long.valueOf(2_000_000L), m.getKills().get(0).getAmount());
+		assertEquals(5, loaded.size());
+		assertEquals(5L, loaded.lastSeq());
+	}
+
+	@Test
+	public void tornLastLineIsDroppedAndWrittenBackClean()
+	{
+		journalThread();
+		String[] lines = lines();
+		String last = lines[lines.length - 1];
+		String torn = stored.get(PluginConfig.KEY_SESSIONS_JOURNAL);
+		stored.put(PluginConfig.KEY_SESSIONS_JOURNAL, torn.substring(0, torn.length() - last.length() / 2));
+
+		Map<String, Session> sessions = new LinkedHashMap<>();
+		SessionJournal loaded = replay(sessions, Map.of(), 0L);
+		assertNull("the ended entry was torn", sessions.get("m").getEnd());
+		assertEquals(List.of("Alice", "Bob"), List.copyOf(sessions.get("m").getPlayers()));
+		assertEquals(4, loaded.size());
+		assertEquals(4L, loaded.lastSeq());
+
+		loaded.write();
+		assertEquals(4, lines().length);
+		assertEquals(lines[3], lines()[3]);
+	}
+
+	@Test
+	public void checksumMismatchStopsReplayThere()
+	{
+		journalThread();
+		String[] lines = lines();
+		// Alice's 1M becomes 9M, the line still parses but no longer matches its checksum
+		lines[1] = lines[1].replace("1000000", "9000000");
+		stored.put(PluginConfig.KEY_SESSIONS_JOURNAL, String.join("\n", lines));
+
+		Map<String, Session> sessions = new LinkedHashMap<>();
+		SessionJournal loaded = replay(sessions, Map.of(), 0L);
+		Session m = sessions.get("m");
+		assertTrue(m.getKills().isEmpty());
+		assertEquals(List.of("Alice"), List.copyOf(m.getPlayers()));
+		assertNull(m.getEnd());
+		assertEquals(1, loaded.size());
+	}
+
+	@Test
+	public void entriesInTheSnapshotAreSkipped()
+	{
+		journalThread();
+		// A snapshot taken after the edit, with seq 3, already holds the kill as edited
+		Session snapshot = new Session("m", START, null);
+		snapshot.setPlayers(List.of("Alice"));
+		snapshot.getKills().add(new Kill("m", "Bob", 2_000_000L, START.plusSeconds(60)));
+		Map<String, Session> sessions = new LinkedHashMap<>();
+		sessions.put("m", snapshot);
+
+		SessionJournal loaded = replay(sessions, Map.of("m", 3L), 0L);
+		assertEquals("the kill was not added twice", 1, snapshot.getKills().size());
+		assertEquals(List.of("Alice", "Bob"), List.copyOf(snapshot.getPlayers()));
+		assertEquals(START.plusSeconds(600), snapshot.getEnd());
+		assertEquals(5L, loaded.lastSeq());
+	}
+
+	@Test
+	public void sequenceContinuesFromSnapshotsAndFloor()
+	{
+		SessionJournal loaded = replay(new LinkedHashMap<>(), Map.of("a", 7L, "b", 12L), 9L);
+		assertEquals(12L, loaded.lastSeq());
+		assertEquals(0, loaded.size());
+
+		loaded = replay(new LinkedHashMap<>(), Map.of("a", 7L), 9L);
+		Session s = new Session("n", START, null);
+		loaded.append(JournalEntry.sessionStarted(s));
+		assertEquals(10L, loaded.lastSeq());
+	}
+
+	@Test
+	public void compactionIsDueAtTheThreshold()
+	{
+		Session mother = new Session("m", START, null);
+		journal.append(JournalEntry.sessionStarted(mother));
+		for (int i = 1; i < SessionJournal.COMPACT_THRESHOLD - 1; i++)
+		{
+			journal.append(JournalEntry.killAdded(new Kill("m", "Alice", (long) i, START.plusSeconds(i))));
+		}
+		assertFalse(journal.needsCompaction());
+		journal.append(JournalEntry.killAdded(new Kill("m", "Alice", 1L, START)));
+		assertTrue(journal.needsCompaction());
+		journal.write();
+		assertEquals(SessionJournal.COMPACT_THRESHOLD, lines().length);
+
+		// The owner snapshots and clears; numbering goes on so the snapshot's seq stays meaningful
+		long seq = journal.lastSeq();
+		journal.clear();
+		assertFalse(journal.needsCompaction());
+		assertEquals(0, journal.size());
+		journal.write();
+		assertEquals("", stored.get(PluginConfig.KEY_SESSIONS_JOURNAL));
+		journal.append(JournalEntry.segmentEnded(mother));
+		assertEquals(seq + 1, journal.lastSeq());
+	}
+
+	@Test
+	public void linesWithoutChecksumFromOlderVersionsAreAccepted()
+	{
+		stored.put(PluginConfig.KEY_SESSIONS_JOURNAL,
+			"{\"op\":\"SESSION_STARTED\",\"sessionId\":\"m\",\"players\":[\"Alice\"]}");
+		Map<String, Session> sessions = new LinkedHashMap<>();
+		replay(sessions, Map.of(), 0L);
+		assertEquals(List.of("Alice"), List.copyOf(sessions.get("m").getPlayers()));
+	}
+}
@@ -0,0 +1,174 @@
+package com.splitmanager.persistence;
+
+import com.splitmanager.models.Session;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SessionStoreTest
+{
+	private static final Instant START = Instant.parse("2024-05-01T18:00:00Z");
+
+	// Everything the store keeps, as the client's config group would
+	private final Map<String, String> stored = new HashMap<>();
+	private SessionStore store;
+
+	@Before
+	public void setUp()
+	{
+		stored.clear();
+		store = newStore();
+	}
+
+	private SessionStore newStore()
+	{
+		return new SessionStore(TestConfig.backedBy(stored), new SessionStore.Values()
+		{
+			@Override
+			public String get(String key)
+			{
+				return stored.get(key);
+			}
+
+			@Override
+			public void set(String key, String value)
+			{
+				stored.put(key, value);
+			}
+
+			@Override
+			public void unset(String key)
+			{
+				stored.remove(key);
+			}
+		}, TestConfig.GSON);
+	}
+
+	private static Session[] thread(String motherId, int players)
+	{
+		Session mother = new Session(motherId, START, null);
+		mother.setEnd(START.plusSeconds(60));
+		mother.setPlayers(players == 1 ? List.of("Alice") : List.of("Alice", "Bob"));
+		return new Session[]{mother};
+	}
+
+	private static String corrupt(String value)
+	{
+		return value.substring(0, value.length() - 3);
+	}
+
+	@Test
+	public void damagedThreadFallsBackToPreviousSnapshot()
+	{
+		Session[] first = thread("m", 1);
+		store.writeThread("m", first, 1L);
+		store.writeThread("m", thread("m", 2), 2L);
+		String key = SessionStore.THREAD_KEY_PREFIX + "m";
+		stored.put(key, corrupt(stored.get(key)));
+
+		ThreadSnapshot snapshot = store.readThreadSnapshot("m");
+		assertEquals(1L, snapshot.getSeq());
+		SessionCodecTest.assertSameThread(first, snapshot.getSessions());
+	}
+
+	@Test
+	public void backupIsOnlyReplacedByTheNextWrite()
+	{
+		String key = SessionStore.THREAD_KEY_PREFIX + "m";
+		store.writeThread("m", thread("m", 1), 1L);
+		String first = stored.get(key);
+		store.writeThread("m", thread("m", 2), 2L);
+		assertEquals(first, stored.get(key + SessionStore.BACKUP_SUFFIX));
+
+		String second = stored.get(key);
+		store.writeThread("m", thread("m", 1), 3L);
+		assertEquals(second, stored.get(key + SessionStore.BACKUP_SUFFIX));
+	}
+
+	@Test
+	public void damagedValueNeverReplacesTheBackup()
+	{
+		Session[] first = thread("m", 1);
+		String key = SessionStore.THREAD_KEY_PREFIX + "m";
+		store.writeThread("m", first, 1L);
+		store.writeThread("m", thread("m", 2), 2L);
+		stored.put(key, corrupt(stored.get(key)));
+		store.writeThread("m", thread("m", 2), 3L);
+		stored.put(key, corrupt(stored.get(key)));
+
+		SessionCodecTest.assertSameThread(first, store.readThread("m"));
+	}
+
+	@Test
+	public void threadAndBackupDamagedReadsEmpty()
+	{
+		String key = SessionStore.THREAD_KEY_PREFIX + "m";
+		store.writeThread("m", thread("m", 1), 1L);
+		store.writeThread("m", thread("m", 2), 2L);
+		stored.put(key, corrupt(stored.get(key)));
+		stored.put(key + SessionStore.BACKUP_SUFFIX, corrupt(stored.get(key + SessionStore.BACKUP_SUFFIX)));
+
+		ThreadSnapshot snapshot = store.readThreadSnapshot("m");
+		assertEquals(0L, snapshot.getSeq());
+		assertTrue(snapshot.getSessions().isEmpty());
+	}
+
+	@Test
+	public void compactedThreadsKeepTheirKeysUntilALaterWrite()
+	{
+		ThreadEntry[] index = archivedThreads();
+		assertTrue(store.compactArchive(index, Set.of(), 5L).isEmpty());
+		String blockKey = SessionStore.BLOCK_KEY_PREFIX + "t0";
+		assertNotNull(stored.get(blockKey));
+		for (ThreadEntry entry : index)
+		{
+			assertEquals(blockKey, entry.getBlock());
+			assertNotNull(stored.get(SessionStore.THREAD_KEY_PREFIX + entry.getMotherId()));
+		}
+
+		List<String> droppable = store.compactArchive(index, Set.of(), 6L);
+		assertEquals(SessionStore.BLOCK_THREADS, droppable.size());
+		store.writeArchiveIndex(index, 6L);
+		store.dropThreadKeys(droppable);
+		for (ThreadEntry entry : index)
+		{
+			assertNull(stored.get(SessionStore.THREAD_KEY_PREFIX + entry.getMotherId()));
+			assertNull(stored.get(SessionStore.THREAD_KEY_PREFIX + entry.getMotherId() + SessionStore.BACKUP_SUFFIX));
+		}
+
+		// Read through the stored archive index, as after a restart
+		SessionCodecTest.assertSameThread(thread("t7", 2), newStore().readThread("t7"));
+	}
+
+	@Test
+	public void threadsOfADamagedBlockKeepTheirKeys()
+	{
+		ThreadEntry[] index = archivedThreads();
+		store.compactArchive(index, Set.of(), 5L);
+		String blockKey = SessionStore.BLOCK_KEY_PREFIX + "t0";
+		stored.put(blockKey, corrupt(stored.get(blockKey)));
+
+		assertTrue(store.compactArchive(index, Set.of(), 6L).isEmpty());
+		SessionCodecTest.assertSameThread(thread("t3", 2), store.readThread("t3"));
+	}
+
+	private ThreadEntry[] archivedThreads()
+	{
+		ThreadEntry[] index = new ThreadEntry[SessionStore.BLOCK_THREADS];
+		for (int i = 0; i < index.length; i++)
+		{
+			String id = "t" + i;
+			store.writeThread(id, thread(id, 2), 1L);
+			index[i] = new ThreadEntry(id, START, START.plusSeconds(60), null);
+		}
+		return index;
+	}
+}
@@ -0,0 +1,45 @@
+package com.splitmanager.persistence;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.splitmanager.PluginConfig;
+import com.splitmanager.utils.InstantTypeAdapter;
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.Map;
+import net.runelite.client.config.ConfigItem;
+
+/**
+ * Plugin config for tests, keeping its values in a map as the client's config group would.
+ */
+final class TestConfig
+{
+	static final Gson GSON = new GsonBuilder().registerTypeAdapter(Instant.class, new InstantTypeAdapter()).create();
+
+	private TestConfig()
+	{
+	}
+
+	/**
+	 * @param stored values by key name; config items read and write it
+	 * @return a config whose string items are backed by the map
+	 */
+	static PluginConfig backedBy(Map<String, String> stored)
+	{
+		return (PluginConfig) Proxy.newProxyInstance(PluginConfig.class.getClassLoader(),
+			new Class<?>[]{PluginConfig.class}, (proxy, method, args) ->
+			{
+				ConfigItem item = method.getAnnotation(ConfigItem.class);
+				if (item == null)
+				{
+					return null;
+				}
+				if (args == null)
+				{
+					return stored.get(item.keyName());
+				}
+				stored.put(item.keyName(), (String) args[0]);
+				return null;
+			});
+	}
+}
@@ -0,0 +1,98 @@
+package com.splitmanager.utils;
+
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class AddCommandParserTest
+{
+	/**
+	 * @return "!add 1" padded with trailing spaces to the given length
+	 */
+	private static String ofLength(int length)
+	{
+		StringBuilder b = new StringBuilder("!add 1");
+		while (b.length() < length)
+		{
+			b.append(' ');
+		}
+		return b.toString();
+	}
+
+	private static String values(int n)
+	{
+		StringBuilder b = new StringBuilder("!add");
+		for (int i = 1; i <= n; i++)
+		{
+			b.append(' ').append(i);
+		}
+		return b.toString();
+	}
+
+	@Test
+	public void messageAtTheLengthCapIsRead()
+	{
+		assertEquals(List.of("1"), AddCommandParser.parse(ofLength(AddCommandParser.MAX_MESSAGE_LENGTH)));
+	}
+
+	@Test
+	public void messageOverTheLengthCapIsIgnored()
+	{
+		assertEquals(List.of(), AddCommandParser.parse(ofLength(AddCommandParser.MAX_MESSAGE_LENGTH + 1)));
+	}
+
+	@Test
+	public void valuesUpToTheCapAreKept()
+	{
+		List<String> values = AddCommandParser.parse(values(AddCommandParser.MAX_VALUES));
+		assertEquals(AddCommandParser.MAX_VALUES, values.size());
+		assertEquals(String.valueOf(AddCommandParser.MAX_VALUES), values.get(AddCommandParser.MAX_VALUES - 1));
+	}
+
+	@Test
+	public void valuesPastTheCapAreDropped()
+	{
+		List<String> values = AddCommandParser.parse(values(AddCommandParser.MAX_VALUES + 5));
+		assertEquals(AddCommandParser.MAX_VALUES, values.size());
+		assertEquals(List.of("1", "2", "3", "4", "5", "6", "7", "8", "9", "10"), values);
+	}
+
+	@Test
+	public void mixedUnitsAndSeparators()
+	{
+		assertEquals(List.of("1k", "2.5M", "300", "4b", "1,234"),
+			AddCommandParser.parse("!add 1k, 2.5M 300 ,4 b 1,234"));
+		assertEquals(List.of("1.5m", "2k"), AddCommandParser.parse("!ADD 1.5m,2k"));
+	}
+
+	@Test
+	public void unitMustNotStartAWord()
+	{
+		assertEquals(List.of("5"), AddCommandParser.parse("!add 5 kills"));
+		assertEquals(List.of("5b"), AddCommandParser.parse("!add 5b!"));
+	}
+
+	@Test
+	public void textAfterTheValuesIsIgnored()
+	{
+		assertEquals(List.of("3m"), AddCommandParser.parse("!add 3m for the tbow"));
+		assertEquals(List.of("2", "3"), AddCommandParser.parse("!add 2, 3, and more"));
+	}
+
+	@Test
+	public void commandNeedsWhitespaceAndADigit()
+	{
+		assertEquals(List.of(), AddCommandParser.parse("!add5m"));
+		assertEquals(List.of(), AddCommandParser.parse("!add m"));
+		assertEquals(List.of(), AddCommandParser.parse("!add"));
+		assertEquals(List.of(), AddCommandParser.parse("add 5m"));
+		assertEquals(List.of(), AddCommandParser.parse(null));
+	}
+
+	@Test
+	public void firstCommandWithAValueCounts()
+	{
+		assertEquals(List.of("7k"), AddCommandParser.parse("use !add like !add 7k"));
+		assertEquals(List.of("1"), AddCommandParser.parse("!add 1 !add 2"));
+	}
+}
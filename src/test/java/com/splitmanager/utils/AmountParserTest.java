@@ -0,0 +1,147 @@
+package com.splitmanager.utils;
+
+import java.text.ParseException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class AmountParserTest
+{
+	private static long parse(String text) throws ParseException
+	{
+		return AmountParser.parse(text, AmountParser.COINS);
+	}
+
+	private static void assertInvalid(String text)
+	{
+		try
+		{
+			long value = AmountParser.parse(text, AmountParser.COINS);
+			fail("\"" + text + "\" parsed as " + value);
+		}
+		catch (ParseException e)
+		{
+			// expected
+		}
+	}
+
+	@Test
+	public void unitsInAnyCase() throws ParseException
+	{
+		assertEquals(300_000L, parse("300k"));
+		assertEquals(300_000L, parse("300K"));
+		assertEquals(1_500_000L, parse("1.5m"));
+		assertEquals(1_500_000L, parse("1.5M"));
+		assertEquals(2_000_000_000L, parse("2b"));
+		assertEquals(2_000_000_000L, parse("2 B"));
+		assertEquals(12_345L, parse("12,345 coins"));
+		assertEquals(12_345L, parse("12345 COINS"));
+	}
+
+	@Test
+	public void defaultMultiplierOnlyWithoutUnit() throws ParseException
+	{
+		assertEquals(250_000L, AmountParser.parse("250", 1_000L));
+		assertEquals(2_500_000L, AmountParser.parse("2.5", 1_000_000L));
+		assertEquals(3_000_000L, AmountParser.parse("3m", 1_000L));
+		assertEquals(250L, AmountParser.parse("250 coins", 1_000L));
+	}
+
+	@Test
+	public void fractionRoundsDownAndStopsMatteringAfterNineDigits() throws ParseException
+	{
+		assertEquals(123_456_789L, parse("0.123456789b"));
+		assertEquals(123_456_789L, parse("0.1234567899999b"));
+		assertEquals(1_999L, parse("1.999999999999k"));
+		assertEquals(1L, parse("1.9"));
+		assertEquals(0L, parse("0.0009k"));
+	}
+
+	@Test
+	public void overflowNearLongMaxIsAnError() throws ParseException
+	{
+		assertEquals(Long.MAX_VALUE, parse("9223372036854775807"));
+		assertEquals(Long.MAX_VALUE, parse("9,223,372,036,854,775,807"));
+		assertEquals(Long.MAX_VALUE, parse("9223372036.854775807b"));
+		assertEquals(9_223_372_036_854_775_000L, parse("9223372036854775k"));
+		assertInvalid("9223372036854775808");
+		assertInvalid("92233720368547758070");
+		assertInvalid("9223372036854776k");
+		assertInvalid("9223372036.854775808b");
+		assertInvalid("9223372037b");
+	}
+
+	@Test
+	public void commasAreIgnored() throws ParseException
+	{
+		assertEquals(1_234_567L, parse("1,234,567"));
+		assertEquals(1_234_500L, parse("1,234.5k"));
+		assertEquals(1_500L, parse("1.5,0,0k"));
+		assertEquals(15L, parse("1,5"));
+		assertEquals(5_000L, parse(",5k,"));
+	}
+
+	@Test
+	public void surroundingWhitespaceIsAllowed() throws ParseException
+	{
+		assertEquals(1_500_000L, parse("  1.5m\t"));
+		assertEquals(1_500_000L, parse("1.5  m"));
+	}
+
+	@Test
+	public void junkAroundTheAmountIsAnError()
+	{
+		assertInvalid("");
+		assertInvalid("   ");
+		assertInvalid("m");
+		assertInvalid(".5m");
+		assertInvalid("x1m");
+		assertInvalid("1mx");
+		assertInvalid("1m 2");
+		assertInvalid("1 2");
+		assertInvalid("1.k");
+		assertInvalid("1.5.5");
+		assertInvalid("1t");
+		assertInvalid("-5k");
+		assertInvalid("1coins");
+		assertInvalid("1 coinsx");
+		assertInvalid("1 coin");
+	}
+
+	@Test
+	public void rangeOfALongerText() throws ParseException
+	{
+		String msg = "loot worth 3.2m!";
+		assertEquals(3_200_000L, AmountParser.parse(msg, 11, 15, AmountParser.COINS));
+		try
+		{
+			AmountParser.parse(msg, 11, 16, AmountParser.COINS);
+			fail("\"!\" is not a unit");
+		}
+		catch (ParseException e)
+		{
+			// expected
+		}
+	}
+
+	@Test
+	public void multiplierOfConfiguredUnit()
+	{
+		assertEquals(1_000L, AmountParser.multiplierOf("k"));
+		assertEquals(1_000_000L, AmountParser.multiplierOf("M"));
+		assertEquals(1_000_000_000L, AmountParser.multiplierOf("b"));
+		assertEquals(AmountParser.COINS, AmountParser.multiplierOf(" coins"));
+		assertEquals(AmountParser.COINS, AmountParser.multiplierOf(""));
+		assertEquals(AmountParser.COINS, AmountParser.multiplierOf(null));
+	}
+
+	@Test
+	public void blankMeansOnlyWhitespaceAndCommas()
+	{
+		assertTrue(AmountParser.isBlank(""));
+		assertTrue(AmountParser.isBlank(" ,\t,"));
+		assertFalse(AmountParser.isBlank(" 0 "));
+	}
+}
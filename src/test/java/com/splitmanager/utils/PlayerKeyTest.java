@@ -0,0 +1,82 @@
+package com.splitmanager.utils;
+
+import com.splitmanager.models.Session;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class PlayerKeyTest
+{
+	@Test
+	public void everySeparatorIsOneSpace()
+	{
+		String key = PlayerKey.of("iron man");
+		assertEquals("iron man", key);
+		assertEquals(key, PlayerKey.of("Iron_Man"));
+		assertEquals(key, PlayerKey.of("Iron-Man"));
+		assertEquals(key, PlayerKey.of("Iron\u00A0Man"));
+		assertEquals(key, PlayerKey.of("IRON MAN"));
+	}
+
+	@Test
+	public void runsCollapseAndEndsAreTrimmed()
+	{
+		assertEquals("iron man", PlayerKey.of("  Iron _-\u00A0 Man\u00A0"));
+		assertEquals("iron man", PlayerKey.of("_Iron__Man_"));
+		assertEquals("a b c", PlayerKey.of("A-B_C"));
+		assertEquals("", PlayerKey.of(" _-"));
+		assertNull(PlayerKey.of(null));
+	}
+
+	@Test
+	public void caseFoldingIgnoresTheDefaultLocale()
+	{
+		Locale before = Locale.getDefault();
+		try
+		{
+			// Turkish lower-cases I to a dotless i
+			Locale.setDefault(new Locale("tr", "TR"));
+			assertEquals("iron man", PlayerKey.of("IRON MAN"));
+		}
+		finally
+		{
+			Locale.setDefault(before);
+		}
+	}
+
+	@Test
+	public void sameComparesByKey()
+	{
+		assertTrue(PlayerKey.same("Zezima", "zezima"));
+		assertTrue(PlayerKey.same("Iron_Man", "iron\u00A0man"));
+		assertFalse(PlayerKey.same("Iron Man", "IronMan"));
+		assertFalse(PlayerKey.same(null, "x"));
+		assertFalse(PlayerKey.same(null, null));
+	}
+
+	@Test
+	public void rosterLookupsUseTheKey()
+	{
+		Session s = new Session("m", Instant.EPOCH, null);
+		s.setPlayers(List.of("Iron Man", "Zezima"));
+
+		assertEquals("Iron Man", s.findPlayer("iron_man"));
+		assertEquals("Iron Man", s.findPlayer("IRON-MAN"));
+		assertEquals("Iron Man", s.findPlayer("Iron\u00A0Man"));
+		assertEquals("Zezima", s.findPlayer("ZEZIMA"));
+		assertNull(s.findPlayer("IronMan"));
+		assertTrue(s.hasPlayerKey(PlayerKey.of("iron-man")));
+
+		// Another spelling of a player on the roster is the same player
+		assertFalse(s.addPlayer("iron_man"));
+		assertEquals(2, s.getPlayers().size());
+		assertTrue(s.removePlayer("IRON\u00A0MAN"));
+		assertNull(s.findPlayer("Iron Man"));
+		assertEquals(List.of("Zezima"), List.copyOf(s.getPlayers()));
+	}
+}